@@ -5,30 +5,51 @@ import visitor.*;
 
 /**
  *  The AST Abstract class is the Abstract Syntax Tree representation;
- *  each node contains<ol><li> references to its kids, <li>its unique node number
- *  used for printing/debugging, <li>its decoration used for constraining
+ *  each node contains<ol><li> references to its kids, <li>its node number,
+ *  given by the NodeIds of the tree builder, used for printing/debugging
+ *  and to index tables about the nodes, <li>its decoration used for constraining
  *  and code generation, and <li>a label for code generation</ol>
- *  The AST is built by the Parser
+ *  The AST is built by the Parser<br>
+ *  A node may instead be a view of a node of a FlatTree; its kids,
+ *  decoration and label are then kept in the FlatTree and its node
+ *  number is its index there
 */
 public abstract class AST {
     protected ArrayList<AST> kids;
-    protected int nodeNum;
+    protected int nodeNum = UNNUMBERED;
     protected AST decoration;
     protected String label = "";   // label for generated code of tree
+    FlatTree flat;                 // the tree this node is a view of, if any
+    private final NodeKind kind = NodeKind.of(this);
 
-    static int NodeCount = 0;
+    // the node number of a node no NodeIds has numbered
+    public static final int UNNUMBERED = Integer.MIN_VALUE;
 
     public AST() {
         kids = new ArrayList<AST>();
-        NodeCount++;
-        nodeNum = NodeCount;
+    }
+
+/**
+ *  make this node the view of node of flat
+*/
+    void bind(FlatTree flat, int node) {
+        this.flat = flat;
+        nodeNum = node;
+        kids = null;
     }
 
     public void setDecoration(AST t) {
+        if (flat != null) {
+            flat.setDecoration(nodeNum, t);
+            return;
+        }
         decoration = t;
     }
 
     public AST getDecoration() {
+        if (flat != null) {
+            return flat.getDecoration(nodeNum);
+        }
         return decoration;
     }
 
@@ -36,12 +57,22 @@ public abstract class AST {
         return nodeNum;
     }
 
+/**
+ *  @return the kind of this node; a TypedASTVisitor switches on it
+*/
+    public final NodeKind getKind() {
+        return kind;
+    }
+
 /**
  *  get the AST corresponding to the kid
  *  @param i is the number of the needed kid; it starts with kid number one
  *  @return the AST for the indicated kid
 */
     public AST getKid(int i) {
+        if (flat != null) {
+            return flat.getKid(nodeNum, i);
+        }
         if ( (i <= 0) || (i > kidCount())) {
             return null;
         }
@@ -52,10 +83,20 @@ public abstract class AST {
  *  @return the number of kids at this node
 */
     public int kidCount() {
+        if (flat != null) {
+            return flat.kidCount(nodeNum);
+        }
         return kids.size();
     }
 
+/**
+ *  @return the kids of this node; a copy if this node is a view of a
+ *  FlatTree
+*/
     public ArrayList<AST> getKids() {
+        if (flat != null) {
+            return flat.getKids(nodeNum);
+        }
         return kids;
     }
 
@@ -69,15 +110,26 @@ public abstract class AST {
     public abstract Object accept(ASTVisitor v);
 
     public AST addKid(AST kid) {
+        if (flat != null) {
+            flat.addKid(nodeNum, flat.indexOf(kid));
+            return this;
+        }
         kids.add(kid);
         return this;
     }
 
     public void setLabel(String label) {
+        if (flat != null) {
+            flat.setLabel(nodeNum, label);
+            return;
+        }
         this.label = label;
     }
 
     public String getLabel() {
+        if (flat != null) {
+            return flat.getLabel(nodeNum);
+        }
         return label;
     }
 
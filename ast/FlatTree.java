@@ -0,0 +1,321 @@
+package ast;
+
+import java.util.*;
+import lexer.Symbol;
+import lexer.Token;
+
+/**
+ *  FlatTree stores an AST as parallel arrays indexed by node number
+ *  instead of one object per node: the kind of each node, its first kid
+ *  and next sibling, the index of its Symbol and of its decoration. A
+ *  tree of n nodes takes a handful of arrays of length n rather than n
+ *  nodes each with its own list of kids<br>
+ *  view(i) adapts node i to the AST API, so the visitors - PrintVisitor,
+ *  Constrainer, Codegen - run on a FlatTree as they do on the parsed
+ *  tree: the view's kids, decoration and label are read from and written
+ *  to the arrays. Views are made the first time they're asked for and
+ *  then kept, so node i is always the same AST. A decoration that isn't
+ *  a node of this tree, e.g. one of the Prelude trees, is kept in a list
+ *  on the side<br>
+ *  The kids a view returns from getKids are a copy; a visitor that
+ *  replaces kids through that list, like ConstantFolder, needs the
+ *  parsed tree
+*/
+public final class FlatTree {
+    public static final int NONE = -1;
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private int size;
+    private byte[] kinds;
+    private int[] firstKid;
+    private int[] lastKid;
+    private int[] nextSibling;
+    // index into symbols, or NONE
+    private int[] symbolIds;
+    // the node index of the decoration, NONE, or -2 - k for externals[k]
+    private int[] decorations;
+    // allocated when the first label is set; null means ""
+    private String[] labels;
+    private AST[] views;
+
+    private final ArrayList<Symbol> symbols = new ArrayList<Symbol>();
+    private final IdentityHashMap<Symbol, Integer> symbolIndex = new IdentityHashMap<Symbol, Integer>();
+    private final ArrayList<AST> externals = new ArrayList<AST>();
+
+    public FlatTree() {
+        this(64);
+    }
+
+/**
+ *  @param capacity is the number of nodes expected
+*/
+    public FlatTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        kinds = new byte[capacity];
+        firstKid = new int[capacity];
+        lastKid = new int[capacity];
+        nextSibling = new int[capacity];
+        symbolIds = new int[capacity];
+        decorations = new int[capacity];
+    }
+
+/**
+ *  copy a parsed tree; the nodes are numbered in preorder, so node 0 is
+ *  the root and a node's kids follow it. The copy is made with an explicit
+ *  stack, so deep trees are fine. Decorations and labels are copied too;
+ *  frame offsets are not
+ *  @param root is the tree to copy
+*/
+    public static FlatTree from(AST root) {
+        FlatTree tree = new FlatTree();
+        IdentityHashMap<AST, Integer> index = new IdentityHashMap<AST, Integer>();
+        ArrayDeque<AST> pending = new ArrayDeque<AST>();
+        ArrayDeque<Integer> parents = new ArrayDeque<Integer>();
+        pending.push(root);
+        parents.push(NONE);
+        while (!pending.isEmpty()) {
+            AST t = pending.pop();
+            int parent = parents.pop();
+            NodeKind kind = t.getKind();
+            int node = tree.add(kind, kind.hasSymbol() ? symbolOf(t) : null);
+            index.put(t, node);
+            if (parent != NONE) {
+                tree.addKid(parent, node);
+            }
+            for (int kid = t.kidCount(); kid >= 1; kid--) {
+                pending.push(t.getKid(kid));
+                parents.push(node);
+            }
+        }
+        for (Map.Entry<AST, Integer> entry : index.entrySet()) {
+            AST t = entry.getKey();
+            int node = entry.getValue();
+            AST decoration = t.getDecoration();
+            if (decoration != null) {
+                Integer at = index.get(decoration);
+                tree.decorations[node] = at != null ? at : tree.external(decoration);
+            }
+            if (t.getLabel().length() > 0) {
+                tree.setLabel(node, t.getLabel());
+            }
+        }
+        tree.resize(tree.size);
+        return tree;
+    }
+
+    static Symbol symbolOf(AST t) {
+        switch (t.getKind()) {
+            case INT: return ((IntTree)t).getSymbol();
+            case ID: return ((IdTree)t).getSymbol();
+            case REL_OP: return ((RelOpTree)t).getSymbol();
+            case ADD_OP: return ((AddOpTree)t).getSymbol();
+            case MULT_OP: return ((MultOpTree)t).getSymbol();
+            case UTF_STRING_LIT: return ((UtfStringLitTree)t).getSymbol();
+            case TIME_STAMP_LIT: return ((TimeStampLitTree)t).getSymbol();
+            default: return null;
+        }
+    }
+
+/**
+ *  add a node with no kids
+ *  @param symbol is null if the kind of node has none
+ *  @return the index of the new node
+*/
+    public int add(NodeKind kind, Symbol symbol) {
+        if (size == kinds.length) {
+            grow();
+        }
+        int node = size++;
+        kinds[node] = (byte)kind.ordinal();
+        firstKid[node] = lastKid[node] = nextSibling[node] = NONE;
+        symbolIds[node] = symbol == null ? NONE : symbolId(symbol);
+        decorations[node] = NONE;
+        return node;
+    }
+
+/**
+ *  make kid the last kid of parent
+*/
+    public void addKid(int parent, int kid) {
+        if (firstKid[parent] == NONE) {
+            firstKid[parent] = kid;
+        } else {
+            nextSibling[lastKid[parent]] = kid;
+        }
+        lastKid[parent] = kid;
+    }
+
+    private void grow() {
+        resize(kinds.length * 2);
+    }
+
+    private void resize(int capacity) {
+        capacity = Math.max(capacity, 1);
+        kinds = Arrays.copyOf(kinds, capacity);
+        firstKid = Arrays.copyOf(firstKid, capacity);
+        lastKid = Arrays.copyOf(lastKid, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        decorations = Arrays.copyOf(decorations, capacity);
+        if (labels != null) {
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        if (views != null) {
+            views = Arrays.copyOf(views, capacity);
+        }
+    }
+
+    private int symbolId(Symbol symbol) {
+        Integer id = symbolIndex.get(symbol);
+        if (id == null) {
+            id = symbols.size();
+            symbols.add(symbol);
+            symbolIndex.put(symbol, id);
+        }
+        return id;
+    }
+
+    private int external(AST t) {
+        int k = externals.indexOf(t);
+        if (k < 0) {
+            k = externals.size();
+            externals.add(t);
+        }
+        return -2 - k;
+    }
+
+/**
+ *  @return the number of nodes
+*/
+    public int size() {
+        return size;
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+/**
+ *  @return the first kid of node, or NONE
+*/
+    public int firstKid(int node) {
+        return firstKid[node];
+    }
+
+/**
+ *  @return the kid of node's parent that follows node, or NONE
+*/
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+/**
+ *  @return the Symbol of node; null if it has none
+*/
+    public Symbol symbol(int node) {
+        int id = symbolIds[node];
+        return id == NONE ? null : symbols.get(id);
+    }
+
+/**
+ *  @return the index of the node that decorates node; NONE if there is
+ *  no decoration or it isn't in this tree
+*/
+    public int decoration(int node) {
+        return Math.max(decorations[node], NONE);
+    }
+
+/**
+ *  @return the view of the root
+*/
+    public AST root() {
+        return view(0);
+    }
+
+/**
+ *  @return node as an AST; the same AST every time
+*/
+    public AST view(int node) {
+        if (views == null) {
+            views = new AST[kinds.length];
+        }
+        AST t = views[node];
+        if (t == null) {
+            Symbol symbol = symbol(node);
+            t = kind(node).create(symbol == null ? null : new Token(-1, -1, -1, symbol));
+            t.bind(this, node);
+            views[node] = t;
+        }
+        return t;
+    }
+
+/**
+ *  @return the index of t, which must be a view of this tree
+*/
+    int indexOf(AST t) {
+        if (t.flat != this) {
+            throw new IllegalArgumentException("node " + t.getNodeNum() + " is not in this FlatTree");
+        }
+        return t.nodeNum;
+    }
+
+    // the AST methods of a view
+
+    AST getKid(int node, int i) {
+        if (i <= 0) {
+            return null;
+        }
+        int kid = firstKid[node];
+        while (kid != NONE && --i > 0) {
+            kid = nextSibling[kid];
+        }
+        return kid == NONE ? null : view(kid);
+    }
+
+    int kidCount(int node) {
+        int count = 0;
+        for (int kid = firstKid[node]; kid != NONE; kid = nextSibling[kid]) {
+            count++;
+        }
+        return count;
+    }
+
+    ArrayList<AST> getKids(int node) {
+        ArrayList<AST> kids = new ArrayList<AST>();
+        for (int kid = firstKid[node]; kid != NONE; kid = nextSibling[kid]) {
+            kids.add(view(kid));
+        }
+        return kids;
+    }
+
+    AST getDecoration(int node) {
+        int at = decorations[node];
+        if (at == NONE) {
+            return null;
+        }
+        return at >= 0 ? view(at) : externals.get(-2 - at);
+    }
+
+    void setDecoration(int node, AST t) {
+        if (t == null) {
+            decorations[node] = NONE;
+        } else if (t.flat == this) {
+            decorations[node] = t.nodeNum;
+        } else {
+            decorations[node] = external(t);
+        }
+    }
+
+    String getLabel(int node) {
+        String label = labels == null ? null : labels[node];
+        return label == null ? "" : label;
+    }
+
+    void setLabel(int node, String label) {
+        if (labels == null) {
+            labels = new String[kinds.length];
+        }
+        labels[node] = label;
+    }
+}
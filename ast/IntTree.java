@@ -6,6 +6,8 @@ import visitor.*;
 
 public class IntTree extends AST {
     private Symbol symbol;
+    private int value;
+    private boolean converted = false;
 
 /**
  *  @param tok is the Token containing the String representation of the integer
@@ -17,6 +19,16 @@ public class IntTree extends AST {
         this.symbol = tok.getSymbol();
     }
 
+/**
+ *  @param tok is the Token containing the String representation of value
+ *  @param value is the value of the literal; e.g. a folded constant
+*/
+    public IntTree(Token tok, int value) {
+        this(tok);
+        this.value = value;
+        converted = true;
+    }
+
     public Object accept(ASTVisitor v) {
         return v.visitIntTree(this);
     }
@@ -25,5 +37,17 @@ public class IntTree extends AST {
         return symbol;
     }
 
+/**
+ *  @return the value of the literal; the String is converted the first
+ *  time the value is needed
+*/
+    public int getValue() {
+        if (!converted) {
+            value = Integer.parseInt(symbol.toString());
+            converted = true;
+        }
+        return value;
+    }
+
 }
 
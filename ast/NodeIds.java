@@ -0,0 +1,66 @@
+package ast;
+
+/**
+ *  NodeIds numbers the nodes of one tree as they are built: 0, 1, 2 ...
+ *  so a table about the nodes of the tree can be an array indexed by
+ *  node number. Each Parser has its own NodeIds, so the numbers of one
+ *  compilation don't depend on any other; the intrinsic trees of the
+ *  Prelude are numbered -1, -2 ... so they are never confused with the
+ *  nodes of a program<br>
+ *  A NodeIds belongs to the one thread building its tree
+*/
+public final class NodeIds {
+    private final int step;
+    private int next;
+    private int count;
+
+    public NodeIds() {
+        this(0, 1);
+    }
+
+    private NodeIds(int first, int step) {
+        this.next = first;
+        this.step = step;
+    }
+
+/**
+ *  @return a NodeIds that numbers intrinsic trees -1, -2 ...
+*/
+    public static NodeIds intrinsic() {
+        return new NodeIds(-1, -1);
+    }
+
+/**
+ *  give t the next node number
+ *  @return t
+*/
+    public <T extends AST> T number(T t) {
+        t.nodeNum = next;
+        next += step;
+        count++;
+        return t;
+    }
+
+/**
+ *  give every node of t that isn't numbered yet the next node number;
+ *  for trees that were built without a NodeIds
+ *  @return t
+*/
+    public AST numberAll(AST t) {
+        if (t.nodeNum == AST.UNNUMBERED) {
+            number(t);
+        }
+        for (int kid = 1; kid <= t.kidCount(); kid++) {
+            numberAll(t.getKid(kid));
+        }
+        return t;
+    }
+
+/**
+ *  @return the number of nodes numbered so far; the node numbers of a
+ *  program are 0 .. count() - 1
+*/
+    public int count() {
+        return count;
+    }
+}
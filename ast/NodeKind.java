@@ -0,0 +1,80 @@
+package ast;
+
+import java.util.function.Function;
+import lexer.Token;
+
+/**
+ *  NodeKind names each kind of AST node; FlatTree records a node's kind
+ *  in place of its class. Each kind knows its class and how to create a
+ *  node of that class - from a Token for the kinds that carry a Symbol
+*/
+public enum NodeKind {
+    PROGRAM(ProgramTree.class, tok -> new ProgramTree()),
+    BLOCK(BlockTree.class, tok -> new BlockTree()),
+    FUNCTION_DECL(FunctionDeclTree.class, tok -> new FunctionDeclTree()),
+    CALL(CallTree.class, tok -> new CallTree()),
+    DECL(DeclTree.class, tok -> new DeclTree()),
+    INT_TYPE(IntTypeTree.class, tok -> new IntTypeTree()),
+    BOOL_TYPE(BoolTypeTree.class, tok -> new BoolTypeTree()),
+    USTRING_TYPE(UstringTypeTree.class, tok -> new UstringTypeTree()),
+    TIME_STAMP_TYPE(TimeStampTypeTree.class, tok -> new TimeStampTypeTree()),
+    FORMALS(FormalsTree.class, tok -> new FormalsTree()),
+    ACTUAL_ARGS(ActualArgsTree.class, tok -> new ActualArgsTree()),
+    IF(IfTree.class, tok -> new IfTree()),
+    WHILE(WhileTree.class, tok -> new WhileTree()),
+    RETURN(ReturnTree.class, tok -> new ReturnTree()),
+    ASSIGN(AssignTree.class, tok -> new AssignTree()),
+    SWITCH(SwitchTree.class, tok -> new SwitchTree()),
+    CASE_LIST(CaseListTree.class, tok -> new CaseListTree()),
+    CASE_STATEMENT(CaseStatementTree.class, tok -> new CaseStatementTree()),
+    DEFAULT_STATEMENT(DefaultStatementTree.class, tok -> new DefaultStatementTree()),
+    CASE_BLOCK(CaseBlockTree.class, tok -> new CaseBlockTree()),
+    INT(IntTree.class, IntTree::new),
+    ID(IdTree.class, IdTree::new),
+    REL_OP(RelOpTree.class, RelOpTree::new),
+    ADD_OP(AddOpTree.class, AddOpTree::new),
+    MULT_OP(MultOpTree.class, MultOpTree::new),
+    UTF_STRING_LIT(UtfStringLitTree.class, UtfStringLitTree::new),
+    TIME_STAMP_LIT(TimeStampLitTree.class, TimeStampLitTree::new);
+
+    private final Class<? extends AST> nodeClass;
+    private final Function<Token, AST> factory;
+
+    NodeKind(Class<? extends AST> nodeClass, Function<Token, AST> factory) {
+        this.nodeClass = nodeClass;
+        this.factory = factory;
+    }
+
+    private static final ClassValue<NodeKind> KINDS = new ClassValue<NodeKind>() {
+        protected NodeKind computeValue(Class<?> nodeClass) {
+            for (NodeKind kind : values()) {
+                if (kind.nodeClass == nodeClass) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("no NodeKind for " + nodeClass.getName());
+        }
+    };
+
+/**
+ *  @return the kind of the node t
+*/
+    public static NodeKind of(AST t) {
+        return KINDS.get(t.getClass());
+    }
+
+/**
+ *  @return true if nodes of this kind carry a Symbol
+*/
+    public boolean hasSymbol() {
+        return compareTo(INT) >= 0;
+    }
+
+/**
+ *  create a node of this kind
+ *  @param tok holds the Symbol of the node; ignored if the kind has none
+*/
+    public AST create(Token tok) {
+        return factory.apply(tok);
+    }
+}
@@ -0,0 +1,92 @@
+package codegen;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ *  BinaryFormat is the compact serialization of a Program, read back by
+ *  MappedProgram:
+ *  <pre>
+ *  magic "XCOD", version byte
+ *  varint n, then n strings: varint length, UTF-8 bytes
+ *  varint m, then m codes: a byte holding the Codes.ByteCodes ordinal in
+ *    its low 4 bits and the kind of code in its high bits, followed by
+ *    the operands of that kind:
+ *    PLAIN - none                     e.g. HALT, READ, RETURN
+ *    LABEL - varint string index      e.g. GOTO, CALL, BOP, LABEL
+ *    NUM   - zigzag varint            e.g. POP, ARGS, LIT n
+ *    VAR   - zigzag varint, varint string index   e.g. LOAD, STORE, LIT n x
+ *  </pre>
+ *  Labels, variable names, operators and string literals are each stored
+ *  once in the string table; the codes refer to them by index. A varint
+ *  is 7 bits per byte, low bits first, with the high bit set on every
+ *  byte but the last; zigzag maps 0, -1, 1, -2 ... to 0, 1, 2, 3 ...
+*/
+public final class BinaryFormat {
+    // the extension of the binary files; the text files end in .cod
+    public static final String EXTENSION = ".codb";
+    static final byte[] MAGIC = {'X', 'C', 'O', 'D'};
+    static final int VERSION = 1;
+    static final int PLAIN = 0, LABEL = 1, NUM = 2, VAR = 3;
+
+    private BinaryFormat() {}
+
+/**
+ *  write codes to out in the binary format
+*/
+    public static void write(List<Code> codes, OutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        for (Code code : codes) {
+            if (code instanceof LabelOpcode) {
+                strings.putIfAbsent(((LabelOpcode)code).getLabel(), strings.size());
+            } else if (code instanceof VarOpcode) {
+                strings.putIfAbsent(((VarOpcode)code).getVarname(), strings.size());
+            }
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.write(MAGIC);
+        data.write(VERSION);
+        writeVarint(data, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(data, bytes.length);
+            data.write(bytes);
+        }
+        writeVarint(data, codes.size());
+        for (Code code : codes) {
+            int opcode = code.getBytecode().ordinal();
+            if (code instanceof LabelOpcode) {
+                data.write(opcode | LABEL << 4);
+                writeVarint(data, strings.get(((LabelOpcode)code).getLabel()));
+            } else if (code instanceof VarOpcode) {
+                VarOpcode var = (VarOpcode)code;
+                data.write(opcode | VAR << 4);
+                writeVarint(data, zigzag(var.getLocation()));
+                writeVarint(data, strings.get(var.getVarname()));
+            } else if (code instanceof NumOpcode) {
+                data.write(opcode | NUM << 4);
+                writeVarint(data, zigzag(((NumOpcode)code).getNum()));
+            } else {
+                data.write(opcode | PLAIN << 4);
+            }
+        }
+        data.flush();
+    }
+
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
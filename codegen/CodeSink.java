@@ -0,0 +1,35 @@
+package codegen;
+
+/**
+ *  CodeSink receives the bytecodes from Codegen one at a time, in the
+ *  order they are generated; Program keeps them all, StreamingProgram
+ *  writes them out as it goes
+*/
+public interface CodeSink {
+
+/**
+ *  a bytecode with no operand - e.g. HALT
+*/
+    void emit(Codes.ByteCodes bytecode);
+
+/**
+ *  a bytecode with a label, function name or operator - e.g. GOTO xyz
+*/
+    void emit(Codes.ByteCodes bytecode, String label);
+
+/**
+ *  a bytecode with a number - e.g. LIT 5
+*/
+    void emit(Codes.ByteCodes bytecode, int num);
+
+/**
+ *  a bytecode with a frame offset and a variable name - e.g. LOAD 0 x
+*/
+    void emit(Codes.ByteCodes bytecode, int location, String varname);
+
+/**
+ *  called after the RETURN that ends each function; no bytecode that
+ *  was emitted before it is referred to again
+*/
+    default void functionEnd() {}
+}
@@ -4,6 +4,7 @@ import constrain.*;
 import visitor.*;
 import java.util.*;
 import ast.*;
+import diagnostics.Diagnostics;
 
 /**
  *  The Frame class is used for tracking the frame size as we generated 
@@ -76,9 +77,10 @@ class Block {
 
 /**
  *  The Codegen class will walk the AST, determine and set variable
- *  offsets and generate the bytecodes
+ *  offsets and generate the bytecodes; the visits return nothing and
+ *  need no context
 */
-public class Codegen extends ASTVisitor {
+public class Codegen extends TypedASTVisitor<Void, Void> {
 
     AST t;
     Stack<Frame> frameSizes;   // used for tracking the frame sizes;
@@ -87,30 +89,55 @@ public class Codegen extends ASTVisitor {
                         // stack with init size zero
    
     Program program;    // program will contain the generated bytecodes
+    CodeSink sink;      // receives the bytecodes; program unless streaming
     int labelNum;       // used for creating new, unique labels
+    Diagnostics diagnostics;
 
 /**
  *  Create a new code generator based on the given AST
  *  @param t is the AST that will be visited
 */
     public Codegen(AST t) {
+        this(t, Diagnostics.getDefault());
+    }
+
+/**
+ *  Create a new code generator based on the given AST
+ *  @param t is the AST that will be visited
+ *  @param diagnostics receives the bytecode echo and error messages
+*/
+    public Codegen(AST t, Diagnostics diagnostics) {
+        this(t, new Program(diagnostics), diagnostics);
+        program = (Program)sink;
+    }
+
+/**
+ *  Create a new code generator that hands each bytecode to sink as soon
+ *  as it is generated; e.g. a StreamingProgram
+ *  @param t is the AST that will be visited
+ *  @param sink receives the bytecodes
+ *  @param diagnostics receives error messages
+*/
+    public Codegen(AST t, CodeSink sink, Diagnostics diagnostics) {
         this.t = t;
-        program = new Program();
+        this.sink = sink;
+        this.diagnostics = diagnostics;
         frameSizes = new Stack<Frame>();
         labelNum = 0;
     }
 
 /** visit all the nodes in the AST/gen bytecodes
+ *  @return the program; null if the bytecodes went to another CodeSink
 */
     public Program execute() {
-        t.accept(this);  // 
+        visit(t, null);
         return program;
     }
         
 
     Frame topFrame() {
         if (frameSizes.empty())
-        System.out.println("frames empty");
+        diagnostics.error("frames empty");
         return (Frame)frameSizes.peek();
     }
 
@@ -158,16 +185,38 @@ public class Codegen extends ASTVisitor {
         return label + "<<" + labelNum + ">>";
     }
 
-    void storeop(Code code) {
+/**
+ *  the storeop methods hand a bytecode to the sink and record how it
+ *  changes the frame; e.g. storeop(POP,n) is POP n
+*/
+    void storeop(Codes.ByteCodes bytecode) {
+        sink.emit(bytecode);
+        changeFrame(bytecode, 0);
+    }
+
+    void storeop(Codes.ByteCodes bytecode, String label) {
+        sink.emit(bytecode, label);
+        changeFrame(bytecode, 0);
+    }
+
+    void storeop(Codes.ByteCodes bytecode, int num) {
+        sink.emit(bytecode, num);
+        changeFrame(bytecode, num);
+    }
+
+    void storeop(Codes.ByteCodes bytecode, int location, String varname) {
+        sink.emit(bytecode, location, varname);
+        changeFrame(bytecode, 0);
+    }
+
+    void changeFrame(Codes.ByteCodes bytecode, int num) {
 /*        
-        System.out.println("storeop: "+code.toString()+" fs:"+
+        System.out.println("storeop: "+bytecode+" fs:"+
            top.getSize()+" bs: "+top.getBlockSize());
 */           
-        Codes.ByteCodes bytecode = code.getBytecode();
         int change = Codes.frameChange.get(bytecode);
-        program.storeop(code);
         if (change == Codes.UnknownChange) {  // pop n; args n
-            changeFrame( - ((NumOpcode)code).getNum());
+            changeFrame( - num);
         } else {
             changeFrame(change);
         }
@@ -175,24 +224,20 @@ public class Codegen extends ASTVisitor {
 
     void genIntrinsicCodes() {
         // generate codes for read/write functions so they're treated
-        // as any other function
-        String readLabel = "Read",
-               writeLabel = "Write";
-        AST readTree = Constrainer.readTree,
-            writeTree = Constrainer.writeTree;
-        readTree.setLabel(readLabel);
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,readLabel));
-        storeop(new Code(Codes.ByteCodes.READ));
-        storeop(new Code(Codes.ByteCodes.RETURN));
-
-        writeTree.setLabel(writeLabel);
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,writeLabel));
+        // as any other function; the Prelude trees already carry the
+        // labels Read and Write
+        AST writeTree = Prelude.writeTree;
+        storeop(Codes.ByteCodes.LABEL,Prelude.READ_LABEL);
+        storeop(Codes.ByteCodes.READ);
+        storeop(Codes.ByteCodes.RETURN);
+
+        storeop(Codes.ByteCodes.LABEL,Prelude.WRITE_LABEL);
         String formal = ((IdTree)(writeTree.getKid(3).getKid(1).getKid(2))).
                                  getSymbol().toString();
-        storeop(new VarOpcode(Codes.ByteCodes.LOAD,0,formal));
+        storeop(Codes.ByteCodes.LOAD,0,formal);
         // write has one actual arg - in frame offset 0
-        storeop(new Code(Codes.ByteCodes.WRITE));
-        storeop(new Code(Codes.ByteCodes.RETURN));
+        storeop(Codes.ByteCodes.WRITE);
+        storeop(Codes.ByteCodes.RETURN);
    }
 
 /** <pre>
@@ -208,15 +253,15 @@ public class Codegen extends ASTVisitor {
  *  @return null - we're a visitor so must return a value
  *  but the code generator doesn't need any specific value
 */
-    public Object visitProgramTree(AST t) {
+    public Void visitProgramTree(AST t, Void context) {
         String startLabel = newLabel("start");
         openFrame();
-        storeop(new LabelOpcode(Codes.ByteCodes.GOTO,startLabel));
+        storeop(Codes.ByteCodes.GOTO,startLabel);
         // branch over intrinsic bytecodes
         genIntrinsicCodes();
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,startLabel));
-        t.getKid(1).accept(this);
-        storeop(new Code(Codes.ByteCodes.HALT));
+        storeop(Codes.ByteCodes.LABEL,startLabel);
+        visit(t.getKid(1), context);
+        storeop(Codes.ByteCodes.HALT);
         closeFrame();
         return null;
     }
@@ -227,11 +272,11 @@ public class Codegen extends ASTVisitor {
  *  POP n   -- n is the number of local variables; pop them
  *  </pre>
 */
-    public Object visitBlockTree(AST t) {
+    public Void visitBlockTree(AST t, Void context) {
         //System.out.println("visitBlockTree");
         openBlock();
-        visitKids(t);
-        storeop(new NumOpcode(Codes.ByteCodes.POP,getBlockSize()));
+        visitKids(t, context);
+        storeop(Codes.ByteCodes.POP,getBlockSize());
         // remove any local variables from runtime stack
         closeBlock();
         return null; }
@@ -247,7 +292,7 @@ public class Codegen extends ASTVisitor {
  *  LABEL continue
  *  </pre>
 */
-    public Object visitFunctionDeclTree(AST t) {
+    public Void visitFunctionDeclTree(AST t, Void context) {
         //System.out.println("visitFunctionDeclTree");
         AST name = t.getKid(2),
             formals = t.getKid(3),
@@ -256,9 +301,9 @@ public class Codegen extends ASTVisitor {
         String funcLabel = newLabel(funcName);
         t.setLabel(funcLabel);
         String continueLabel = newLabel("continue");
-        storeop(new LabelOpcode(Codes.ByteCodes.GOTO,continueLabel));
+        storeop(Codes.ByteCodes.GOTO,continueLabel);
         openFrame();  // track Frame changes within function
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,funcLabel));
+        storeop(Codes.ByteCodes.LABEL,funcLabel);
         // now record the frame offsets for the formals
         for (AST decl : formals.getKids()) {
             IdTree id = (IdTree)(decl.getKid(2));
@@ -266,12 +311,13 @@ public class Codegen extends ASTVisitor {
             decl.setLabel(id.getSymbol().toString());
             changeFrame(1);  // ensure frame size includes space for variables
         }
-        block.accept(this);
+        visit(block, context);
         // emit gratis return in case user didn't provide her/his own return
-        storeop(new VarOpcode(Codes.ByteCodes.LIT,0,"   GRATIS-RETURN-VALUE"));
-        storeop(new LabelOpcode(Codes.ByteCodes.RETURN,funcLabel));
+        storeop(Codes.ByteCodes.LIT,0,"   GRATIS-RETURN-VALUE");
+        storeop(Codes.ByteCodes.RETURN,funcLabel);
+        sink.functionEnd();
         closeFrame();
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,continueLabel));
+        storeop(Codes.ByteCodes.LABEL,continueLabel);
         return null;
     }
 
@@ -283,16 +329,16 @@ public class Codegen extends ASTVisitor {
  *  CALL functionName
  *  </pre>
 */
-    public Object visitCallTree(AST t) {
+    public Void visitCallTree(AST t, Void context) {
         //System.out.println("visitCallTree");
         String funcName = ((IdTree)t.getKid(1)).getDecoration().getLabel();
         int numArgs = t.kidCount() - 1;
         for (int kid = 2; kid <= t.kidCount(); kid++) {
-            t.getKid(kid).accept(this);
+            visit(t.getKid(kid), context);
         }
-        storeop(new NumOpcode(Codes.ByteCodes.ARGS,numArgs));
+        storeop(Codes.ByteCodes.ARGS,numArgs);
         //used to set up new frame
-        storeop(new LabelOpcode(Codes.ByteCodes.CALL, funcName));
+        storeop(Codes.ByteCodes.CALL,funcName);
         return null;
     }
 
@@ -303,36 +349,36 @@ public class Codegen extends ASTVisitor {
  *  record the frame offset of this variable for future references
  *  </pre>
 */
-    public Object visitDeclTree(AST t) {
+    public Void visitDeclTree(AST t, Void context) {
         //System.out.println("visitDeclTree");
         IdTree id = (IdTree)t.getKid(2);
         String idLabel = id.getSymbol().toString();
         t.setLabel(idLabel);  //set label in dcln node
         id.setFrameOffset(frameSize());
-        storeop(new VarOpcode(Codes.ByteCodes.LIT,0,idLabel));
+        storeop(Codes.ByteCodes.LIT,0,idLabel);
         //reserve space in frame for new variable; init to 0
         return null;
     }
 
-    public Object visitIntTypeTree(AST t) {
+    public Void visitIntTypeTree(AST t, Void context) {
         //System.out.println("visitIntTypeTree");
         return null; }
 
-    public Object visitBoolTypeTree(AST t) {
+    public Void visitBoolTypeTree(AST t, Void context) {
         //System.out.println("visitBoolTypeTree");
         return null; }
 
-    public Object visitUstringTypeTree(AST t) {
+    public Void visitUstringTypeTree(AST t, Void context) {
         return null; }
 
-    public Object visitTimeStampTypeTree(AST t) {
+    public Void visitTimeStampTypeTree(AST t, Void context) {
         return null; }
 
-    public Object visitFormalsTree(AST t) {
+    public Void visitFormalsTree(AST t, Void context) {
         //System.out.println("visitFormalsTree");
         return null; }
 
-    public Object visitActualArgsTree(AST t) {
+    public Void visitActualArgsTree(AST t, Void context) {
         //System.out.println("visitActualArgsTree");
         return null; }
 
@@ -348,17 +394,17 @@ public class Codegen extends ASTVisitor {
  *  LABEL continue
  *  </pre>
 */
-    public Object visitIfTree(AST t) {
+    public Void visitIfTree(AST t, Void context) {
         //System.out.println("visitIfTree");
         String elseLabel = newLabel("else"),
                continueLabel = newLabel("continue");
-        t.getKid(1).accept(this); // gen code for conditional expr
-        storeop(new LabelOpcode(Codes.ByteCodes.FALSEBRANCH,elseLabel));
-        t.getKid(2).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.GOTO,continueLabel));
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,elseLabel));
-        t.getKid(3).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,continueLabel));
+        visit(t.getKid(1), context); // gen code for conditional expr
+        storeop(Codes.ByteCodes.FALSEBRANCH,elseLabel);
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.GOTO,continueLabel);
+        storeop(Codes.ByteCodes.LABEL,elseLabel);
+        visit(t.getKid(3), context);
+        storeop(Codes.ByteCodes.LABEL,continueLabel);
         return null; }
 
 /** <pre>
@@ -371,17 +417,22 @@ public class Codegen extends ASTVisitor {
  *  GOTO while
  *  LABEL continue
  *  </pre>
+ *  the conditional and FALSEBRANCH are left out if ConstantFolder has
+ *  reduced the conditional to true
 */
-    public Object visitWhileTree(AST t) {
+    public Void visitWhileTree(AST t, Void context) {
         //System.out.println("visitWhileTree");
         String continueLabel = newLabel("continue"),
                whileLabel = newLabel("while");
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,whileLabel));
-        t.getKid(1).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.FALSEBRANCH,continueLabel));
-        t.getKid(2).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.GOTO,whileLabel));
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,continueLabel));
+        storeop(Codes.ByteCodes.LABEL,whileLabel);
+        AST condition = t.getKid(1);
+        if (!(condition instanceof IntTree) || ((IntTree)condition).getValue() == 0) {
+            visit(condition, context);
+            storeop(Codes.ByteCodes.FALSEBRANCH,continueLabel);
+        }
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.GOTO,whileLabel);
+        storeop(Codes.ByteCodes.LABEL,continueLabel);
         return null;
     }
 
@@ -390,16 +441,58 @@ public class Codegen extends ASTVisitor {
  *
  *  &LT;generate codes for the expression that will be returned&GT;
  *  RETURN &LT;name-of-function&GT;
+ *
+ *  a function returning a call of itself reuses its frame instead:
+ *
+ *  &LT;generate codes for the actual args&GT;
+ *  STORE n-1 ... STORE 0   -- the args replace the n formals
+ *  POP m        -- m is the number of local variables; pop them
+ *  GOTO &LT;name-of-function&GT;
  *  </pre>
 */
-    public Object visitReturnTree(AST t) {
+    public Void visitReturnTree(AST t, Void context) {
         //System.out.println("visitReturnTree");
-        t.getKid(1).accept(this);
         AST fct = t.getDecoration();
-        storeop(new LabelOpcode(Codes.ByteCodes.RETURN,fct.getLabel()));
+        if (isSelfCall(t.getKid(1), fct)) {
+            genTailCall(t.getKid(1), fct);
+            return null;
+        }
+        visit(t.getKid(1), context);
+        storeop(Codes.ByteCodes.RETURN,fct.getLabel());
         return null;
     }
 
+/**
+ *  @return true if t is a call of the function fct
+*/
+    boolean isSelfCall(AST t, AST fct) {
+        return t.getClass() == CallTree.class
+            && ((IdTree)t.getKid(1)).getDecoration() == fct;
+    }
+
+/**
+ *  generate codes for the call t of the function fct in tail position;
+ *  the frame stays the same size, so deep recursion runs in constant
+ *  stack space
+*/
+    void genTailCall(AST t, AST fct) {
+        AST formals = fct.getKid(3);
+        for (int kid = 2; kid <= t.kidCount(); kid++) {
+            visit(t.getKid(kid), null);
+        }
+        for (int offset = formals.kidCount() - 1; offset >= 0; offset--) {
+            String formal = formals.getKid(offset + 1).getLabel();
+            storeop(Codes.ByteCodes.STORE,offset,formal);
+        }
+        int locals = frameSize() - formals.kidCount();
+        if (locals > 0) {
+            storeop(Codes.ByteCodes.POP,locals);
+        }
+        storeop(Codes.ByteCodes.GOTO,fct.getLabel());
+        // the codes that follow are reached with the locals in place
+        changeFrame(locals);
+    }
+
 /** <pre>
  *  Generate codes for the Assign tree:<br><br>
  *
@@ -407,13 +500,13 @@ public class Codegen extends ASTVisitor {
  *  STORE <i>offset-of-variable name-of-variable</i>
  *  </pre>
 */
-    public Object visitAssignTree(AST t) {
+    public Void visitAssignTree(AST t, Void context) {
         //System.out.println("visitAssignTree");
         IdTree id = (IdTree)t.getKid(1);
         String vname = id.getSymbol().toString();
         int addr = ((IdTree)(id.getDecoration().getKid(2))).getFrameOffset();
-        t.getKid(2).accept(this);
-        storeop(new VarOpcode(Codes.ByteCodes.STORE,addr,vname));
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.STORE,addr,vname);
         return null;
     }
 
@@ -422,11 +515,9 @@ public class Codegen extends ASTVisitor {
  *  LIT <i>n</i>  n is the value 
  *  </pre>
 */
-    public Object visitIntTree(AST t) {
+    public Void visitIntTree(AST t, Void context) {
         //System.out.println("visitIntTree");
-        int num = Integer.parseInt(
-                           ((IntTree)t).getSymbol().toString());
-        storeop(new NumOpcode(Codes.ByteCodes.LIT,num));
+        storeop(Codes.ByteCodes.LIT,((IntTree)t).getValue());
         return null;
     }
 
@@ -435,12 +526,12 @@ public class Codegen extends ASTVisitor {
  *  LOAD <i>offset</i>  -- load variable using the offset recorded in the AST
  *  </pre>
 */
-    public Object visitIdTree(AST t) {
+    public Void visitIdTree(AST t, Void context) {
         //System.out.println("visitIdTree");
         AST decl = t.getDecoration();
         int addr = ((IdTree)(decl.getKid(2))).getFrameOffset();
         String vname = ((IdTree)t).getSymbol().toString();
-        storeop(new VarOpcode(Codes.ByteCodes.LOAD,addr,vname));
+        storeop(Codes.ByteCodes.LOAD,addr,vname);
         return null;
     }
 
@@ -452,12 +543,12 @@ public class Codegen extends ASTVisitor {
  *  BOP op    -- op is the indicated relational op
  *  </pre>
 */
-    public Object visitRelOpTree(AST t) {
+    public Void visitRelOpTree(AST t, Void context) {
         //System.out.println("visitRelOpTree");
         String op = ((RelOpTree)t).getSymbol().toString();
-        t.getKid(1).accept(this);
-        t.getKid(2).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.BOP,op));
+        visit(t.getKid(1), context);
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.BOP,op);
         return null;
     }
 
@@ -469,12 +560,12 @@ public class Codegen extends ASTVisitor {
  *  BOP op    -- op is the indicated adding op
  *  </pre>
 */
-    public Object visitAddOpTree(AST t) {
+    public Void visitAddOpTree(AST t, Void context) {
         //System.out.println("visitAddOpTree");
         String op = ((AddOpTree)t).getSymbol().toString();
-        t.getKid(1).accept(this);
-        t.getKid(2).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.BOP,op));
+        visit(t.getKid(1), context);
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.BOP,op);
         return null;
     }
 
@@ -486,61 +577,55 @@ public class Codegen extends ASTVisitor {
  *  BOP op    -- op is the indicated multiplying op
  *  </pre>
 */
-    public Object visitMultOpTree(AST t) {
+    public Void visitMultOpTree(AST t, Void context) {
         //System.out.println("visitMultOpTree");
         String op = ((MultOpTree)t).getSymbol().toString();
-        t.getKid(1).accept(this);
-        t.getKid(2).accept(this);
-        storeop(new LabelOpcode(Codes.ByteCodes.BOP,op));
+        visit(t.getKid(1), context);
+        visit(t.getKid(2), context);
+        storeop(Codes.ByteCodes.BOP,op);
         return null;
     }
 
 @Override
-public Object visitUtfStringLitTree(AST t) {
+public Void visitUtfStringLitTree(AST t, Void context) {
     String utfString = ((UtfStringLitTree)t).getSymbol().toString();
-        storeop(new LabelOpcode(Codes.ByteCodes.LIT,utfString));
+        storeop(Codes.ByteCodes.LIT,utfString);
     return null;
 }
 
 @Override
-public Object visitTimeStampLitTree(AST t) {
+public Void visitTimeStampLitTree(AST t, Void context) {
     String timeStamp = ((TimeStampLitTree)t).getSymbol().toString();
-        storeop(new LabelOpcode(Codes.ByteCodes.LIT,timeStamp));
-    return null;
-}
-
-@Override
-public Object visitSwitchBlockTree(AST t) {
-    // TODO Auto-generated method stub
+        storeop(Codes.ByteCodes.LIT,timeStamp);
     return null;
 }
 
 @Override
-public Object visitSwitchTree(AST t) {
+public Void visitSwitchTree(AST t, Void context) {
     // TODO Auto-generated method stub
     return null;
 }
 
 @Override
-public Object visitCaseBlockTree(AST t) {
+public Void visitCaseBlockTree(AST t, Void context) {
     // TODO Auto-generated method stub
     return null;
 }
 
 @Override
-public Object visitCaseStatementTree(AST t) {
+public Void visitCaseStatementTree(AST t, Void context) {
     // TODO Auto-generated method stub
     return null;
 }
 
 @Override
-public Object visitCaseListTree(AST t) {
+public Void visitCaseListTree(AST t, Void context) {
     // TODO Auto-generated method stub
     return null;
 }
 
 @Override
-public Object visitDefaultStatementTree(AST t) {
+public Void visitDefaultStatementTree(AST t, Void context) {
     // TODO Auto-generated method stub
     return null;
 }
@@ -0,0 +1,270 @@
+package codegen;
+
+import java.util.*;
+import ast.*;
+import constrain.Prelude;
+import diagnostics.Diagnostics;
+import lexer.Lexer;
+import visitor.*;
+
+/**
+ *  ConstantFolder rewrites the decorated AST before Codegen visits it:
+ *  <ul><li>an int or boolean expression whose operands are constants is
+ *  replaced by an IntTree holding its value; booleans are 1 (true) and
+ *  0 (false) as in the generated code
+ *  <li>a use of a variable whose value is known is replaced by that value;
+ *  a variable is known from its declaration (it starts at 0) or from an
+ *  assignment of a constant until it may be changed
+ *  <li>an if with a constant condition is replaced by the block that
+ *  runs; a while whose condition is false is removed and one whose
+ *  condition is true is left for Codegen to generate without a test</ul>
+ *  Values are only carried along straight line code: an if keeps the
+ *  values both branches agree on, a while forgets every variable assigned
+ *  in it and a call of a function (other than read or write) forgets
+ *  everything. Division by a constant 0 is left for run time<br>
+ *  The statement visitors return the tree that stands in place of the
+ *  statement, null if it is removed; the expression visitors return the
+ *  Integer value of the expression, null if it isn't constant
+*/
+public class ConstantFolder extends ASTVisitor {
+
+    private AST t;
+    private Lexer lex;    // makes the symbols of the folded literals
+    private NodeIds ids;  // numbers the folded literals
+    // the values of the known variables, keyed by their declaration
+    private Map<AST, Integer> known = new HashMap<AST, Integer>();
+    private int folded = 0, propagated = 0, branches = 0;
+
+/**
+ *  @param t is the decorated AST to rewrite
+ *  @param lex is the lexer that scanned the program
+ *  @param ids numbered the nodes of t
+*/
+    public ConstantFolder(AST t, Lexer lex, NodeIds ids) {
+        this.t = t;
+        this.lex = lex;
+        this.ids = ids;
+    }
+
+    public void execute() {
+        t.accept(this);
+    }
+
+/**
+ *  visit kid of parent and replace it with a literal if it's constant
+ *  @return the value of the kid; null if it isn't constant
+*/
+    Integer fold(AST parent, int kid) {
+        AST tree = parent.getKid(kid);
+        Integer value = (Integer)tree.accept(this);
+        if (value != null && tree.getClass() != IntTree.class) {
+            if (tree.getClass() == IdTree.class) {
+                propagated++;
+            } else {
+                folded++;
+            }
+            AST literal = ids.number(
+                new IntTree(lex.newNumberToken(value.toString(), -1, -1), value));
+            // a variable is decorated with its declaration, an expression
+            // with its type
+            literal.setDecoration(tree.getClass() == IdTree.class
+                                  ? tree.getDecoration().getKid(2).getDecoration()
+                                  : tree.getDecoration());
+            parent.getKids().set(kid - 1, literal);
+        }
+        return value;
+    }
+
+    public Object visitProgramTree(AST t) {
+        t.getKid(1).accept(this);
+        return t;
+    }
+
+    public Object visitBlockTree(AST t) {
+        ArrayList<AST> kids = t.getKids();
+        for (int i = 0; i < kids.size(); ) {
+            AST replacement = (AST)kids.get(i).accept(this);
+            if (replacement == null) {
+                kids.remove(i);
+            } else {
+                kids.set(i++, replacement);
+            }
+        }
+        return t;
+    }
+
+/**
+ *  the body of a function starts with no known values; it may be called
+ *  from anywhere
+*/
+    public Object visitFunctionDeclTree(AST t) {
+        Map<AST, Integer> outer = known;
+        known = new HashMap<AST, Integer>();
+        t.getKid(4).accept(this);
+        known = outer;
+        return t;
+    }
+
+    public Object visitCallTree(AST t) {
+        for (int kid = 2; kid <= t.kidCount(); kid++) {
+            fold(t, kid);
+        }
+        AST fct = t.getKid(1).getDecoration();
+        if (fct != Prelude.readTree && fct != Prelude.writeTree) {
+            known.clear();
+        }
+        return null;
+    }
+
+    public Object visitDeclTree(AST t) {
+        // Codegen gives every variable the initial value 0
+        AST type = t.getKid(2).getDecoration();
+        if (type == Prelude.intTree || type == Prelude.boolTree) {
+            known.put(t, 0);
+        }
+        return t;
+    }
+
+    public Object visitIfTree(AST t) {
+        Integer condition = fold(t, 1);
+        if (condition != null) {
+            branches++;
+            AST taken = condition != 0 ? t.getKid(2) : t.getKid(3);
+            if (taken != null) {
+                taken.accept(this);
+            }
+            return taken;
+        }
+        Map<AST, Integer> before = new HashMap<AST, Integer>(known);
+        t.getKid(2).accept(this);
+        Map<AST, Integer> afterThen = known;
+        known = before;
+        if (t.getKid(3) != null) {
+            t.getKid(3).accept(this);
+        }
+        known.entrySet().retainAll(afterThen.entrySet());
+        return t;
+    }
+
+    public Object visitWhileTree(AST t) {
+        forgetAssigned(t);
+        Integer condition = fold(t, 1);
+        if (condition != null && condition == 0) {
+            branches++;
+            return null;
+        }
+        if (condition != null) {
+            branches++;
+        }
+        Map<AST, Integer> before = new HashMap<AST, Integer>(known);
+        t.getKid(2).accept(this);
+        known = before;
+        return t;
+    }
+
+/**
+ *  forget the value of every variable that may be assigned in t
+*/
+    void forgetAssigned(AST t) {
+        if (t.getClass() == AssignTree.class) {
+            known.remove(t.getKid(1).getDecoration());
+        } else if (t.getClass() == CallTree.class) {
+            AST fct = t.getKid(1).getDecoration();
+            if (fct != Prelude.readTree && fct != Prelude.writeTree) {
+                known.clear();
+            }
+        }
+        for (AST kid : t.getKids()) {
+            forgetAssigned(kid);
+        }
+    }
+
+    public Object visitReturnTree(AST t) {
+        fold(t, 1);
+        return t;
+    }
+
+    public Object visitAssignTree(AST t) {
+        Integer value = fold(t, 2);
+        AST decl = t.getKid(1).getDecoration();
+        if (value != null) {
+            known.put(decl, value);
+        } else {
+            known.remove(decl);
+        }
+        return t;
+    }
+
+    public Object visitIntTree(AST t) {
+        return ((IntTree)t).getValue();
+    }
+
+    public Object visitIdTree(AST t) {
+        return known.get(t.getDecoration());
+    }
+
+    public Object visitRelOpTree(AST t) {
+        return operate(t, ((RelOpTree)t).getSymbol().toString());
+    }
+
+    public Object visitAddOpTree(AST t) {
+        return operate(t, ((AddOpTree)t).getSymbol().toString());
+    }
+
+    public Object visitMultOpTree(AST t) {
+        return operate(t, ((MultOpTree)t).getSymbol().toString());
+    }
+
+/**
+ *  fold the operands of t
+ *  @return the value of left op right; null unless both are constant
+*/
+    Integer operate(AST t, String op) {
+        Integer left = fold(t, 1), right = fold(t, 2);
+        if (left == null || right == null) {
+            return null;
+        }
+        int l = left, r = right;
+        switch (op) {
+            case "+": return l + r;
+            case "-": return l - r;
+            case "*": return l * r;
+            case "/": return r == 0 ? null : l / r;
+            case "==": return l == r ? 1 : 0;
+            case "!=": return l != r ? 1 : 0;
+            case "<": return l < r ? 1 : 0;
+            case "<=": return l <= r ? 1 : 0;
+            case ">": return l > r ? 1 : 0;
+            case ">=": return l >= r ? 1 : 0;
+            case "&": return (l != 0 && r != 0) ? 1 : 0;
+            case "|": return (l != 0 || r != 0) ? 1 : 0;
+            default: return null;
+        }
+    }
+
+    public Object visitUtfStringLitTree(AST t) {return null;}
+    public Object visitTimeStampLitTree(AST t) {return null;}
+    public Object visitIntTypeTree(AST t) {return null;}
+    public Object visitBoolTypeTree(AST t) {return null;}
+    public Object visitFormalsTree(AST t) {return null;}
+    public Object visitActualArgsTree(AST t) {return null;}
+    public Object visitUstringTypeTree(AST t) {return null;}
+    public Object visitTimeStampTypeTree(AST t) {return null;}
+
+    // Codegen generates nothing for switch statements
+    public Object visitSwitchBlockTree(AST t) {return t;}
+    public Object visitSwitchTree(AST t) {return t;}
+    public Object visitCaseBlockTree(AST t) {return t;}
+    public Object visitCaseStatementTree(AST t) {return t;}
+    public Object visitCaseListTree(AST t) {return t;}
+    public Object visitDefaultStatementTree(AST t) {return t;}
+
+/**
+ *  print how many trees were rewritten
+*/
+    public void report(Diagnostics diagnostics) {
+        diagnostics.trace(String.format("%-12s %d", "folded", folded));
+        diagnostics.trace(String.format("%-12s %d", "propagated", propagated));
+        diagnostics.trace(String.format("%-12s %d", "branches", branches));
+    }
+}
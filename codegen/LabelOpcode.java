@@ -15,6 +15,10 @@ public class LabelOpcode extends Code {
         super(code);
         this.label = label;
     }
+
+    public String getLabel() {
+        return label;
+    }
     
     public void print() {
         System.out.println(toString());
@@ -0,0 +1,175 @@
+package codegen;
+
+import java.util.*;
+
+/**
+ *  LinkedProgram is the executable form of a Program, built by
+ *  Program.link(): every LABEL has been given the index of the
+ *  instruction that follows it and is then dropped, and the branches
+ *  carry those indexes instead of label strings<br>
+ *  Instruction i is opcode(i) - the ordinal of its Codes.ByteCodes -
+ *  with operand(i):
+ *  <ul><li>GOTO, FALSEBRANCH, CALL - the index of the target instruction
+ *  <li>RETURN - the index of the first instruction of its function; -1
+ *  for the intrinsic functions, whose RETURN names no function
+ *  <li>LIT, LOAD, STORE, POP, ARGS - their number (0 for a string literal)
+ *  <li>the others - 0</ul>
+ *  name(i) keeps the string of the instruction: the label of a branch,
+ *  the variable of LOAD/STORE, the operator of BOP or the literal text
+ *  of a string LIT; it's null otherwise. The arrays are meant to be
+ *  indexed directly by an interpreter and must not be changed
+*/
+public class LinkedProgram {
+    private static final Codes.ByteCodes[] BYTECODES = Codes.ByteCodes.values();
+
+    private final int[] opcodes;
+    private final int[] operands;
+    private final String[] names;
+    private final Map<String, Integer> labels;
+    // the instructions that are string LITs
+    private final BitSet stringLiterals = new BitSet();
+
+/**
+ *  @param codes are the bytecodes of the program in order
+ *  @exception IllegalStateException if a branch names an undefined label
+*/
+    LinkedProgram(List<Code> codes) {
+        // first pass: give each label the index of the instruction after it
+        Map<String, Integer> labels = new HashMap<String, Integer>();
+        int size = 0;
+        for (Code code : codes) {
+            if (code.getBytecode() == Codes.ByteCodes.LABEL) {
+                labels.put(((LabelOpcode)code).getLabel(), size);
+            } else {
+                size++;
+            }
+        }
+        this.labels = Collections.unmodifiableMap(labels);
+        opcodes = new int[size];
+        operands = new int[size];
+        names = new String[size];
+        // second pass: resolve the operands
+        int i = 0;
+        for (Code code : codes) {
+            if (code.getBytecode() == Codes.ByteCodes.LABEL) {
+                continue;
+            }
+            opcodes[i] = code.getBytecode().ordinal();
+            if (code instanceof LabelOpcode) {
+                names[i] = ((LabelOpcode)code).getLabel();
+                switch (code.getBytecode()) {
+                    case GOTO: case FALSEBRANCH: case CALL: case RETURN:
+                        operands[i] = target(names[i]);
+                        break;
+                    case LIT:
+                        stringLiterals.set(i);
+                        break;
+                    default:  // BOP keeps only its name
+                        break;
+                }
+            } else if (code instanceof VarOpcode) {
+                operands[i] = ((VarOpcode)code).getLocation();
+                names[i] = ((VarOpcode)code).getVarname();
+            } else if (code instanceof NumOpcode) {
+                operands[i] = ((NumOpcode)code).getNum();
+            } else if (code.getBytecode() == Codes.ByteCodes.RETURN) {
+                operands[i] = -1;
+            }
+            i++;
+        }
+    }
+
+    private int target(String label) {
+        Integer target = labels.get(label);
+        if (target == null) {
+            throw new IllegalStateException("undefined label " + label);
+        }
+        return target;
+    }
+
+/**
+ *  @return the number of instructions; LABELs are not counted
+*/
+    public int size() {
+        return opcodes.length;
+    }
+
+    public int opcode(int i) {
+        return opcodes[i];
+    }
+
+    public Codes.ByteCodes bytecode(int i) {
+        return BYTECODES[opcodes[i]];
+    }
+
+    public int operand(int i) {
+        return operands[i];
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+/**
+ *  @return the opcode of every instruction, indexed by instruction
+*/
+    public int[] getOpcodes() {
+        return opcodes;
+    }
+
+/**
+ *  @return the operand of every instruction, indexed by instruction
+*/
+    public int[] getOperands() {
+        return operands;
+    }
+
+/**
+ *  @return the name of every instruction, indexed by instruction
+*/
+    public String[] getNames() {
+        return names;
+    }
+
+/**
+ *  @return the instruction index of every label
+*/
+    public Map<String, Integer> getLabels() {
+        return labels;
+    }
+
+/**
+ *  @return instruction i as it would be printed to a .cod file, with
+ *  the target index in front of the label of a branch
+*/
+    public String toString(int i) {
+        String text = bytecode(i).toString();
+        switch (bytecode(i)) {
+            case GOTO: case FALSEBRANCH: case CALL:
+                return text + " " + operands[i] + " " + names[i];
+            case RETURN:
+                return names[i] == null ? text : text + " " + operands[i] + " " + names[i];
+            case LOAD: case STORE:
+                return text + " " + operands[i] + " " + names[i];
+            case LIT:
+                if (stringLiterals.get(i)) {
+                    return text + " " + names[i];
+                }
+                return names[i] == null ? text + " " + operands[i]
+                                        : text + " " + operands[i] + " " + names[i];
+            case POP: case ARGS:
+                return text + " " + operands[i];
+            case BOP:
+                return text + " " + names[i];
+            default:
+                return text;
+        }
+    }
+
+/**
+ *  @return true if instruction i is a LIT of a utf16String or timestamp
+*/
+    public boolean isStringLiteral(int i) {
+        return stringLiterals.get(i);
+    }
+}
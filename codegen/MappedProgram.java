@@ -0,0 +1,209 @@
+package codegen;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ *  MappedProgram reads a file written in BinaryFormat by memory mapping
+ *  it; opening the file reads the header and checks the strings and codes
+ *  fit in it, noting their offsets, but decodes none of them. A string is
+ *  decoded the first time a code refers to it and a code when it's asked
+ *  for<br>
+ *  A MappedProgram is not safe for use by several threads<br>
+ *  usage: java codegen.MappedProgram &LT;file.codb&GT; - prints the codes
+ *  as they appear in a .cod file
+*/
+public class MappedProgram {
+    private final ByteBuffer buffer;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final int size;
+    private final int codesStart;
+    // the offset of each code
+    private final int[] codeOffsets;
+    // where the next varint is read from
+    private int position;
+
+/**
+ *  @param file was written by Program.writeBinary
+ *  @exception IOException is thrown if file can't be read, isn't in
+ *  BinaryFormat or is truncated
+*/
+    public static MappedProgram open(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            return new MappedProgram(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    MappedProgram(ByteBuffer buffer, String name) throws IOException {
+        this.buffer = buffer;
+        try {
+            for (int i = 0; i < BinaryFormat.MAGIC.length; i++) {
+                if (buffer.get(i) != BinaryFormat.MAGIC[i]) {
+                    throw new IOException(name + " is not a binary .cod file");
+                }
+            }
+            if (buffer.get(BinaryFormat.MAGIC.length) != BinaryFormat.VERSION) {
+                throw new IOException(name + " has unknown version "
+                    + buffer.get(BinaryFormat.MAGIC.length));
+            }
+            position = BinaryFormat.MAGIC.length + 1;
+            stringOffsets = new int[count(readVarint(), name)];
+            strings = new String[stringOffsets.length];
+            for (int s = 0; s < stringOffsets.length; s++) {
+                stringOffsets[s] = position;
+                int length = readVarint();
+                if (length < 0 || length > buffer.limit() - position) {
+                    throw new IOException(name + " is truncated");
+                }
+                position += length;
+            }
+            size = count(readVarint(), name);
+            codesStart = position;
+            codeOffsets = indexCodes(name);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(name + " is truncated", e);
+        }
+    }
+
+/**
+ *  @return the number of codes, LABELs included
+*/
+    public int size() {
+        return size;
+    }
+
+/**
+ *  @return code i
+*/
+    public Code code(int i) {
+        position = codeOffsets[i];
+        return readCode();
+    }
+
+/**
+ *  decode every code into a new Program
+*/
+    public Program toProgram() {
+        Program program = new Program();
+        position = codesStart;
+        for (int i = 0; i < size; i++) {
+            program.storeop(readCode());
+        }
+        return program;
+    }
+
+/**
+ *  @return n if there are at least n bytes left, as each string and each
+ *  code takes one byte or more
+*/
+    private int count(int n, String name) throws IOException {
+        if (n < 0 || n > buffer.limit() - position) {
+            throw new IOException(name + " is truncated");
+        }
+        return n;
+    }
+
+/**
+ *  @return the offset of each code, checking every opcode is known and
+ *  every string a code refers to is there
+*/
+    private int[] indexCodes(String name) throws IOException {
+        int[] offsets = new int[size];
+        position = codesStart;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = position;
+            int opcode = buffer.get(position++) & 0xff;
+            if ((opcode & 0xf) >= BYTECODES.length || opcode >>> 4 > BinaryFormat.VAR) {
+                throw new IOException(name + " has unknown opcode " + opcode
+                    + " at offset " + offsets[i]);
+            }
+            switch (opcode >>> 4) {
+                case BinaryFormat.LABEL:
+                    checkString(readVarint(), name);
+                    break;
+                case BinaryFormat.NUM:
+                    readVarint();
+                    break;
+                case BinaryFormat.VAR:
+                    readVarint();
+                    checkString(readVarint(), name);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return offsets;
+    }
+
+    private void checkString(int s, String name) throws IOException {
+        if (s < 0 || s >= strings.length) {
+            throw new IOException(name + " refers to missing string " + s);
+        }
+    }
+
+    private static final Codes.ByteCodes[] BYTECODES = Codes.ByteCodes.values();
+
+    private Code readCode() {
+        int opcode = buffer.get(position++);
+        Codes.ByteCodes bytecode = BYTECODES[opcode & 0xf];
+        switch (opcode >>> 4) {
+            case BinaryFormat.LABEL:
+                return new LabelOpcode(bytecode, string(readVarint()));
+            case BinaryFormat.NUM:
+                return new NumOpcode(bytecode, BinaryFormat.unzigzag(readVarint()));
+            case BinaryFormat.VAR: {
+                int location = BinaryFormat.unzigzag(readVarint());
+                return new VarOpcode(bytecode, location, string(readVarint()));
+            }
+            default:
+                return new Code(bytecode);
+        }
+    }
+
+    private String string(int s) {
+        if (strings[s] == null) {
+            int at = position;
+            position = stringOffsets[s];
+            int length = readVarint();
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            strings[s] = new String(bytes, StandardCharsets.UTF_8);
+            position = at;
+        }
+        return strings[s];
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get(position++);
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 1) {
+            System.out.println("***Incorrect usage, try: java codegen.MappedProgram <file.codb>");
+            System.exit(1);
+        }
+        try {
+            MappedProgram program = open(args[0]);
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+            for (int i = 0; i < program.size(); i++) {
+                out.println(program.code(i));
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
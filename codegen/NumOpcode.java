@@ -11,7 +11,7 @@ public class NumOpcode extends Code {
         num = n;
     }
     
-    int getNum() {
+    public int getNum() {
         return num;
     }
     
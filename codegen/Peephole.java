@@ -0,0 +1,259 @@
+package codegen;
+
+import java.util.*;
+import diagnostics.Diagnostics;
+
+/**
+ *  Peephole rewrites the bytecodes of a Program after Codegen.execute()
+ *  and before they are printed; each of its rules can be enabled on its
+ *  own:
+ *  <ul><li>NOP_POP - remove POP 0, which closes every block that
+ *  declared no variables
+ *  <li>MERGE_POP - replace POP m followed by POP n with POP m+n
+ *  <li>JUMP_CHAIN - point a GOTO or FALSEBRANCH whose target is a GOTO
+ *  straight at the end of the chain, and remove a GOTO to the label
+ *  that follows it
+ *  <li>UNREACHABLE - remove the instructions after a RETURN, GOTO or HALT
+ *  up to the next label some branch or call refers to</ul>
+ *  The rules are applied until none of them changes the program. LABELs
+ *  are never removed, so a labelled RETURN always finds its function.
+ *  The number of instructions each rule removed is kept for report()
+*/
+public class Peephole {
+
+    public static enum Rule { NOP_POP, MERGE_POP, JUMP_CHAIN, UNREACHABLE }
+
+    private final EnumSet<Rule> rules;
+    private final int[] removed = new int[Rule.values().length];
+    private int retargeted = 0;
+    private int before = 0, after = 0;
+
+/**
+ *  @param rules are the rules to apply
+*/
+    public Peephole(Set<Rule> rules) {
+        this.rules = rules.isEmpty() ? EnumSet.noneOf(Rule.class) : EnumSet.copyOf(rules);
+    }
+
+/**
+ *  @param names is all or a comma separated list of rule names (any case)
+ *  @return the named rules
+ *  @exception IllegalArgumentException is thrown for an unknown rule name
+*/
+    public static EnumSet<Rule> rulesForNames(String names) {
+        if (names.equalsIgnoreCase("all")) {
+            return EnumSet.allOf(Rule.class);
+        }
+        EnumSet<Rule> rules = EnumSet.noneOf(Rule.class);
+        for (String name : names.split(",")) {
+            rules.add(Rule.valueOf(name.trim().toUpperCase()));
+        }
+        return rules;
+    }
+
+/**
+ *  rewrite the bytecodes of program in place
+*/
+    public void optimize(Program program) {
+        List<Code> codes = new ArrayList<Code>(program.getCodes());
+        before += instructions(codes);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            if (rules.contains(Rule.NOP_POP)) {
+                changed |= removeNopPops(codes);
+            }
+            if (rules.contains(Rule.MERGE_POP)) {
+                changed |= mergePops(codes);
+            }
+            if (rules.contains(Rule.JUMP_CHAIN)) {
+                changed |= foldJumps(codes);
+            }
+            if (rules.contains(Rule.UNREACHABLE)) {
+                changed |= removeUnreachable(codes);
+            }
+        }
+        after += instructions(codes);
+        program.replaceCodes(codes);
+    }
+
+    boolean removeNopPops(List<Code> codes) {
+        int size = codes.size();
+        codes.removeIf(code -> code.getBytecode() == Codes.ByteCodes.POP
+                               && ((NumOpcode)code).getNum() == 0);
+        removed[Rule.NOP_POP.ordinal()] += size - codes.size();
+        return codes.size() != size;
+    }
+
+    boolean mergePops(List<Code> codes) {
+        List<Code> merged = new ArrayList<Code>(codes.size());
+        for (Code code : codes) {
+            Code last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (code.getBytecode() == Codes.ByteCodes.POP && last != null
+                    && last.getBytecode() == Codes.ByteCodes.POP) {
+                merged.set(merged.size() - 1, new NumOpcode(Codes.ByteCodes.POP,
+                    ((NumOpcode)last).getNum() + ((NumOpcode)code).getNum()));
+            } else {
+                merged.add(code);
+            }
+        }
+        return replace(codes, merged, Rule.MERGE_POP);
+    }
+
+    boolean foldJumps(List<Code> codes) {
+        // the index in codes of each LABEL
+        Map<String, Integer> labels = new HashMap<String, Integer>();
+        for (int i = 0; i < codes.size(); i++) {
+            if (codes.get(i).getBytecode() == Codes.ByteCodes.LABEL) {
+                labels.put(((LabelOpcode)codes.get(i)).getLabel(), i);
+            }
+        }
+        boolean changed = false;
+        List<Code> folded = new ArrayList<Code>(codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            Code code = codes.get(i);
+            Codes.ByteCodes bytecode = code.getBytecode();
+            if (bytecode != Codes.ByteCodes.GOTO && bytecode != Codes.ByteCodes.FALSEBRANCH) {
+                folded.add(code);
+                continue;
+            }
+            String label = ((LabelOpcode)code).getLabel();
+            String target = chainEnd(codes, labels, label);
+            if (!target.equals(label)) {
+                code = new LabelOpcode(bytecode, target);
+                retargeted++;
+                changed = true;
+            }
+            Integer at = labels.get(target);
+            if (bytecode == Codes.ByteCodes.GOTO && at != null && at > i
+                    && nextInstruction(codes, i + 1) > at) {
+                // only labels lie between the GOTO and its target
+                removed[Rule.JUMP_CHAIN.ordinal()]++;
+                changed = true;
+                continue;
+            }
+            folded.add(code);
+        }
+        if (changed) {
+            codes.clear();
+            codes.addAll(folded);
+        }
+        return changed;
+    }
+
+/**
+ *  @return the label reached by following GOTOs from label
+*/
+    String chainEnd(List<Code> codes, Map<String, Integer> labels, String label) {
+        Set<String> seen = new HashSet<String>();
+        while (seen.add(label) && labels.containsKey(label)) {
+            int next = nextInstruction(codes, labels.get(label));
+            if (next == codes.size() || codes.get(next).getBytecode() != Codes.ByteCodes.GOTO) {
+                break;
+            }
+            String target = ((LabelOpcode)codes.get(next)).getLabel();
+            if (seen.contains(target)) {
+                // a loop of GOTOs; leave it as it is
+                break;
+            }
+            label = target;
+        }
+        return label;
+    }
+
+    boolean removeUnreachable(List<Code> codes) {
+        // only a label that is branched to or called starts reachable code
+        Set<String> targets = new HashSet<String>();
+        for (Code code : codes) {
+            switch (code.getBytecode()) {
+                case GOTO: case FALSEBRANCH: case CALL:
+                    targets.add(((LabelOpcode)code).getLabel());
+                    break;
+                default:
+                    break;
+            }
+        }
+        List<Code> reachable = new ArrayList<Code>(codes.size());
+        boolean live = true;
+        for (Code code : codes) {
+            switch (code.getBytecode()) {
+                case LABEL:
+                    live |= targets.contains(((LabelOpcode)code).getLabel());
+                    reachable.add(code);
+                    break;
+                case RETURN: case GOTO: case HALT:
+                    if (live) {
+                        reachable.add(code);
+                    }
+                    live = false;
+                    break;
+                default:
+                    if (live) {
+                        reachable.add(code);
+                    }
+            }
+        }
+        return replace(codes, reachable, Rule.UNREACHABLE);
+    }
+
+/**
+ *  @return the index of the first instruction at or after i that isn't
+ *  a LABEL; codes.size() if there is none
+*/
+    static int nextInstruction(List<Code> codes, int i) {
+        while (i < codes.size() && codes.get(i).getBytecode() == Codes.ByteCodes.LABEL) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean replace(List<Code> codes, List<Code> rewritten, Rule rule) {
+        int count = codes.size() - rewritten.size();
+        if (count == 0) {
+            return false;
+        }
+        removed[rule.ordinal()] += count;
+        codes.clear();
+        codes.addAll(rewritten);
+        return true;
+    }
+
+    static int instructions(List<Code> codes) {
+        int count = 0;
+        for (Code code : codes) {
+            if (code.getBytecode() != Codes.ByteCodes.LABEL) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+/**
+ *  @return the number of instructions rule has removed
+*/
+    public int getRemoved(Rule rule) {
+        return removed[rule.ordinal()];
+    }
+
+/**
+ *  @return the number of branches JUMP_CHAIN pointed at a later GOTO's target
+*/
+    public int getRetargeted() {
+        return retargeted;
+    }
+
+/**
+ *  print how many instructions each enabled rule removed
+*/
+    public void report(Diagnostics diagnostics) {
+        for (Rule rule : rules) {
+            String line = String.format("%-12s removed %d", rule, getRemoved(rule));
+            if (rule == Rule.JUMP_CHAIN) {
+                line += String.format(", retargeted %d", retargeted);
+            }
+            diagnostics.trace(line);
+        }
+        diagnostics.trace(String.format("%-12s %d of %d instructions removed",
+            "total", before - after, before));
+    }
+}
@@ -2,12 +2,25 @@ package codegen;
 
 import java.util.*;
 import java.io.*;
+import diagnostics.Diagnostics;
 
 /**
  * This class will hold the generated program bytecodes
 */
-public class Program {
+public class Program implements CodeSink {
     private ArrayList<Code> program = new ArrayList<Code>();
+    private Diagnostics diagnostics;
+
+    public Program() {
+        this(Diagnostics.getDefault());
+    }
+
+/**
+ *  @param diagnostics receives the echo of the bytecodes as they are printed
+*/
+    public Program(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
 
 /**
  *  store the new bytecode in the program vector
@@ -17,23 +30,82 @@ public class Program {
         program.add(code);
     }
 
+    public void emit(Codes.ByteCodes bytecode) {
+        storeop(new Code(bytecode));
+    }
+
+    public void emit(Codes.ByteCodes bytecode, String label) {
+        storeop(new LabelOpcode(bytecode, label));
+    }
+
+    public void emit(Codes.ByteCodes bytecode, int num) {
+        storeop(new NumOpcode(bytecode, num));
+    }
+
+    public void emit(Codes.ByteCodes bytecode, int location, String varname) {
+        storeop(new VarOpcode(bytecode, location, varname));
+    }
+
+/**
+ *  resolve the labels of the program; see LinkedProgram
+ *  @return the executable form of the program
+ *  @exception IllegalStateException if a branch names an undefined label
+*/
+    public LinkedProgram link() {
+        return new LinkedProgram(program);
+    }
+
+/**
+ *  replace the bytecodes of the program; used by Peephole
+*/
+    void replaceCodes(List<Code> codes) {
+        program = new ArrayList<Code>(codes);
+    }
+
+/**
+ *  @return the bytecodes in the order they were generated
+*/
+    public List<Code> getCodes() {
+        return Collections.unmodifiableList(program);
+    }
+
 /**
  *  print all of the bytecodes that have been generated
  *  @param outFile a String indicating where to print the bytecodes
+ *  @exception IOException if outFile can't be written
 */
-    public void printCodes(String outFile) {
-        PrintWriter out = null;
-        try {
-             out = new PrintWriter(new FileOutputStream(outFile));
-        } catch (IOException e) {
-            System.out.println(e.toString());
-            System.exit(1);
+    public void printCodes(String outFile) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(outFile))) {
+            printCodes(out);
+            if (out.checkError()) {
+                throw new IOException("could not write " + outFile);
+            }
         }
+    }
 
+/**
+ *  write all of the bytecodes that have been generated in BinaryFormat
+ *  @param outFile a String indicating where to write the bytecodes
+ *  @exception IOException if outFile can't be written
+*/
+    public void writeBinary(String outFile) throws IOException {
+        try (OutputStream out = new FileOutputStream(outFile)) {
+            BinaryFormat.write(program, out);
+        }
+    }
+
+/**
+ *  print all of the bytecodes that have been generated
+ *  @param out receives the bytecodes, one per line
+*/
+    public void printCodes(PrintWriter out) {
+        boolean echo = diagnostics.isEnabled();
         for (Code nextCode : program) {
-           	System.out.println(nextCode.toString());
-            out.println(nextCode.toString());
+            String line = nextCode.toString();
+            if (echo) {
+                diagnostics.trace(line);
+            }
+            out.println(line);
         }
-        out.close();
     }
 }
\ No newline at end of file
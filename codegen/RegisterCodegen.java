@@ -0,0 +1,460 @@
+package codegen;
+
+import java.util.*;
+import ast.*;
+import constrain.Prelude;
+import diagnostics.Diagnostics;
+import visitor.*;
+
+/**
+ *  RegisterCodegen lowers the decorated AST to the three-address code of
+ *  a RegisterProgram; it's the register counterpart of Codegen and reads
+ *  the same decorations<br>
+ *  Every variable gets its own frame slot. An expression is evaluated
+ *  into a temporary unless it's a variable, whose slot is used directly,
+ *  or the root of the right-hand side of an assignment, which is
+ *  evaluated straight into the variable; e.g. a = b + c is one ADD.
+ *  Temporaries live inside one statement, so once a function is lowered
+ *  a linear scan over their live ranges packs them into the slots after
+ *  the variables<br>
+ *  The main program comes first and ends with HALT; the functions follow
+ *  it, so no code branches around a function<br>
+ *  Registers hold ints only, so a program with a utf16String or timestamp
+ *  literal has no register form: the first such literal is reported and
+ *  execute gives back null
+*/
+public class RegisterCodegen extends ASTVisitor {
+
+    // virtual registers from TEMP up are temporaries; below it, slots
+    static final int TEMP = 1 << 24;
+
+/**
+ *  The code of one function while it's lowered; labels are numbers
+ *  resolved when the functions are put together
+*/
+    static class Function {
+        List<int[]> code = new ArrayList<int[]>();
+        // the instruction each label is at
+        Map<Integer, Integer> labels = new HashMap<Integer, Integer>();
+        // the arg registers of each CALL
+        List<int[]> args = new ArrayList<int[]>();
+        int slots = 0;
+        int temps = 0;
+        int frameSize;
+    }
+
+    private AST t;
+    private Diagnostics diagnostics;
+    // the first literal found that has no register form
+    private AST unsupported;
+    private Function function;
+    private List<Function> functions = new ArrayList<Function>();
+    private Deque<AST> pending = new ArrayDeque<AST>();
+    // the slot of each variable, keyed by its declaration
+    private Map<AST, Integer> slots = new HashMap<AST, Integer>();
+    private Map<AST, Integer> functionLabels = new HashMap<AST, Integer>();
+    private int labelCount = 0;
+    // the register the expression being visited should be evaluated into
+    private int target = -1;
+
+/**
+ *  @param t is the decorated AST
+ *  @param diagnostics receives the literals that have no register form
+*/
+    public RegisterCodegen(AST t, Diagnostics diagnostics) {
+        this.t = t;
+        this.diagnostics = diagnostics;
+    }
+
+/**
+ *  @return the register code; null if the program has no register form
+*/
+    public RegisterProgram execute() {
+        t.accept(this);
+        if (unsupported != null) {
+            return null;
+        }
+        return assemble();
+    }
+
+    int newLabel() {
+        return labelCount++;
+    }
+
+    void label(int label) {
+        function.labels.put(label, function.code.size());
+    }
+
+    int newTemp() {
+        return TEMP + function.temps++;
+    }
+
+    void emit(int op, int a, int b, int c) {
+        function.code.add(new int[] {op, a, b, c});
+    }
+
+    int functionLabel(AST fct) {
+        return functionLabels.computeIfAbsent(fct, f -> newLabel());
+    }
+
+/**
+ *  lower expression t
+ *  @param dst is the register to evaluate t into; -1 for any register
+ *  @return the register holding the value of t
+*/
+    int lower(AST t, int dst) {
+        target = dst;
+        return (Integer)t.accept(this);
+    }
+
+/**
+ *  @return the register the visited expression was asked for; a new
+ *  temporary if it may be evaluated anywhere
+*/
+    int destination() {
+        int dst = target;
+        target = -1;
+        return dst >= 0 ? dst : newTemp();
+    }
+
+    public Object visitProgramTree(AST t) {
+        function = new Function();
+        t.getKid(1).accept(this);
+        emit(RegisterProgram.HALT, 0, 0, 0);
+        finish();
+        while (!pending.isEmpty()) {
+            lowerFunction(pending.remove());
+        }
+        return null;
+    }
+
+    void lowerFunction(AST t) {
+        function = new Function();
+        label(functionLabel(t));
+        for (AST decl : t.getKid(3).getKids()) {
+            slots.put(decl, function.slots++);
+        }
+        t.getKid(4).accept(this);
+        // gratis return in case the function has none
+        int zero = newTemp();
+        emit(RegisterProgram.CONST, zero, 0, 0);
+        emit(RegisterProgram.RETURN, zero, 0, 0);
+        finish();
+    }
+
+    public Object visitBlockTree(AST t) {
+        visitKids(t);
+        return null;
+    }
+
+    public Object visitFunctionDeclTree(AST t) {
+        functionLabel(t);
+        pending.add(t);
+        return null;
+    }
+
+    public Object visitDeclTree(AST t) {
+        int slot = function.slots++;
+        slots.put(t, slot);
+        emit(RegisterProgram.CONST, slot, 0, 0);
+        return null;
+    }
+
+    public Object visitAssignTree(AST t) {
+        int slot = slots.get(t.getKid(1).getDecoration());
+        int value = lower(t.getKid(2), slot);
+        if (value != slot) {
+            emit(RegisterProgram.MOVE, slot, value, 0);
+        }
+        return null;
+    }
+
+    public Object visitIfTree(AST t) {
+        int elseLabel = newLabel(), continueLabel = newLabel();
+        emit(RegisterProgram.JUMPF, lower(t.getKid(1), -1), elseLabel, 0);
+        t.getKid(2).accept(this);
+        emit(RegisterProgram.JUMP, continueLabel, 0, 0);
+        label(elseLabel);
+        if (t.getKid(3) != null) {
+            t.getKid(3).accept(this);
+        }
+        label(continueLabel);
+        return null;
+    }
+
+    public Object visitWhileTree(AST t) {
+        int whileLabel = newLabel(), continueLabel = newLabel();
+        label(whileLabel);
+        AST condition = t.getKid(1);
+        // ConstantFolder may have reduced the condition to true
+        if (!(condition instanceof IntTree) || ((IntTree)condition).getValue() == 0) {
+            emit(RegisterProgram.JUMPF, lower(condition, -1), continueLabel, 0);
+        }
+        t.getKid(2).accept(this);
+        emit(RegisterProgram.JUMP, whileLabel, 0, 0);
+        label(continueLabel);
+        return null;
+    }
+
+    public Object visitReturnTree(AST t) {
+        emit(RegisterProgram.RETURN, lower(t.getKid(1), -1), 0, 0);
+        return null;
+    }
+
+    public Object visitCallTree(AST t) {
+        AST fct = t.getKid(1).getDecoration();
+        int dst = target;
+        target = -1;
+        if (fct == Prelude.readTree) {
+            dst = dst >= 0 ? dst : newTemp();
+            emit(RegisterProgram.READ, dst, 0, 0);
+            return dst;
+        }
+        if (fct == Prelude.writeTree) {
+            // write gives back its arg
+            int value = lower(t.getKid(2), dst);
+            emit(RegisterProgram.WRITE, value, 0, 0);
+            return value;
+        }
+        int[] args = new int[t.kidCount() - 1];
+        for (int kid = 2; kid <= t.kidCount(); kid++) {
+            args[kid - 2] = lower(t.getKid(kid), -1);
+        }
+        dst = dst >= 0 ? dst : newTemp();
+        function.args.add(args);
+        emit(RegisterProgram.CALL, dst, functionLabel(fct), function.args.size() - 1);
+        return dst;
+    }
+
+    public Object visitIntTree(AST t) {
+        int dst = destination();
+        emit(RegisterProgram.CONST, dst, ((IntTree)t).getValue(), 0);
+        return dst;
+    }
+
+    public Object visitIdTree(AST t) {
+        int slot = slots.get(t.getDecoration());
+        if (target < 0 || target == slot) {
+            target = -1;
+            return slot;
+        }
+        int dst = destination();
+        emit(RegisterProgram.MOVE, dst, slot, 0);
+        return dst;
+    }
+
+    public Object visitRelOpTree(AST t) {
+        return operate(t, ((RelOpTree)t).getSymbol().toString());
+    }
+
+    public Object visitAddOpTree(AST t) {
+        return operate(t, ((AddOpTree)t).getSymbol().toString());
+    }
+
+    public Object visitMultOpTree(AST t) {
+        return operate(t, ((MultOpTree)t).getSymbol().toString());
+    }
+
+/**
+ *  lower left op right; a literal right operand becomes the constant of
+ *  the immediate form of op
+*/
+    int operate(AST t, String op) {
+        int dst = target;
+        target = -1;
+        int operator = RegisterProgram.operator(op);
+        int left = lower(t.getKid(1), -1);
+        AST right = t.getKid(2);
+        if (right instanceof IntTree) {
+            dst = dst >= 0 ? dst : newTemp();
+            emit(operator + RegisterProgram.IMMEDIATE, dst, left, ((IntTree)right).getValue());
+        } else {
+            int r = lower(right, -1);
+            dst = dst >= 0 ? dst : newTemp();
+            emit(operator, dst, left, r);
+        }
+        return dst;
+    }
+
+    public Object visitUtfStringLitTree(AST t) {
+        return noRegisterForm(t, "utf16String", ((UtfStringLitTree)t).getSymbol().toString());
+    }
+
+    public Object visitTimeStampLitTree(AST t) {
+        return noRegisterForm(t, "timestamp", ((TimeStampLitTree)t).getSymbol().toString());
+    }
+
+/**
+ *  report the first literal that has no register form; lowering goes on
+ *  with 0 in its place, and execute drops the code
+*/
+    int noRegisterForm(AST t, String type, String literal) {
+        if (unsupported == null) {
+            unsupported = t;
+            diagnostics.error("******** -regs: the " + type + " literal " + literal
+                + " has no register form; no .reg is written");
+        }
+        int dst = destination();
+        emit(RegisterProgram.CONST, dst, 0, 0);
+        return dst;
+    }
+
+    public Object visitIntTypeTree(AST t) {return null;}
+    public Object visitBoolTypeTree(AST t) {return null;}
+    public Object visitFormalsTree(AST t) {return null;}
+    public Object visitActualArgsTree(AST t) {return null;}
+    public Object visitUstringTypeTree(AST t) {return null;}
+    public Object visitTimeStampTypeTree(AST t) {return null;}
+    // Codegen generates nothing for switch statements
+    public Object visitSwitchBlockTree(AST t) {return null;}
+    public Object visitSwitchTree(AST t) {return null;}
+    public Object visitCaseBlockTree(AST t) {return null;}
+    public Object visitCaseStatementTree(AST t) {return null;}
+    public Object visitCaseListTree(AST t) {return null;}
+    public Object visitDefaultStatementTree(AST t) {return null;}
+
+/**
+ *  @return a bit for each of the operands a, b and c (1, 2, 4) of op
+ *  that is a register
+*/
+    static int registerOperands(int op) {
+        if (op < RegisterProgram.IMMEDIATE) {
+            return 7;
+        }
+        switch (op) {
+            case RegisterProgram.MOVE:
+                return 3;
+            case RegisterProgram.CONST: case RegisterProgram.JUMPF:
+            case RegisterProgram.CALL: case RegisterProgram.RETURN:
+            case RegisterProgram.READ: case RegisterProgram.WRITE:
+                return 1;
+            case RegisterProgram.JUMP: case RegisterProgram.HALT:
+                return 0;
+            default:   // the immediate forms
+                return 3;
+        }
+    }
+
+/**
+ *  give the temporaries of the function just lowered their slots by a
+ *  linear scan over their live ranges
+*/
+    void finish() {
+        int temps = function.temps;
+        int[] start = new int[temps], end = new int[temps];
+        Arrays.fill(start, -1);
+        for (int i = 0; i < function.code.size(); i++) {
+            int[] instruction = function.code.get(i);
+            int registers = registerOperands(instruction[0]);
+            for (int operand = 1; operand <= 3; operand++) {
+                if ((registers & (1 << (operand - 1))) != 0) {
+                    live(instruction[operand], i, start, end);
+                }
+            }
+            if (instruction[0] == RegisterProgram.CALL) {
+                for (int arg : function.args.get(instruction[3])) {
+                    live(arg, i, start, end);
+                }
+            }
+        }
+        Integer[] order = new Integer[temps];
+        for (int v = 0; v < temps; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(start[x], start[y]));
+        int[] slot = new int[temps];
+        // the temporaries holding a slot, the one that dies first in front
+        PriorityQueue<Integer> active =
+            new PriorityQueue<Integer>((x, y) -> Integer.compare(end[x], end[y]));
+        PriorityQueue<Integer> free = new PriorityQueue<Integer>();
+        int slots = function.slots;
+        for (int v : order) {
+            if (start[v] < 0) {
+                continue;
+            }
+            // a slot read for the last time by an instruction can be written
+            // by it; every instruction reads its operands before it writes
+            while (!active.isEmpty() && end[active.peek()] <= start[v]) {
+                free.add(slot[active.remove()]);
+            }
+            slot[v] = free.isEmpty() ? slots++ : free.remove();
+            active.add(v);
+        }
+        function.frameSize = slots;
+        for (int[] instruction : function.code) {
+            int registers = registerOperands(instruction[0]);
+            for (int operand = 1; operand <= 3; operand++) {
+                if ((registers & (1 << (operand - 1))) != 0 && instruction[operand] >= TEMP) {
+                    instruction[operand] = slot[instruction[operand] - TEMP];
+                }
+            }
+        }
+        for (int[] args : function.args) {
+            for (int k = 0; k < args.length; k++) {
+                if (args[k] >= TEMP) {
+                    args[k] = slot[args[k] - TEMP];
+                }
+            }
+        }
+        functions.add(function);
+    }
+
+    private static void live(int register, int i, int[] start, int[] end) {
+        if (register >= TEMP) {
+            int v = register - TEMP;
+            if (start[v] < 0) {
+                start[v] = i;
+            }
+            end[v] = i;
+        }
+    }
+
+/**
+ *  put the functions together, resolving labels to instruction indexes
+*/
+    RegisterProgram assemble() {
+        Map<Integer, Integer> labels = new HashMap<Integer, Integer>();
+        int size = 0, callsSize = 0;
+        for (Function f : functions) {
+            for (Map.Entry<Integer, Integer> label : f.labels.entrySet()) {
+                labels.put(label.getKey(), size + label.getValue());
+            }
+            size += f.code.size();
+            for (int[] args : f.args) {
+                callsSize += args.length + 2;
+            }
+        }
+        int[] code = new int[4 * size], calls = new int[callsSize];
+        int i = 0, c = 0;
+        for (Function f : functions) {
+            int[] callIndex = new int[f.args.size()];
+            for (int k = 0; k < f.args.size(); k++) {
+                int[] args = f.args.get(k);
+                callIndex[k] = c;
+                calls[c++] = args.length;
+                calls[c++] = f.frameSize;
+                for (int arg : args) {
+                    calls[c++] = arg;
+                }
+            }
+            for (int[] instruction : f.code) {
+                switch (instruction[0]) {
+                    case RegisterProgram.JUMP:
+                        instruction[1] = labels.get(instruction[1]);
+                        break;
+                    case RegisterProgram.JUMPF:
+                        instruction[2] = labels.get(instruction[2]);
+                        break;
+                    case RegisterProgram.CALL:
+                        instruction[2] = labels.get(instruction[2]);
+                        instruction[3] = callIndex[instruction[3]];
+                        break;
+                    default:
+                        break;
+                }
+                System.arraycopy(instruction, 0, code, 4 * i++, 4);
+            }
+        }
+        return new RegisterProgram(code, calls);
+    }
+}
@@ -0,0 +1,128 @@
+package codegen;
+
+import java.io.*;
+
+/**
+ *  RegisterProgram holds the three-address code built by RegisterCodegen.
+ *  Registers are the slots of the frame of the function that is running,
+ *  numbered from 0: the formals, then the variables, then the slots the
+ *  allocator gave to temporaries. Each instruction is 4 ints in code -
+ *  the opcode and its operands a, b and c:
+ *  <pre>
+ *  ADD a b c ... OR a b c   a = b op c
+ *  ADDI a b n ... ORI a b n a = b op n; the opcode is op + IMMEDIATE
+ *  MOVE a b                 a = b
+ *  CONST a n                a = n
+ *  JUMP l                   branch to instruction l
+ *  JUMPF a l                branch to instruction l if a is 0 (false)
+ *  CALL a l c               call the function at l with the args listed
+ *                           at calls[c]; its value is put in a
+ *  RETURN a                 return the value of a
+ *  READ a                   read an int into a
+ *  WRITE a                  print a
+ *  HALT                     stop
+ *  </pre>
+ *  calls[c] is the number of args n, calls[c+1] the frame size of the
+ *  caller - the callee's frame starts right after it - and calls[c+2] ...
+ *  calls[c+n+1] the registers holding the args; they are copied to the
+ *  first n registers of the callee. Relational ops, AND and OR give 1
+ *  for true and 0 for false as BOP does
+*/
+public class RegisterProgram {
+    public static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3,
+        EQUAL = 4, NOT_EQUAL = 5, LESS = 6, LESS_EQUAL = 7, GREATER = 8,
+        GREATER_EQUAL = 9, AND = 10, OR = 11;
+    // added to an operator for the form whose right operand is a constant
+    public static final int IMMEDIATE = 12;
+    public static final int MOVE = 24, CONST = 25, JUMP = 26, JUMPF = 27,
+        CALL = 28, RETURN = 29, READ = 30, WRITE = 31, HALT = 32;
+
+    static final String[] OPERATORS = {
+        "+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">=", "&", "|"
+    };
+    private static final String[] NAMES = {
+        "ADD", "SUB", "MUL", "DIV", "EQ", "NE", "LT", "LE", "GT", "GE", "AND", "OR"
+    };
+
+    private final int[] code;
+    private final int[] calls;
+
+    RegisterProgram(int[] code, int[] calls) {
+        this.code = code;
+        this.calls = calls;
+    }
+
+/**
+ *  @return the operator number of op; -1 if it isn't a BOP operator
+*/
+    static int operator(String op) {
+        for (int i = 0; i < OPERATORS.length; i++) {
+            if (OPERATORS[i].equals(op)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+/**
+ *  @return the number of instructions
+*/
+    public int size() {
+        return code.length / 4;
+    }
+
+/**
+ *  @return the instructions, 4 ints each; they must not be changed
+*/
+    public int[] getCode() {
+        return code;
+    }
+
+/**
+ *  @return the arg lists of the CALLs; they must not be changed
+*/
+    public int[] getCalls() {
+        return calls;
+    }
+
+    public String toString(int i) {
+        int op = code[4 * i], a = code[4 * i + 1], b = code[4 * i + 2], c = code[4 * i + 3];
+        if (op < IMMEDIATE) {
+            return NAMES[op] + " r" + a + " r" + b + " r" + c;
+        } else if (op < MOVE) {
+            return NAMES[op - IMMEDIATE] + "I r" + a + " r" + b + " " + c;
+        }
+        switch (op) {
+            case MOVE: return "MOVE r" + a + " r" + b;
+            case CONST: return "CONST r" + a + " " + b;
+            case JUMP: return "JUMP " + a;
+            case JUMPF: return "JUMPF r" + a + " " + b;
+            case CALL: {
+                StringBuilder text = new StringBuilder("CALL r" + a + " " + b + " (");
+                for (int k = 0; k < calls[c]; k++) {
+                    text.append(k == 0 ? "r" : " r").append(calls[c + 2 + k]);
+                }
+                return text.append(") frame ").append(calls[c + 1]).toString();
+            }
+            case RETURN: return "RETURN r" + a;
+            case READ: return "READ r" + a;
+            case WRITE: return "WRITE r" + a;
+            default: return "HALT";
+        }
+    }
+
+/**
+ *  print the instructions, one per line after its index
+*/
+    public void printCodes(PrintWriter out) {
+        for (int i = 0; i < size(); i++) {
+            out.printf("%5d  %s%n", i, toString(i));
+        }
+    }
+
+    public void printCodes(String outFile) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(outFile))) {
+            printCodes(out);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package codegen;
+
+import java.io.*;
+import diagnostics.Diagnostics;
+
+/**
+ *  StreamingProgram writes the bytecodes to a .cod file while Codegen is
+ *  still generating them, so memory holds only the codes not yet written
+ *  rather than the whole program. The pending codes are kept in parallel
+ *  arrays - the bytecode and kind, the number and the string of each -
+ *  instead of one Code object apiece; they are written when a function
+ *  ends and whenever the buffer fills. The file holds the same lines
+ *  Program.printCodes writes
+*/
+public class StreamingProgram implements CodeSink, Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final int PLAIN = 0, LABEL = 1, NUM = 2, VAR = 3;
+    private static final Codes.ByteCodes[] BYTECODES = Codes.ByteCodes.values();
+
+    private final Writer out;
+    private final Diagnostics diagnostics;
+    // the bytecode ordinal in the low 4 bits, the kind above them
+    private final int[] opcodes;
+    private final int[] nums;
+    private final String[] strings;
+    private int pending;
+    private long written;
+    private final StringBuilder line = new StringBuilder();
+
+/**
+ *  @param outFile is where the bytecodes are written
+ *  @param diagnostics receives the echo of the bytecodes as they are written
+ *  @exception IOException is thrown if outFile can't be created
+*/
+    public StreamingProgram(String outFile, Diagnostics diagnostics) throws IOException {
+        this(new FileWriter(outFile), diagnostics, DEFAULT_CAPACITY);
+    }
+
+/**
+ *  @param out receives the bytecodes, one per line
+ *  @param capacity is the most codes held before they are written
+*/
+    public StreamingProgram(Writer out, Diagnostics diagnostics, int capacity) {
+        this.out = new BufferedWriter(out);
+        this.diagnostics = diagnostics;
+        opcodes = new int[capacity];
+        nums = new int[capacity];
+        strings = new String[capacity];
+    }
+
+    public void emit(Codes.ByteCodes bytecode) {
+        add(bytecode.ordinal() | PLAIN << 4, 0, null);
+    }
+
+    public void emit(Codes.ByteCodes bytecode, String label) {
+        add(bytecode.ordinal() | LABEL << 4, 0, label);
+    }
+
+    public void emit(Codes.ByteCodes bytecode, int num) {
+        add(bytecode.ordinal() | NUM << 4, num, null);
+    }
+
+    public void emit(Codes.ByteCodes bytecode, int location, String varname) {
+        add(bytecode.ordinal() | VAR << 4, location, varname);
+    }
+
+    public void functionEnd() {
+        flush();
+    }
+
+    private void add(int opcode, int num, String string) {
+        if (pending == opcodes.length) {
+            flush();
+        }
+        opcodes[pending] = opcode;
+        nums[pending] = num;
+        strings[pending] = string;
+        pending++;
+    }
+
+/**
+ *  write the pending codes
+ *  @exception UncheckedIOException is thrown if they can't be written
+*/
+    public void flush() {
+        boolean echo = diagnostics.isEnabled();
+        try {
+            for (int i = 0; i < pending; i++) {
+                line.setLength(0);
+                line.append(BYTECODES[opcodes[i] & 0xf]);
+                switch (opcodes[i] >>> 4) {
+                    case LABEL:
+                        line.append(' ').append(strings[i]);
+                        break;
+                    case NUM:
+                        line.append(' ').append(nums[i]);
+                        break;
+                    case VAR:
+                        line.append(' ').append(nums[i]).append(' ').append(strings[i]);
+                        break;
+                    default:
+                        break;
+                }
+                if (echo) {
+                    diagnostics.trace(line.toString());
+                }
+                out.append(line).append(System.lineSeparator());
+                strings[i] = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += pending;
+        pending = 0;
+    }
+
+/**
+ *  @return the number of codes written so far, LABELs included
+*/
+    public long getWritten() {
+        return written;
+    }
+
+/**
+ *  write the pending codes and close the file
+*/
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
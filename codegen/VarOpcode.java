@@ -18,6 +18,14 @@ public class VarOpcode extends Code {
         this.location = location;
         this.varname = varname;
     }
+
+    public int getLocation() {
+        return location;
+    }
+
+    public String getVarname() {
+        return varname;
+    }
     
     public String toString() {
         return super.toString() + " " + location + " " + varname;
@@ -0,0 +1,28 @@
+#!/bin/sh
+# Run the compiler: ./compile.sh [compiler options] <file>
+# ./compile.sh -dumpcds packs the compiler's classes into compiler.jar
+# and writes the class data sharing archive compiler.jsa for it; while
+# both are newer than every compiled class the compiler runs from them,
+# so the JVM maps its classes from the archive instead of loading and
+# verifying them at every start.
+dir=$(cd "$(dirname "$0")" && pwd)
+cp=${CLASSPATH:-$dir}
+# every class path entry is searched; one find can't search, or anything
+# newer than compiler.jar, means the jar and archive may be stale
+fresh=false
+if [ -f "$dir/compiler.jsa" ] && [ -f "$dir/compiler.jar" ]; then
+  fresh=true
+  set -f
+  old_ifs=$IFS
+  IFS=:
+  for entry in $cp; do
+    newer=$(find "$entry" \( -name '*.class' -o -name '*.jar' \) -newer "$dir/compiler.jar" 2>/dev/null) &&
+      [ -z "$newer" ] || fresh=false
+  done
+  IFS=$old_ifs
+  set +f
+fi
+if [ "$fresh" = true ]; then
+  exec java -XX:SharedArchiveFile="$dir/compiler.jsa" -Xshare:auto -cp "$dir/compiler.jar" compiler.Compiler "$@"
+fi
+exec java -cp "$cp" compiler.Compiler "$@"
@@ -0,0 +1,150 @@
+package compiler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import constrain.ConstraintError;
+import diagnostics.Diagnostics;
+
+/**
+ *  BatchCompiler compiles many source programs in one JVM on a work
+ *  stealing pool; each program is compiled by its own Compiler, so it
+ *  has its own lexer, symbol table, parser, constrainer and code
+ *  generator, and its .cod file is written as soon as it is compiled<br>
+ *  Trace output is turned off; errors are still printed, prefixed with
+ *  the file they came from. The run ends with a summary of the
+ *  throughput (files/sec, tokens/sec) and the p50/p99 latency of a
+ *  single compile<br>
+ *  usage: java compiler.Compiler -batch [-j threads] &LT;directory or file&GT;...
+*/
+public class BatchCompiler {
+
+    private final int threads;
+
+/**
+ *  @param threads is the number of programs compiled at the same time
+*/
+    public BatchCompiler(int threads) {
+        this.threads = threads;
+    }
+
+/**
+ *  the outcome of compiling one program
+*/
+    static class Result {
+        final String file;
+        final long nanos;
+        final int tokens;
+        final boolean ok;
+
+        Result(String file, long nanos, int tokens, boolean ok) {
+            this.file = file;
+            this.nanos = nanos;
+            this.tokens = tokens;
+            this.ok = ok;
+        }
+    }
+
+/**
+ *  @param paths are .x files or directories searched for .x files
+ *  @return the source files to compile, in name order
+*/
+    static List<String> sourceFiles(String[] paths) throws IOException {
+        List<String> files = new ArrayList<String>();
+        for (String path : paths) {
+            Path p = Paths.get(path);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> walk = Files.walk(p)) {
+                    walk.filter(f -> Files.isRegularFile(f) && f.toString().endsWith(".x"))
+                        .map(Path::toString)
+                        .sorted()
+                        .forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    Result compile(String file) {
+        Diagnostics quiet = new Diagnostics(Diagnostics.Mode.OFF) {
+            @Override
+            public void error(String message) {
+                System.out.println(file + ": " + message);
+            }
+        };
+        long start = System.nanoTime();
+        int tokens = 0;
+        boolean ok = true;
+        try {
+            tokens = new Compiler(file, quiet).compile();
+        } catch (ConstraintError e) {
+            // the constrainer has already reported the error
+            ok = false;
+        } catch (Exception e) {
+            quiet.error("********exception*******" + e.toString());
+            ok = false;
+        }
+        return new Result(file, System.nanoTime() - start, tokens, ok);
+    }
+
+/**
+ *  compile every program and print the summary
+ *  @param paths are .x files or directories searched for .x files
+*/
+    public void run(String[] paths) throws Exception {
+        List<String> files = sourceFiles(paths);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Result> results = new ArrayList<Result>(files.size());
+        long start = System.nanoTime();
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<ForkJoinTask<Result>>(files.size());
+            for (String file : files) {
+                tasks.add(pool.submit(() -> compile(file)));
+            }
+            for (ForkJoinTask<Result> task : tasks) {
+                results.add(task.join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        summarize(results, System.nanoTime() - start);
+    }
+
+    void summarize(List<Result> results, long wallNanos) {
+        long tokens = 0;
+        int failed = 0;
+        long[] latency = new long[results.size()];
+        for (int i = 0; i < latency.length; i++) {
+            Result result = results.get(i);
+            tokens += result.tokens;
+            latency[i] = result.nanos;
+            if (!result.ok) {
+                failed++;
+            }
+        }
+        Arrays.sort(latency);
+        double seconds = wallNanos / 1e9;
+        System.out.printf("compiled %d files (%d failed) on %d threads in %.3f s%n",
+            results.size(), failed, threads, seconds);
+        System.out.printf("throughput: %.1f files/sec  %.0f tokens/sec%n",
+            results.size() / seconds, tokens / seconds);
+        System.out.printf("latency per file: p50 %.3f ms  p99 %.3f ms%n",
+            percentile(latency, 50) / 1e6, percentile(latency, 99) / 1e6);
+    }
+
+/**
+ *  @param sorted is in ascending order
+ *  @return the nearest rank percentile p of sorted; 0 if it is empty
+*/
+    static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int)Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
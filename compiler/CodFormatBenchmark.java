@@ -0,0 +1,108 @@
+package compiler;
+
+import java.nio.file.*;
+import java.util.*;
+import codegen.*;
+import diagnostics.Diagnostics;
+import vm.*;
+
+/**
+ *  CodFormatBenchmark compares the text .cod files with the binary .codb
+ *  files for every sample program that compiles: the size of each and the
+ *  time Loader takes to load it into an Executable. The time to open a
+ *  .codb file, which checks the codes but decodes none, is shown too.
+ *  Programs the VM cannot load, such as ones with string literals, are
+ *  listed as skipped<br>
+ *  usage: java compiler.CodFormatBenchmark [directory]
+*/
+public class CodFormatBenchmark {
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 500;
+
+    private final String dir;
+
+/**
+ *  @param dir holds the sample programs
+*/
+    public CodFormatBenchmark(String dir) {
+        this.dir = dir;
+    }
+
+    public void run() throws Exception {
+        Path out = Files.createTempDirectory("codbench");
+        try {
+            System.out.printf("%-16s %8s %8s %12s %12s %12s%n",
+                "program", ".cod", ".codb", "text load", "binary load", "binary open");
+            for (String file : BatchCompiler.sourceFiles(new String[] {dir})) {
+                Program program;
+                try {
+                    program = new Compiler(file,
+                        StartupTraining.dropAll(Diagnostics.Mode.OFF)).translate();
+                } catch (Exception e) {
+                    // error.x and the like are there to fail
+                    continue;
+                }
+                String name = Paths.get(file).getFileName().toString();
+                String text = out.resolve(name + ".cod").toString();
+                String binary = out.resolve(name + BinaryFormat.EXTENSION).toString();
+                program.printCodes(text);
+                program.writeBinary(binary);
+                try {
+                    Loader.load(text);
+                } catch (VMException e) {
+                    System.out.printf("%-16s %8d %8d  skipped: %s%n", name,
+                        Files.size(Paths.get(text)), Files.size(Paths.get(binary)),
+                        e.getMessage());
+                    continue;
+                }
+                System.out.printf("%-16s %8d %8d %9.1f us %9.1f us %9.1f us%n", name,
+                    Files.size(Paths.get(text)), Files.size(Paths.get(binary)),
+                    time(() -> Loader.load(text)) / 1e3,
+                    time(() -> Loader.load(binary)) / 1e3,
+                    time(() -> MappedProgram.open(binary)) / 1e3);
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(out)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(out);
+        }
+    }
+
+    interface Load {
+        Object load() throws Exception;
+    }
+
+/**
+ *  @return the median nanoseconds one load takes
+*/
+    static long time(Load load) throws Exception {
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            load.load();
+            long elapsed = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = elapsed;
+            }
+        }
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 1) {
+            System.out.println("***Incorrect usage, try: java compiler.CodFormatBenchmark [directory]");
+            System.exit(1);
+        }
+        try {
+            new CodFormatBenchmark(
+                args.length == 0 ? StartupTraining.SAMPLES : args[0]).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package compiler;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ *  CompileClient sends one program to a running CompileServer; trace
+ *  output and errors are printed as they arrive and the bytecodes are
+ *  written to &LT;file&GT;.cod, just as a local compile would<br>
+ *  The client exits with status 0 if the program compiled and 1 if not<br>
+ *  usage: java compiler.CompileClient [-port n] [-diag off|console] [-inline] &LT;file&GT;<br>
+ *  -inline sends the text of the file rather than its path, for when
+ *  the server can't read the client's files
+*/
+public class CompileClient {
+
+    static void usage() {
+        System.out.println("***Incorrect usage, try: java compiler.CompileClient "
+            + "[-port n] [-diag off|console] [-inline] <file>");
+        System.exit(2);
+    }
+
+    public static void main(String args[]) {
+        int port = CompileServer.DEFAULT_PORT;
+        String diag = "console";
+        boolean inline = false;
+        int arg = 0;
+        while (arg < args.length && args[arg].startsWith("-")) {
+            if (args[arg].equals("-port") && arg + 1 < args.length) {
+                try {
+                    port = Integer.parseInt(args[arg + 1]);
+                } catch (NumberFormatException e) {
+                    usage();
+                }
+                arg += 2;
+            } else if (args[arg].equals("-diag") && arg + 1 < args.length) {
+                diag = args[arg + 1];
+                arg += 2;
+            } else if (args[arg].equals("-inline")) {
+                inline = true;
+                arg++;
+            } else {
+                usage();
+            }
+        }
+        if (args.length != arg + 1) {
+            usage();
+        }
+        try {
+            System.exit(compile(args[arg], port, diag, inline) ? 0 : 1);
+        } catch (IOException e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+
+/**
+ *  @return true if the server compiled the program
+*/
+    static boolean compile(String file, int port, String diag, boolean inline)
+            throws IOException {
+        boolean ok = false;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter request = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                 socket.getOutputStream(), StandardCharsets.UTF_8)))) {
+            if (inline) {
+                request.println("SOURCE " + diag + " " + file);
+                String text = new String(Files.readAllBytes(Paths.get(file)),
+                                         Charset.defaultCharset());
+                for (String line : text.split("\\R")) {
+                    request.println(line.startsWith(".") ? "." + line : line);
+                }
+                request.println(".");
+            } else {
+                request.println("FILE " + diag + " " + Paths.get(file).toAbsolutePath());
+            }
+            request.flush();
+
+            StringBuilder codes = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("C ")) {
+                    codes.append(line, 2, line.length()).append(System.lineSeparator());
+                } else if (line.startsWith("D ") || line.startsWith("E ")) {
+                    System.out.println(line.substring(2));
+                } else if (line.startsWith("END ")) {
+                    ok = line.equals("END ok");
+                    break;
+                }
+            }
+            if (ok) {
+                Files.write(Paths.get(file + ".cod"), codes.toString().getBytes(Charset.defaultCharset()));
+            }
+        }
+        return ok;
+    }
+}
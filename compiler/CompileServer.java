@@ -0,0 +1,159 @@
+package compiler;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import constrain.ConstraintError;
+import codegen.Program;
+import diagnostics.Diagnostics;
+
+/**
+ *  CompileServer keeps a compiler resident on a loopback port so the JIT
+ *  stays warm between compiles; every request is compiled on a pool
+ *  thread by its own Compiler, with its own Diagnostics, so requests
+ *  are served concurrently and never share compilation state<br>
+ *  One request is served per connection; all lines are UTF-8. The
+ *  request is a header line
+ *  <pre>
+ *  FILE off|console &LT;path&GT;       - compile a file the server can read
+ *  SOURCE off|console &LT;name&GT;     - compile the source lines that follow
+ *  </pre>
+ *  where off or console selects whether trace output is sent back. The
+ *  lines of a SOURCE request end with a line holding only "."; a source
+ *  line starting with "." is sent with one more "." in front<br>
+ *  The reply is a stream of lines, each starting with its kind:
+ *  <pre>
+ *  D &LT;text&GT;    - a line of trace output
+ *  E &LT;text&GT;    - an error message
+ *  C &LT;text&GT;    - a bytecode
+ *  END ok|failed
+ *  </pre>
+ *  usage: java compiler.Compiler -server [-port n] [-j threads]
+*/
+public class CompileServer {
+    public static final int DEFAULT_PORT = 4711;
+
+    private final int port;
+    private final int threads;
+
+/**
+ *  @param port is the loopback port to listen on
+ *  @param threads is the number of requests compiled at the same time
+*/
+    public CompileServer(int port, int threads) {
+        this.port = port;
+        this.threads = threads;
+    }
+
+/**
+ *  the Diagnostics of one request; trace lines and errors are sent back
+ *  to the client as they are produced
+*/
+    static class ReplyDiagnostics extends Diagnostics {
+        private final PrintWriter reply;
+
+        ReplyDiagnostics(Mode mode, PrintWriter reply) {
+            super(mode);
+            this.reply = reply;
+        }
+
+        @Override
+        public void trace(String line) {
+            if (isEnabled()) {
+                reply.println("D " + line);
+            }
+        }
+
+        @Override
+        public void trace(char[] buffer, int start, int end) {
+            if (isEnabled()) {
+                reply.println("D " + new String(buffer, start, end - start));
+            }
+        }
+
+        @Override
+        public void error(String message) {
+            reply.println("E " + message);
+        }
+    }
+
+/**
+ *  accept requests until the JVM is stopped
+*/
+    public void run() throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("compile server listening on "
+                + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+            while (true) {
+                Socket client = server.accept();
+                pool.execute(() -> serve(client));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    void serve(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter reply = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                 socket.getOutputStream(), StandardCharsets.UTF_8)))) {
+            reply.println(compile(in, reply) ? "END ok" : "END failed");
+        } catch (IOException e) {
+            System.out.println("********exception*******" + e.toString());
+        }
+    }
+
+/**
+ *  read one request and compile it
+ *  @return true if the program compiled
+*/
+    boolean compile(BufferedReader in, PrintWriter reply) throws IOException {
+        String header = in.readLine();
+        String[] fields = header == null ? new String[0] : header.split(" ", 3);
+        if (fields.length != 3 || !(fields[0].equals("FILE") || fields[0].equals("SOURCE"))) {
+            reply.println("E bad request: " + header);
+            return false;
+        }
+        Diagnostics.Mode mode;
+        try {
+            mode = Diagnostics.Mode.valueOf(fields[1].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            reply.println("E bad diagnostics mode: " + fields[1]);
+            return false;
+        }
+        Diagnostics diagnostics = new ReplyDiagnostics(
+            mode == Diagnostics.Mode.OFF ? Diagnostics.Mode.OFF : Diagnostics.Mode.CONSOLE, reply);
+        Compiler compiler;
+        if (fields[0].equals("FILE")) {
+            compiler = new Compiler(fields[2], diagnostics);
+        } else {
+            StringBuilder text = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(".")) {
+                text.append(line.startsWith(".") ? line.substring(1) : line).append('\n');
+            }
+            char[] source = new char[text.length()];
+            text.getChars(0, source.length, source, 0);
+            compiler = new Compiler(fields[2], source, source.length, diagnostics);
+        }
+        try {
+            Program program = compiler.translate();
+            StringWriter codes = new StringWriter();
+            program.printCodes(new PrintWriter(codes));
+            for (String code : codes.toString().split("\\R")) {
+                reply.println("C " + code);
+            }
+            return true;
+        } catch (ConstraintError e) {
+            // the constrainer has already reported the error
+            return false;
+        } catch (Exception e) {
+            diagnostics.error("********exception*******" + e.toString());
+            return false;
+        }
+    }
+}
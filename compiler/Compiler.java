@@ -1,9 +1,17 @@
 package compiler;
 
+import java.io.IOException;
+import java.util.*;
 import ast.*;
+import parser.IterativeParser;
 import parser.Parser;
 import constrain.Constrainer;
+import constrain.Prelude;
+import constrain.ConstraintError;
 import codegen.*;
+import diagnostics.Diagnostics;
+import lexer.MappedSourceReader;
+import vm.*;
 import visitor.*;
 
 /**
@@ -17,48 +25,409 @@ public class Compiler {
 */
 	
 	String sourceFile;
+	Diagnostics diagnostics;
+	// program text given in memory; null when it is read from sourceFile
+	char[] source;
+	int sourceLength;
+	int tokenCount;
+	// the bytecodes of the last successful compile
+	Program program;
+	// the peephole rules applied to the generated bytecodes
+	Set<Peephole.Rule> optimizations = EnumSet.noneOf(Peephole.Rule.class);
+	// fold constants in the decorated AST before generating code
+	boolean fold = false;
+	// also lower the program to register code
+	boolean registers = false;
+	RegisterProgram registerProgram;
+	// the forms the bytecodes are written in: text abc.cod, binary abc.codb
+	boolean text = true, binary = false;
+	// write abc.cod while generating code instead of after; see StreamingProgram
+	boolean stream = false;
+	// compile a FlatTree copy of the parsed AST; see FlatTree
+	boolean flat = false;
+	// records the cost of each phase when set; see PhaseMetrics
+	PhaseMetrics metrics;
+	// where the metrics report is written; - for System.out
+	String metricsFile;
+	// parse with explicit stacks instead of recursion; see IterativeParser
+	boolean iterative = false;
 	
     public Compiler(String sourceFile) {
+    	this(sourceFile, Diagnostics.getDefault());
+    }
+
+/**
+ *  @param sourceFile is the program to compile
+ *  @param diagnostics receives the trace output of every stage
+*/
+    public Compiler(String sourceFile, Diagnostics diagnostics) {
     	this.sourceFile = sourceFile;
+    	this.diagnostics = diagnostics;
+    }
+
+/**
+ *  @param name is the name the program is known by in messages
+ *  @param source holds the program text in its first length chars
+ *  @param diagnostics receives the trace output of every stage
+*/
+    public Compiler(String name, char[] source, int length, Diagnostics diagnostics) {
+    	this(name, diagnostics);
+    	this.source = source;
+    	this.sourceLength = length;
     }
     
-    void compileProgram() {
+/**
+ *  compile the program and write its bytecodes; errors are reported to
+ *  diagnostics, and a constraint error exits
+*/
+    public void compileProgram() {
+        try {
+            compile();
+        }catch (ConstraintError e) {
+            // the constrainer has already reported the error
+            diagnostics.close();
+            writeMetrics();
+            System.exit(1);
+        }catch (Exception e) {
+            diagnostics.error("********exception*******"+e.toString());
+         };
+    }
+
+/**
+ *  run every stage over the source file and write its bytecodes; errors
+ *  are reported to diagnostics and then thrown
+ *  @return the number of tokens in the program
+ *  @exception IOException if an output file can't be written; it's left
+ *  to the caller to report, so one file fails and not the whole batch
+*/
+    int compile() throws Exception {
         try {
-            System.out.println("---------------TOKENS-------------");
-            Parser parser = new Parser(sourceFile);
+            Program program = translate();
+            begin("write");
+            if (program == null) {
+                // the bytecodes were streamed to abc.cod
+            } else if (text) {
+                // if the source file is "abc" print bytecodes to abc.cod
+                program.printCodes(sourceFile + ".cod");
+            }
+            if (binary && program != null) {
+                program.writeBinary(sourceFile + BinaryFormat.EXTENSION);
+            }
+            if (registerProgram != null) {
+                registerProgram.printCodes(sourceFile + ".reg");
+            }
+            return tokenCount;
+        } catch (Exception e) {
+            if (metrics != null) {
+                // the phase that threw is ended and kept in the report
+                metrics.fail(e.toString());
+            }
+            throw e;
+        } finally {
+            end();
+        }
+    }
+
+    private void begin(String phase) {
+        if (metrics != null) {
+            metrics.begin(phase);
+        }
+    }
+
+    private void end() {
+        if (metrics != null) {
+            metrics.end();
+        }
+    }
+
+/**
+ *  write the metrics report to metricsFile, if one was asked for
+*/
+    void writeMetrics() {
+        if (metrics == null) {
+            return;
+        }
+        try {
+            metrics.writeJson(metricsFile);
+        } catch (IOException e) {
+            System.out.println("********exception*******" + e.toString());
+        }
+    }
+
+/**
+ *  run every stage over the program; errors are reported to diagnostics
+ *  and then thrown
+ *  @return the bytecodes generated for the program; null if they were
+ *  streamed to the .cod file
+*/
+    Program translate() throws Exception {
+        Parser parser = null;
+        try {
+            diagnostics.trace("---------------TOKENS-------------");
+            begin("parse");
+            if (source == null) {
+                parser = iterative ? new IterativeParser(sourceFile, diagnostics)
+                    : new Parser(sourceFile, diagnostics);
+            } else {
+                MappedSourceReader reader = new MappedSourceReader(source, sourceLength, diagnostics);
+                parser = iterative ? new IterativeParser(reader, diagnostics)
+                    : new Parser(reader, diagnostics);
+            }
             AST t = parser.execute();
-            System.out.println("---------------AST-------------");
-            PrintVisitor pv = new PrintVisitor();
+            end();
+            if (metrics != null) {
+                metrics.count("tokens", parser.getTokenCount());
+                metrics.count("nodes", parser.getNodeIds().count());
+            }
+            if (flat) {
+                begin("flatten");
+                t = FlatTree.from(t).root();
+                end();
+            }
+            diagnostics.trace("---------------AST-------------");
+            PrintVisitor pv = new PrintVisitor(diagnostics);
             t.accept(pv);
 /*  COMMENT CODE FROM HERE UNTIL THE CATCH CLAUSE WHEN TESTING PARSER */            
+            begin("constrain");
             Constrainer con = new Constrainer(t,parser);
             con.execute();
-            System.out.println("---------------DECORATED AST-------------");
+            end();
+            diagnostics.trace("---------------DECORATED AST-------------");
             t.accept(pv);
+            if (fold) {
+                diagnostics.trace("---------------CONSTANT FOLDING-------------");
+                begin("fold");
+                ConstantFolder folder = new ConstantFolder(t, parser.getLex(), parser.getNodeIds());
+                folder.execute();
+                end();
+                folder.report(diagnostics);
+            }
 /*  COMMENT CODE FROM HERE UNTIL THE CATCH CLAUSE WHEN TESTING CONSTRAINER */            
-            Codegen generator = new Codegen(t);
-            Program program = generator.execute();
-            System.out.println("---------------AST AFTER CODEGEN-------------");
+            Program program = null;
+            long instructions;
+            begin("codegen");
+            if (stream) {
+                StreamingProgram codes = new StreamingProgram(sourceFile + ".cod", diagnostics);
+                try (codes) {
+                    new Codegen(t, codes, diagnostics).execute();
+                }
+                instructions = codes.getWritten();
+            } else {
+                Codegen generator = new Codegen(t, diagnostics);
+                program = generator.execute();
+                instructions = program.getCodes().size();
+            }
+            end();
+            if (registers) {
+                begin("registers");
+                registerProgram = new RegisterCodegen(t, diagnostics).execute();
+                end();
+            }
+            diagnostics.trace("---------------AST AFTER CODEGEN-------------");
             t.accept(pv);
-            System.out.println("---------------INTRINSIC TREES-------------");
-            System.out.println("---------------READ/WRITE TREES-------------");
-            Constrainer.readTree.accept(pv);
-            Constrainer.writeTree.accept(pv);
-            System.out.println("---------------INT/BOOL TREES-------------");
-            Constrainer.intTree.accept(pv);
-            Constrainer.boolTree.accept(pv);
-            program.printCodes(sourceFile + ".cod");
-            // if the source file is "abc" print bytecodes to abc.cod
-        }catch (Exception e) {
-            System.out.println("********exception*******"+e.toString());
-         };
+            diagnostics.trace("---------------INTRINSIC TREES-------------");
+            diagnostics.trace("---------------READ/WRITE TREES-------------");
+            Prelude.readTree.accept(pv);
+            Prelude.writeTree.accept(pv);
+            diagnostics.trace("---------------INT/BOOL TREES-------------");
+            Prelude.intTree.accept(pv);
+            Prelude.boolTree.accept(pv);
+            if (!optimizations.isEmpty() && program != null) {
+                diagnostics.trace("---------------PEEPHOLE-------------");
+                begin("peephole");
+                Peephole peephole = new Peephole(optimizations);
+                peephole.optimize(program);
+                end();
+                instructions = program.getCodes().size();
+                peephole.report(diagnostics);
+            }
+            tokenCount = parser.getTokenCount();
+            if (metrics != null) {
+                metrics.count("instructions", instructions);
+            }
+            this.program = program;
+            return program;
+        } finally {
+            // the symbols of this compilation are no longer needed
+            if (parser != null) {
+                parser.getLex().getSymbolTable().release();
+            }
+        }
     }
     
+    static void usage() {
+        System.out.println("***Incorrect usage, try: java compiler.Compiler [-diag off|console|trace] [-run] [-fold | -flat] [-regs] [-peephole all|rule,...]\n"
+            + "                     [-format text|binary|both | -stream] [-iterative] [-metrics file|-] <file>\n"
+            + "              or: java compiler.Compiler -batch [-j threads] <directory or file>...\n"
+            + "              or: java compiler.Compiler -server [-port n] [-j threads]\n"
+            + "              or: java compiler.Compiler -dumpcds [archive]\n"
+            + "              or: java compiler.Compiler -train [directory]");
+        System.exit(1);
+    }
+
     public static void main(String args[]) {
-        if (args.length == 0) {
-            System.out.println("***Incorrect usage, try: java compiler.Compiler <file>");
-            System.exit(1);
+        Diagnostics diagnostics = Diagnostics.getDefault();
+        boolean batch = false, server = false,
+                train = false, dumpCds = false, run = false,
+                fold = false, registers = false, text = true,
+                binary = false, stream = false, flat = false,
+                iterative = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int port = CompileServer.DEFAULT_PORT;
+        String metricsFile = null;
+        Set<Peephole.Rule> optimizations = EnumSet.noneOf(Peephole.Rule.class);
+        int arg = 0;
+        while (arg < args.length && args[arg].startsWith("-")) {
+            if (args[arg].equals("-diag") && arg + 1 < args.length) {
+                try {
+                    diagnostics = Diagnostics.forName(args[arg + 1]);
+                } catch (IllegalArgumentException e) {
+                    usage();
+                }
+                Diagnostics.setDefault(diagnostics);
+                arg += 2;
+            } else if (args[arg].equals("-batch")) {
+                batch = true;
+                arg++;
+            } else if (args[arg].equals("-run")) {
+                run = true;
+                arg++;
+            } else if (args[arg].equals("-regs")) {
+                registers = true;
+                arg++;
+            } else if (args[arg].equals("-format") && arg + 1 < args.length) {
+                String format = args[arg + 1];
+                text = format.equals("text") || format.equals("both");
+                binary = format.equals("binary") || format.equals("both");
+                if (!text && !binary) {
+                    usage();
+                }
+                arg += 2;
+            } else if (args[arg].equals("-stream")) {
+                stream = true;
+                arg++;
+            } else if (args[arg].equals("-flat")) {
+                flat = true;
+                arg++;
+            } else if (args[arg].equals("-iterative")) {
+                iterative = true;
+                arg++;
+            } else if (args[arg].equals("-metrics") && arg + 1 < args.length) {
+                metricsFile = args[arg + 1];
+                arg += 2;
+            } else if (args[arg].equals("-fold")) {
+                fold = true;
+                arg++;
+            } else if (args[arg].equals("-peephole") && arg + 1 < args.length) {
+                try {
+                    optimizations = Peephole.rulesForNames(args[arg + 1]);
+                } catch (IllegalArgumentException e) {
+                    usage();
+                }
+                arg += 2;
+            } else if (args[arg].equals("-train")) {
+                train = true;
+                arg++;
+            } else if (args[arg].equals("-dumpcds")) {
+                dumpCds = true;
+                arg++;
+            } else if (args[arg].equals("-server")) {
+                server = true;
+                arg++;
+            } else if (args[arg].equals("-port") && arg + 1 < args.length) {
+                try {
+                    port = Integer.parseInt(args[arg + 1]);
+                } catch (NumberFormatException e) {
+                    usage();
+                }
+                arg += 2;
+            } else if (args[arg].equals("-j") && arg + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[arg + 1]);
+                } catch (NumberFormatException e) {
+                    usage();
+                }
+                if (threads < 1) {
+                    usage();
+                }
+                arg += 2;
+            } else {
+                usage();
+            }
+        }
+        if (train || dumpCds) {
+            String operand = arg < args.length ? args[arg] : null;
+            try {
+                if (train) {
+                    new StartupTraining().train(
+                        operand == null ? StartupTraining.SAMPLES : operand);
+                } else {
+                    System.exit(new StartupTraining().dump(
+                        operand == null ? StartupTraining.ARCHIVE : operand,
+                        StartupTraining.SAMPLES));
+                }
+            } catch (Exception e) {
+                System.out.println("********exception*******" + e.toString());
+                System.exit(1);
+            }
+            return;
+        }
+        if (server) {
+            try {
+                new CompileServer(port, threads).run();
+            } catch (Exception e) {
+                System.out.println("********exception*******" + e.toString());
+            }
+            return;
+        }
+        if (args.length <= arg) {
+            usage();
+        }
+        if (stream && (binary || run || !optimizations.isEmpty())) {
+            // streamed bytecodes are never held in memory
+            usage();
+        }
+        if (flat && fold) {
+            // ConstantFolder replaces kids, which a FlatTree's views can't
+            usage();
+        }
+        if (batch) {
+            try {
+                new BatchCompiler(threads).run(
+                    java.util.Arrays.copyOfRange(args, arg, args.length));
+            } catch (Exception e) {
+                System.out.println("********exception*******" + e.toString());
+            }
+            return;
+        }
+        Compiler compiler = new Compiler(args[arg], diagnostics);
+        compiler.optimizations = optimizations;
+        compiler.fold = fold;
+        compiler.registers = registers;
+        compiler.text = text;
+        compiler.binary = binary;
+        compiler.stream = stream;
+        compiler.flat = flat;
+        compiler.iterative = iterative;
+        if (metricsFile != null) {
+            compiler.metrics = new PhaseMetrics(args[arg]);
+            compiler.metricsFile = metricsFile;
+        }
+        compiler.compileProgram();
+        diagnostics.close();
+        compiler.writeMetrics();
+        if (run && compiler.program != null) {
+            // execute the bytecodes just generated
+            try {
+                if (registers) {
+                    new RegisterMachine(System.in, System.out).execute(compiler.registerProgram);
+                } else {
+                    new VirtualMachine(System.in, System.out).execute(Loader.load(compiler.program));
+                }
+            } catch (VMException e) {
+                System.out.println("****VM ERROR: " + e.getMessage() + "   ****");
+                System.exit(1);
+            }
         }
-        (new Compiler(args[0])).compileProgram();
     }
 }
@@ -0,0 +1,178 @@
+package compiler;
+
+import java.util.*;
+import ast.*;
+import diagnostics.Diagnostics;
+import parser.Parser;
+import visitor.CountVisitor;
+
+/**
+ *  FlatTreeBenchmark compares the parsed AST with the same trees copied
+ *  to FlatTrees: the heap each takes, the time CountVisitor takes to walk
+ *  each - the FlatTree through its views - and the time a loop over the
+ *  FlatTree's arrays takes to do the same count. Every sample program
+ *  that parses is used, COPIES times over<br>
+ *  usage: java compiler.FlatTreeBenchmark [directory]
+*/
+public class FlatTreeBenchmark {
+    private static final int COPIES = 500;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 30;
+
+    private final String dir;
+
+/**
+ *  @param dir holds the sample programs
+*/
+    public FlatTreeBenchmark(String dir) {
+        this.dir = dir;
+    }
+
+    public void run() throws Exception {
+        List<String> files = new ArrayList<String>();
+        for (String file : BatchCompiler.sourceFiles(new String[] {dir})) {
+            if (parse(file) != null) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            // there would be no nodes to divide the heap among
+            System.out.println("***no programs that parse in " + dir
+                + ", try: java compiler.FlatTreeBenchmark [directory]");
+            System.exit(1);
+        }
+        long before = usedHeap();
+        List<AST> trees = new ArrayList<AST>();
+        for (int copy = 0; copy < COPIES; copy++) {
+            for (String file : files) {
+                trees.add(parse(file));
+            }
+        }
+        long treeHeap = usedHeap() - before;
+        long nodes = 0;
+        for (AST t : trees) {
+            nodes += FlatTree.from(t).size();
+        }
+
+        before = usedHeap();
+        List<FlatTree> flatTrees = new ArrayList<FlatTree>();
+        for (AST t : trees) {
+            flatTrees.add(FlatTree.from(t));
+        }
+        long flatHeap = usedHeap() - before;
+
+        System.out.printf("%d trees, %,d nodes%n", trees.size(), nodes);
+        System.out.printf("  %-12s %,12d bytes  %6.1f bytes/node%n",
+            "AST", treeHeap, (double)treeHeap / nodes);
+        System.out.printf("  %-12s %,12d bytes  %6.1f bytes/node%n",
+            "FlatTree", flatHeap, (double)flatHeap / nodes);
+
+        List<AST> views = new ArrayList<AST>();
+        for (FlatTree flat : flatTrees) {
+            views.add(flat.root());
+        }
+        System.out.printf("  %-12s %9.3f ms%n", "AST walk", time(() -> walk(trees)) / 1e6);
+        System.out.printf("  %-12s %9.3f ms%n", "view walk", time(() -> walk(views)) / 1e6);
+        System.out.printf("  %-12s %9.3f ms%n", "array walk", time(() -> walkArrays(flatTrees)) / 1e6);
+    }
+
+    static AST parse(String file) {
+        try {
+            Parser parser = new Parser(file, StartupTraining.dropAll(Diagnostics.Mode.OFF));
+            return parser.execute();
+        } catch (Exception e) {
+            // sample_files has programs with syntax errors on purpose
+            return null;
+        }
+    }
+
+    static long walk(List<AST> trees) {
+        long count = 0;
+        for (AST t : trees) {
+            CountVisitor counter = new CountVisitor();
+            t.accept(counter);
+            for (int n : counter.getCount()) {
+                count += n;
+            }
+        }
+        return count;
+    }
+
+/**
+ *  count the nodes at each depth as CountVisitor does, with a stack of
+ *  node indices in place of recursion
+*/
+    static long walkArrays(List<FlatTree> trees) {
+        long count = 0;
+        int[] stack = new int[64], depths = new int[64];
+        int[] counts = new int[100];
+        for (FlatTree tree : trees) {
+            Arrays.fill(counts, 0);
+            int top = 0;
+            stack[top] = 0;
+            depths[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top], depth = depths[top];
+                counts[depth]++;
+                for (int kid = tree.firstKid(node); kid != FlatTree.NONE; kid = tree.nextSibling(kid)) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                        depths = Arrays.copyOf(depths, top * 2);
+                    }
+                    stack[top] = kid;
+                    depths[top++] = depth + 1;
+                }
+            }
+            for (int n : counts) {
+                count += n;
+            }
+        }
+        return count;
+    }
+
+    interface Walk {
+        long walk();
+    }
+
+    static long sink;
+
+/**
+ *  @return the median nanoseconds one walk takes
+*/
+    static long time(Walk walk) {
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += walk.walk();
+            long elapsed = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = elapsed;
+            }
+        }
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 1) {
+            System.out.println("***Incorrect usage, try: java compiler.FlatTreeBenchmark [directory]");
+            System.exit(1);
+        }
+        try {
+            new FlatTreeBenchmark(
+                args.length == 0 ? StartupTraining.SAMPLES : args[0]).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package compiler;
+
+import java.util.Random;
+import lexer.*;
+
+/**
+ *  KeywordBenchmark is a microbenchmark of reserved word recognition;
+ *  it times the three ways the lexer can decide whether a scanned id is a
+ *  reserved word over the same keyword-dense stream of ids:
+ *  <ul><li>the ReservedWords perfect hash
+ *  <li>stepping the TokenTable DFA over each character
+ *  <li>probing the Symbol table, the path the lexer used before</ul>
+ *  usage: java compiler.KeywordBenchmark
+*/
+public class KeywordBenchmark {
+    private static final int WORDS = 1 << 20;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+    // ids as they appear in the sample programs
+    private static final String[] IDS = {
+        "i", "j", "k", "m", "n", "x", "f", "fib", "factorial", "read",
+        "write", "testSure", "test1", "dummyFormal", "count", "result"
+    };
+
+    private char[] buffer;
+    // word w is buffer[start[w]..end[w])
+    private int[] start = new int[WORDS], end = new int[WORDS];
+    private SymbolTable symbols = new SymbolTable();
+
+    public KeywordBenchmark() {
+        String[] reserved = new String[ReservedWords.SIZE];
+        for (int i = 0; i < reserved.length; i++) {
+            reserved[i] = new String(ReservedWords.words[i]);
+        }
+        // about half of the words are reserved words, as in typical x code
+        Random random = new Random(413);
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < WORDS; w++) {
+            String word = random.nextBoolean()
+                ? reserved[random.nextInt(reserved.length)]
+                : IDS[random.nextInt(IDS.length)];
+            start[w] = text.length();
+            text.append(word);
+            end[w] = text.length();
+            text.append(' ');
+        }
+        buffer = text.toString().toCharArray();
+    }
+
+    int perfectHash() {
+        int found = 0;
+        for (int w = 0; w < WORDS; w++) {
+            if (ReservedWords.lookup(buffer, start[w], end[w]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    int dfa() {
+        int found = 0;
+        for (int w = 0; w < WORDS; w++) {
+            int state = TokenTable.START;
+            for (int i = start[w]; i < end[w]; i++) {
+                state = TokenTable.step(state, buffer[i]);
+            }
+            if (TokenTable.accept[state] != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    int symbolProbe() {
+        int found = 0;
+        for (int w = 0; w < WORDS; w++) {
+            if (symbols.symbol(buffer, start[w], end[w], Tokens.Identifier).getKind()
+                    != Tokens.Identifier) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    interface Recognizer {
+        int run();
+    }
+
+    void time(String name, Recognizer recognizer) {
+        int found = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            found = recognizer.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long begin = System.nanoTime();
+            recognizer.run();
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        System.out.printf("%-14s %7.2f ns/word  (%d of %d words reserved)%n",
+            name, best / (double)WORDS, found, WORDS);
+    }
+
+    public void run() {
+        time("perfect hash", this::perfectHash);
+        time("dfa", this::dfa);
+        time("symbol probe", this::symbolProbe);
+    }
+
+    public static void main(String args[]) {
+        new KeywordBenchmark().run();
+    }
+}
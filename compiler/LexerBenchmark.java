@@ -0,0 +1,96 @@
+package compiler;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import lexer.*;
+import diagnostics.Diagnostics;
+
+/**
+ *  LexerBenchmark runs only the lexer over a source file and reports
+ *  its throughput in tokens/second for each Lexer scan mode; small
+ *  programs are repeated until the input is several megabytes so the
+ *  timing isn't dominated by startup<br>
+ *  usage: java compiler.LexerBenchmark &LT;file&GT;
+*/
+public class LexerBenchmark {
+    private static final int MIN_INPUT_CHARS = 8 * 1024 * 1024;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private char[] input;
+    private int length;
+    private Diagnostics quiet = new Diagnostics(Diagnostics.Mode.OFF);
+
+/**
+ *  @param sourceFile is the program to lex; it is repeated as needed to
+ *  build a multi-megabyte input
+*/
+    public LexerBenchmark(String sourceFile) throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(sourceFile)),
+                                 Charset.defaultCharset()) + "\n";
+        int copies = Math.max(1, MIN_INPUT_CHARS / text.length());
+        StringBuilder all = new StringBuilder(copies * text.length());
+        for (int i = 0; i < copies; i++) {
+            all.append(text);
+        }
+        length = all.length();
+        input = new char[length];
+        all.getChars(0, length, input, 0);
+    }
+
+/**
+ *  lex the whole input once
+ *  @param mode is the scan mode the lexer runs in
+ *  @return the number of tokens found
+*/
+    int lexOnce(Lexer.ScanMode mode) {
+        Lexer lex = new Lexer(new MappedSourceReader(input, length, quiet), quiet);
+        lex.setScanMode(mode);
+        int tokens = 0;
+        while (lex.nextToken() != null) {
+            tokens++;
+        }
+        lex.getSymbolTable().release();
+        return tokens;
+    }
+
+    public void run() {
+        System.out.printf("input: %.1f MB%n", length / (1024.0 * 1024.0));
+        for (Lexer.ScanMode mode : Lexer.ScanMode.values()) {
+            run(mode);
+        }
+    }
+
+    void run(Lexer.ScanMode mode) {
+        int tokens = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            tokens = lexOnce(mode);
+        }
+        long best = Long.MAX_VALUE, total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            lexOnce(mode);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        double mean = total / (double)MEASURED_ROUNDS;
+        System.out.printf("%-12s %d tokens  mean: %.1f ms %.0f tokens/sec  best: %.1f ms %.0f tokens/sec%n",
+            mode, tokens, mean / 1e6, tokens / (mean / 1e9),
+            best / 1e6, tokens / (best / 1e9));
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 1) {
+            System.out.println("***Incorrect usage, try: java compiler.LexerBenchmark <file>");
+            System.exit(1);
+        }
+        try {
+            new LexerBenchmark(args[0]).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package compiler;
+
+import java.util.*;
+import ast.*;
+import diagnostics.Diagnostics;
+import lexer.MappedSourceReader;
+import lexer.Symbol;
+import parser.IterativeParser;
+import parser.Parser;
+
+/**
+ *  NestingStress parses programs that nest blocks, parentheses, ifs and
+ *  calls the given number of levels deep, with IterativeParser and then
+ *  with the recursive Parser, on the default thread stack. For each it
+ *  shows the time each parser took or that it ran out of stack<br>
+ *  The two parsers must build the same tree - the same kinds, kids,
+ *  symbols and node numbers - so the trees are compared wherever both
+ *  finish, and at a depth both can reach; ProgramGenerator's programs are
+ *  compared too<br>
+ *  usage: java compiler.NestingStress [levels]
+*/
+public class NestingStress {
+    public static final int DEFAULT_LEVELS = 100_000;
+    // deep enough to matter, shallow enough for the recursive Parser
+    private static final int COMPARED_LEVELS = 500;
+    private static final int GENERATED_PROGRAMS = 20;
+
+    private final int levels;
+    private boolean failed;
+
+/**
+ *  @param levels is how deeply each program nests
+*/
+    public NestingStress(int levels) {
+        this.levels = levels;
+    }
+
+    public void run() {
+        System.out.printf("%-12s %8s %14s %14s%n", "program", "levels", "iterative", "recursive");
+        for (int depth : new int[] {levels, Math.min(levels, COMPARED_LEVELS)}) {
+            check("blocks", depth, blocks(depth));
+            check("parentheses", depth, parentheses(depth));
+            check("ifs", depth, ifs(depth));
+            check("calls", depth, calls(depth));
+        }
+        for (int seed = 0; seed < GENERATED_PROGRAMS; seed++) {
+            check("generated", 8 * seed, new ProgramGenerator(seed, 0, 8, 8 * seed, 10, 8).generate());
+        }
+        if (failed) {
+            System.out.println("***the parsers built different trees");
+            System.exit(1);
+        }
+    }
+
+    static String blocks(int depth) {
+        StringBuilder program = new StringBuilder("program {\n");
+        repeat(program, "{ ", depth).append("int x x = 1 ");
+        return repeat(program, "} ", depth).append("\n}\n").toString();
+    }
+
+    static String parentheses(int depth) {
+        StringBuilder program = new StringBuilder("program { int x\nx = ");
+        repeat(program, "(", depth).append("x + 1");
+        return repeat(program, ") * 2", depth).append("\n}\n").toString();
+    }
+
+    static String ifs(int depth) {
+        StringBuilder program = new StringBuilder("program { int x\n");
+        repeat(program, "if (x < 1) then { ", depth).append("x = 1 ");
+        return repeat(program, "} else { x = 2 } ", depth).append("\n}\n").toString();
+    }
+
+    static String calls(int depth) {
+        StringBuilder program = new StringBuilder("program { int x\nint f(int a, int b) { return a + b }\nx = ");
+        repeat(program, "f(1, ", depth).append("x");
+        return repeat(program, ")", depth).append("\n}\n").toString();
+    }
+
+    private static StringBuilder repeat(StringBuilder program, String s, int times) {
+        for (int i = 0; i < times; i++) {
+            program.append(s);
+        }
+        return program;
+    }
+
+    private void check(String name, int depth, String program) {
+        long start = System.nanoTime();
+        AST iterative = parse(program, true);
+        long iterativeTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        AST recursive = parse(program, false);
+        long recursiveTime = System.nanoTime() - start;
+        String result = iterative == null || recursive == null ? ""
+            : same(iterative, recursive) ? "same tree" : "DIFFERENT TREES";
+        failed |= result.startsWith("DIFFERENT");
+        System.out.printf("%-12s %8d %14s %14s  %s%n", name, depth,
+            time(iterative, iterativeTime), time(recursive, recursiveTime), result);
+    }
+
+    private static String time(AST t, long nanos) {
+        return t == null ? "no stack" : String.format("%.1f ms", nanos / 1e6);
+    }
+
+/**
+ *  @return the tree; null if the parser ran out of stack
+*/
+    static AST parse(String program, boolean iterative) {
+        Diagnostics diagnostics = StartupTraining.dropAll(Diagnostics.Mode.OFF);
+        char[] source = program.toCharArray();
+        MappedSourceReader reader = new MappedSourceReader(source, source.length, diagnostics);
+        Parser parser = iterative ? new IterativeParser(reader, diagnostics)
+            : new Parser(reader, diagnostics);
+        try {
+            return parser.execute();
+        } catch (StackOverflowError e) {
+            return null;
+        } catch (Exception e) {
+            throw new IllegalStateException("the stress programs must parse: " + e);
+        }
+    }
+
+/**
+ *  walk both trees in preorder, with a stack so deep trees are fine
+ *  @return true if they have the same kinds, kids, symbols and node numbers
+*/
+    static boolean same(AST a, AST b) {
+        FlatTree flatA = FlatTree.from(a), flatB = FlatTree.from(b);
+        if (flatA.size() != flatB.size()) {
+            return false;
+        }
+        ArrayDeque<AST> pendingA = new ArrayDeque<AST>(), pendingB = new ArrayDeque<AST>();
+        pendingA.push(a);
+        pendingB.push(b);
+        for (int node = 0; !pendingA.isEmpty(); node++) {
+            AST t = pendingA.pop(), u = pendingB.pop();
+            Symbol symbolA = flatA.symbol(node), symbolB = flatB.symbol(node);
+            if (t.getKind() != u.getKind() || t.getNodeNum() != u.getNodeNum()
+                    || t.kidCount() != u.kidCount()
+                    || flatA.firstKid(node) != flatB.firstKid(node)
+                    || flatA.nextSibling(node) != flatB.nextSibling(node)
+                    || !String.valueOf(symbolA).equals(String.valueOf(symbolB))) {
+                return false;
+            }
+            for (int kid = t.kidCount(); kid >= 1; kid--) {
+                pendingA.push(t.getKid(kid));
+                pendingB.push(u.getKid(kid));
+            }
+        }
+        return true;
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 1) {
+            System.out.println("***Incorrect usage, try: java compiler.NestingStress [levels]");
+            System.exit(1);
+        }
+        try {
+            new NestingStress(
+                args.length == 0 ? DEFAULT_LEVELS : Integer.parseInt(args[0])).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package compiler;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ *  PhaseMetrics records what each phase of one compile costs the thread
+ *  that runs it: the wall time, the CPU time and the bytes allocated, the
+ *  last from the thread allocation counter of com.sun.management's
+ *  ThreadMXBean. The counts a compile produces - tokens, nodes,
+ *  instructions - are kept with them, and the whole is written as JSON:
+ *  <pre>
+ *  {"program": "fib.x",
+ *   "phases": [{"name": "parse", "wallNanos": 812000, "cpuNanos": 790000, "allocatedBytes": 301240}, ...],
+ *   "total": {"wallNanos": ..., "cpuNanos": ..., "allocatedBytes": ...},
+ *   "counts": {"tokens": 81, "nodes": 52, "instructions": 61}}
+ *  </pre>
+ *  A measure the JVM can't take is reported as -1. If the compile failed
+ *  the report says why in an "error" field after "program", and the phase
+ *  that failed is the last one listed<br>
+ *  usage: java compiler.Compiler -metrics file|- [options] file
+*/
+public class PhaseMetrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // null if the JVM has no allocation counters
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+        THREADS instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean)THREADS : null;
+
+    static class Phase {
+        final String name;
+        long wallNanos, cpuNanos, allocatedBytes;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private final String program;
+    private final ArrayList<Phase> phases = new ArrayList<Phase>();
+    private final LinkedHashMap<String, Long> counts = new LinkedHashMap<String, Long>();
+    // why the compile failed; null if it didn't
+    private String error;
+    // the phase begun and not yet ended, and where it started
+    private Phase current;
+    private long wallStart, cpuStart, allocatedStart;
+
+/**
+ *  @param program is the name the report gives the program
+*/
+    public PhaseMetrics(String program) {
+        this.program = program;
+        if (THREADS.isCurrentThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+        if (ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemorySupported()
+                && !ALLOCATIONS.isThreadAllocatedMemoryEnabled()) {
+            ALLOCATIONS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+/**
+ *  start timing phase; the phase begun before it is ended first
+*/
+    public void begin(String phase) {
+        if (current != null) {
+            end();
+        }
+        current = new Phase(phase);
+        allocatedStart = allocatedBytes();
+        cpuStart = cpuNanos();
+        wallStart = System.nanoTime();
+    }
+
+/**
+ *  record the cost of the phase begun last
+*/
+    public void end() {
+        long wall = System.nanoTime();
+        long cpu = cpuNanos(), allocated = allocatedBytes();
+        if (current == null) {
+            return;
+        }
+        current.wallNanos = wall - wallStart;
+        current.cpuNanos = cpuStart < 0 ? -1 : cpu - cpuStart;
+        current.allocatedBytes = allocatedStart < 0 ? -1 : allocated - allocatedStart;
+        phases.add(current);
+        current = null;
+    }
+
+/**
+ *  record that the compile failed, ending the phase it failed in
+ *  @param error says why, e.g. the exception thrown
+*/
+    public void fail(String error) {
+        end();
+        this.error = error;
+    }
+
+/**
+ *  @param name names something the compile produced, e.g. tokens
+*/
+    public void count(String name, long value) {
+        counts.put(name, value);
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public Map<String, Long> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private static long cpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemorySupported()
+            ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+/**
+ *  write the report to file, or to System.out if file is -
+*/
+    public void writeJson(String file) throws IOException {
+        if (file.equals("-")) {
+            Writer out = new OutputStreamWriter(System.out);
+            writeJson(out);
+            out.flush();
+        } else {
+            try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                writeJson(out);
+            }
+        }
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        Phase total = new Phase("total");
+        out.write("{\"program\": " + quote(program) + ",\n ");
+        if (error != null) {
+            out.write("\"error\": " + quote(error) + ",\n ");
+        }
+        out.write("\"phases\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            out.write(i == 0 ? "\n  " : ",\n  ");
+            out.write("{\"name\": " + quote(phase.name) + ", " + measures(phase) + "}");
+            total.wallNanos += phase.wallNanos;
+            total.cpuNanos = add(total.cpuNanos, phase.cpuNanos);
+            total.allocatedBytes = add(total.allocatedBytes, phase.allocatedBytes);
+        }
+        out.write("],\n \"total\": {" + measures(total) + "},\n \"counts\": {");
+        String separator = "";
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            out.write(separator + quote(count.getKey()) + ": " + count.getValue());
+            separator = ", ";
+        }
+        out.write("}}\n");
+    }
+
+    private static String measures(Phase phase) {
+        return "\"wallNanos\": " + phase.wallNanos + ", \"cpuNanos\": " + phase.cpuNanos
+            + ", \"allocatedBytes\": " + phase.allocatedBytes;
+    }
+
+    // -1 for unknown stays -1
+    private static long add(long sum, long value) {
+        return sum < 0 || value < 0 ? -1 : sum + value;
+    }
+
+    static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int)c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
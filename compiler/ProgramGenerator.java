@@ -0,0 +1,427 @@
+package compiler;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ *  ProgramGenerator writes valid x programs of any size, for benchmarks
+ *  and stress tests that need inputs bigger than sample_files. A program
+ *  is made from a seed and these parameters:
+ *  <ul><li>size - the least number of chars to write; the main program
+ *  repeats nests of statements until it is reached
+ *  <li>declarations - the int variables of the program block; one
+ *  utf16String and one timestamp is declared for every 8 of them
+ *  <li>depth - how deeply blocks, ifs and whiles nest in each nest
+ *  <li>functions - the functions declared; each may call those before it
+ *  <li>expressionSize - the operators in each expression</ul>
+ *  The same seed and parameters always give the same program. Statements
+ *  mix int assignments, utf16String literals (a pair of backslash-u
+ *  escapes), timestamp literals and switch statements, and blocks
+ *  redeclare names of the scopes around them as in scopes.x<br>
+ *  The program is written as it is generated and the nesting is kept on
+ *  an explicit stack, so neither size nor depth is bounded by the heap or
+ *  the Java stack; indentation stops growing at MAX_INDENT levels<br>
+ *  usage: java compiler.ProgramGenerator [-seed n] [-size n[k|m|g]]
+ *  [-declarations n] [-depth n] [-functions n] [-expression n] [file]
+*/
+public class ProgramGenerator {
+    public static final long DEFAULT_SEED = 0;
+    public static final int MAX_INDENT = 32;
+
+    private static final String DIVIDE = " / ";
+    private static final String[] OPERATORS = {" + ", " * ", " - ", DIVIDE};
+    private static final String[] RELATIONS = {" < ", " <= ", " == ", " != ", " >= ", " > "};
+    // the nesting depth of each function body
+    private static final int FUNCTION_DEPTH = 2;
+    private static final int BLOCK = 0, IF = 1, WHILE = 2;
+
+    private final long seed, size;
+    private final int declarations, depth, functions, expressionSize;
+    private Writer out;
+    private long written;
+    private Random random;
+    // the parameter count of each function
+    private int[] arity;
+    // functions f0 .. f(callable - 1) may be called
+    private int callable;
+    // the names in scope by type; shadowing reuses a name, so only names
+    // declared fresh are added
+    private ArrayList<String> ints, strings, stamps;
+    // numbers the fresh names
+    private int nextName;
+
+/**
+ *  @param seed picks the program; see Random
+ *  @param size is the least number of chars to write
+*/
+    public ProgramGenerator(long seed, long size, int declarations, int depth,
+            int functions, int expressionSize) {
+        this.seed = seed;
+        this.size = size;
+        this.declarations = Math.max(declarations, 1);
+        this.depth = Math.max(depth, 0);
+        this.functions = Math.max(functions, 0);
+        this.expressionSize = Math.max(expressionSize, 0);
+    }
+
+/**
+ *  @return the program as a String
+*/
+    public String generate() {
+        StringWriter program = new StringWriter();
+        try {
+            write(program);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return program.toString();
+    }
+
+/**
+ *  write the program to out
+ *  @return the number of chars written
+*/
+    public long write(Writer out) throws IOException {
+        this.out = out;
+        written = 0;
+        random = new Random(seed);
+        nextName = 0;
+        ints = new ArrayList<String>();
+        strings = new ArrayList<String>();
+        stamps = new ArrayList<String>();
+        write("program {");
+        for (int d = 0; d < declarations; d++) {
+            write(d % 8 == 0 ? "\n  int x" + d : " int x" + d);
+            ints.add("x" + d);
+        }
+        write("\n ");
+        for (int d = 0; d < declarations; d += 8) {
+            write(" utf16String s" + d / 8 + " timestamp ts" + d / 8);
+            strings.add("s" + d / 8);
+            stamps.add("ts" + d / 8);
+        }
+        write("\n");
+        arity = new int[functions];
+        for (int f = 0; f < functions; f++) {
+            function(f);
+        }
+        callable = functions;
+        for (String x : ints) {
+            assign(1, x);
+        }
+        for (int s = 0; s < strings.size(); s++) {
+            write("  " + strings.get(s) + " = ");
+            utf16Literal();
+            write("\n  " + stamps.get(s) + " = ");
+            timeStampLiteral();
+            write("\n");
+        }
+        do {
+            statements(1, 2);
+            nest(1, depth);
+        } while (written < size);
+        write("  x0 = write(x0)\n}\n");
+        out.flush();
+        return written;
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s);
+        written += s.length();
+    }
+
+    private void function(int f) throws IOException {
+        arity[f] = 1 + random.nextInt(3);
+        ArrayList<String> outerInts = ints, outerStrings = strings, outerStamps = stamps;
+        ints = new ArrayList<String>();
+        strings = new ArrayList<String>();
+        stamps = new ArrayList<String>();
+        write("  int f" + f + "(");
+        for (int p = 0; p < arity[f]; p++) {
+            String formal = String.valueOf((char)('a' + p));
+            write(p == 0 ? "int " + formal : ", int " + formal);
+            ints.add(formal);
+        }
+        write(") { int t\n");
+        ints.add("t");
+        callable = f;
+        assign(2, "t");
+        statements(2, 1);
+        nest(2, Math.min(depth, FUNCTION_DEPTH));
+        write("    return t\n  }\n");
+        ints = outerInts;
+        strings = outerStrings;
+        stamps = outerStamps;
+    }
+
+/**
+ *  write depth levels of blocks, ifs and whiles, each holding a few
+ *  statements and the next level; the levels still open are kept on a
+ *  stack of {kind, fresh ints, fresh strings}
+ *  @param first is the level of the outermost one, for indentation
+*/
+    private void nest(int first, int depth) throws IOException {
+        ArrayDeque<int[]> open = new ArrayDeque<int[]>();
+        for (int level = first; level < first + depth; level++) {
+            String indent = indent(level);
+            int kind = random.nextInt(3);
+            int freshInts = 0, freshStrings = 0;
+            switch (kind) {
+                case BLOCK:
+                    write(indent + "{");
+                    // shadow names from the enclosing scopes, then add one
+                    HashSet<String> shadowed = new HashSet<String>();
+                    for (int i = random.nextInt(3); i > 0; i--) {
+                        String x = pick(ints);
+                        if (shadowed.add(x)) {
+                            write(" int " + x);
+                        }
+                    }
+                    if (!strings.isEmpty() && random.nextBoolean()) {
+                        write(" utf16String " + pick(strings));
+                    }
+                    String fresh = "y" + nextName++;
+                    write(" int " + fresh + "\n");
+                    ints.add(fresh);
+                    freshInts++;
+                    if (random.nextInt(4) == 0) {
+                        fresh = "u" + nextName++;
+                        write(indent + "  utf16String " + fresh + "\n");
+                        strings.add(fresh);
+                        freshStrings++;
+                    }
+                    break;
+                case IF:
+                    write(indent + "if (");
+                    condition();
+                    write(") then {\n");
+                    break;
+                default:
+                    String counter = pick(ints);
+                    write(indent + "while (" + counter + " > " + literal() + ") {\n");
+                    write(indent + "  " + counter + " = " + counter + " - 1\n");
+                    break;
+            }
+            open.push(new int[] {kind, freshInts, freshStrings});
+            statements(level + 1, 1 + random.nextInt(2));
+        }
+        for (int level = first + depth - 1; !open.isEmpty(); level--) {
+            int[] closing = open.pop();
+            String indent = indent(level);
+            statements(level + 1, random.nextInt(2));
+            if (closing[0] == IF) {
+                write(indent + "} else {\n");
+                statements(level + 1, 1);
+            }
+            write(indent + "}\n");
+            drop(ints, closing[1]);
+            drop(strings, closing[2]);
+        }
+    }
+
+/**
+ *  write count statements that don't nest further, except that a
+ *  switch case may be a block
+*/
+    private void statements(int level, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int choice = random.nextInt(20);
+            String indent = indent(level);
+            if (choice < 2 && !strings.isEmpty()) {
+                write(indent + pick(strings) + " = ");
+                utf16Literal();
+                write("\n");
+            } else if (choice < 4 && !stamps.isEmpty()) {
+                write(indent + pick(stamps) + " = ");
+                timeStampLiteral();
+                write("\n");
+            } else if (choice < 6) {
+                switchStatement(level);
+            } else if (choice < 8) {
+                String x = pick(ints);
+                write(indent + "{ int " + x + "\n");
+                assign(level + 1, x);
+                write(indent + "}\n");
+            } else {
+                assign(level, pick(ints));
+            }
+        }
+    }
+
+    private void assign(int level, String x) throws IOException {
+        write(indent(level) + x + " = ");
+        expression(expressionSize);
+        write("\n");
+    }
+
+/**
+ *  a switch on an int, in a block of its own: the parser ends a case
+ *  block without reading a right brace, so the brace that closes the
+ *  cases closes the enclosing block
+*/
+    private void switchStatement(int level) throws IOException {
+        String indent = indent(level), inner = indent(level + 1);
+        String x = pick(ints);
+        write(indent + "{ switch (" + x + ") {\n");
+        for (int c = 1 + random.nextInt(3); c > 0; c--) {
+            write(inner + "case [" + literal());
+            for (int more = random.nextInt(3); more > 0; more--) {
+                write(", " + literal());
+            }
+            write("] # ");
+            if (random.nextBoolean()) {
+                write(x + " = " + literal() + "\n");
+            } else {
+                write("{ int " + x + "  " + x + " = " + literal() + " }\n");
+            }
+        }
+        if (random.nextBoolean()) {
+            write(inner + "default # " + x + " = " + literal() + "\n");
+        }
+        write(indent + "}\n");
+    }
+
+    private void condition() throws IOException {
+        expression(Math.min(expressionSize, 2));
+        write(RELATIONS[random.nextInt(RELATIONS.length)]);
+        operand();
+    }
+
+/**
+ *  an expression of operators over the ints in scope, literals and calls;
+ *  some operands are parenthesized and every divisor is a literal, so
+ *  the program can run
+*/
+    private void expression(int operators) throws IOException {
+        operand();
+        for (int i = 0; i < operators; i++) {
+            String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+            write(operator);
+            if (operator == DIVIDE) {
+                write(literal());
+            } else if (random.nextInt(4) == 0) {
+                write("(");
+                operand();
+                write(" + " + literal() + ")");
+            } else {
+                operand();
+            }
+        }
+    }
+
+    private void operand() throws IOException {
+        int choice = random.nextInt(8);
+        if (choice < 4 || (choice >= 6 && callable == 0)) {
+            write(pick(ints));
+        } else if (choice < 6) {
+            write(literal());
+        } else {
+            int f = random.nextInt(callable);
+            write("f" + f + "(");
+            for (int p = 0; p < arity[f]; p++) {
+                write(p == 0 ? "" : ", ");
+                write(random.nextBoolean() ? pick(ints) : literal());
+            }
+            write(")");
+        }
+    }
+
+    private String literal() {
+        return Integer.toString(1 + random.nextInt(999));
+    }
+
+/**
+ *  two backslash-u escapes; the lexer wants whitespace after the
+ *  literal, so a space is written too
+*/
+    private void utf16Literal() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            write(String.format("%cu%04x", '\\', 0x20 + random.nextInt(0xd7ff - 0x20)));
+        }
+        write(" ");
+    }
+
+/**
+ *  yyyy~mm~dd~hh:mm:ss followed by the space the lexer wants; minutes
+ *  start at 1
+*/
+    private void timeStampLiteral() throws IOException {
+        write(String.format("%04d~%02d~%02d~%02d:%02d:%02d ",
+            1000 + random.nextInt(9000), 1 + random.nextInt(12), 1 + random.nextInt(28),
+            random.nextInt(24), 1 + random.nextInt(59), random.nextInt(60)));
+    }
+
+    private String pick(ArrayList<String> names) {
+        return names.get(random.nextInt(names.size()));
+    }
+
+    private static void drop(ArrayList<String> names, int count) {
+        for (int i = 0; i < count; i++) {
+            names.remove(names.size() - 1);
+        }
+    }
+
+    private static String indent(int level) {
+        char[] spaces = new char[2 * Math.min(level, MAX_INDENT)];
+        Arrays.fill(spaces, ' ');
+        return new String(spaces);
+    }
+
+/**
+ *  @param value is a count with an optional k, m or g suffix
+*/
+    static long parseSize(String value) {
+        long unit = 1;
+        switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'k': unit = 1L << 10; break;
+            case 'm': unit = 1L << 20; break;
+            case 'g': unit = 1L << 30; break;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * unit;
+    }
+
+    private static void usage() {
+        System.out.println("***Incorrect usage, try: java compiler.ProgramGenerator [-seed n] [-size n[k|m|g]]"
+            + " [-declarations n] [-depth n] [-functions n] [-expression n] [file]");
+        System.exit(1);
+    }
+
+    public static void main(String args[]) {
+        long seed = DEFAULT_SEED, size = 0;
+        int declarations = 16, depth = 12, functions = 100, expressionSize = 8;
+        int arg = 0;
+        try {
+            while (arg + 1 < args.length && args[arg].startsWith("-")) {
+                String value = args[arg + 1];
+                switch (args[arg]) {
+                    case "-seed": seed = Long.parseLong(value); break;
+                    case "-size": size = parseSize(value); break;
+                    case "-declarations": declarations = Integer.parseInt(value); break;
+                    case "-depth": depth = Integer.parseInt(value); break;
+                    case "-functions": functions = Integer.parseInt(value); break;
+                    case "-expression": expressionSize = Integer.parseInt(value); break;
+                    default: usage();
+                }
+                arg += 2;
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (arg < args.length - 1 || (arg < args.length && args[arg].startsWith("-"))) {
+            usage();
+        }
+        ProgramGenerator generator = new ProgramGenerator(seed, size, declarations, depth,
+            functions, expressionSize);
+        try (Writer out = new BufferedWriter(arg < args.length
+                ? new OutputStreamWriter(new FileOutputStream(args[arg]), "ISO-8859-1")
+                : new OutputStreamWriter(System.out, "ISO-8859-1"), 1 << 16)) {
+            generator.write(out);
+        } catch (IOException e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
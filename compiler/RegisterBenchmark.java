@@ -0,0 +1,125 @@
+package compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import codegen.*;
+import diagnostics.Diagnostics;
+import vm.*;
+
+/**
+ *  RegisterBenchmark compares the stack bytecodes run by VirtualMachine
+ *  with the register code run by RegisterMachine on fib.x and
+ *  factorial.x: the number of instructions in each program, the number
+ *  each one executes and the time it takes. strings.x checks that a
+ *  program with string literals, which has no register form, still
+ *  compiles to bytecodes and is reported rather than run<br>
+ *  usage: java compiler.RegisterBenchmark [directory]
+*/
+public class RegisterBenchmark {
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 30;
+    // each program with the input it reads
+    private static final String[][] PROGRAMS = {
+        {"fib.x", "24\n"},
+        // factorial.x reads until the input runs out
+        {"factorial.x", "12\n".repeat(20000)},
+        // has no register form, so it is compiled but not run
+        {"strings.x", ""}
+    };
+
+    private final String dir;
+
+/**
+ *  @param dir holds fib.x, factorial.x and strings.x
+*/
+    public RegisterBenchmark(String dir) {
+        this.dir = dir;
+    }
+
+    public void run() throws Exception {
+        for (String[] program : PROGRAMS) {
+            Compiler compiler = new Compiler(Paths.get(dir, program[0]).toString(),
+                new Diagnostics(Diagnostics.Mode.OFF));
+            compiler.registers = true;
+            Program stackCode = compiler.translate();
+            if (compiler.registerProgram == null) {
+                System.out.println(program[0]);
+                System.out.printf("  %-9s %5d instructions  no register form%n",
+                    "stack", stackCode.getCodes().size());
+                continue;
+            }
+            Executable executable = Loader.load(stackCode);
+            RegisterProgram registerCode = compiler.registerProgram;
+            byte[] input = program[1].getBytes(StandardCharsets.US_ASCII);
+
+            long stackSteps = 0, registerSteps = 0;
+            long[] stackTimes = new long[MEASURED_RUNS], registerTimes = new long[MEASURED_RUNS];
+            for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+                VirtualMachine stack = new VirtualMachine(
+                    new ByteArrayInputStream(input), discard());
+                long start = System.nanoTime();
+                runToEnd(() -> stack.execute(executable));
+                long stackTime = System.nanoTime() - start;
+                RegisterMachine registers = new RegisterMachine(
+                    new ByteArrayInputStream(input), discard());
+                start = System.nanoTime();
+                runToEnd(() -> registers.execute(registerCode));
+                long registerTime = System.nanoTime() - start;
+                if (run >= 0) {
+                    stackTimes[run] = stackTime;
+                    registerTimes[run] = registerTime;
+                }
+                stackSteps = stack.getExecuted();
+                registerSteps = registers.getExecuted();
+            }
+            System.out.println(program[0]);
+            System.out.printf("  %-9s %5d instructions  %,12d executed  %8.3f ms%n",
+                "stack", executable.size(), stackSteps, median(stackTimes) / 1e6);
+            System.out.printf("  %-9s %5d instructions  %,12d executed  %8.3f ms%n",
+                "register", registerCode.size(), registerSteps, median(registerTimes) / 1e6);
+        }
+    }
+
+    interface Execution {
+        void run() throws VMException;
+    }
+
+/**
+ *  run a program that may stop by reading past the end of its input
+*/
+    static void runToEnd(Execution execution) throws VMException {
+        try {
+            execution.run();
+        } catch (VMException e) {
+            if (!e.getMessage().startsWith("READ: no more input")) {
+                throw e;
+            }
+        }
+    }
+
+    static long median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    static PrintStream discard() {
+        return new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 1) {
+            System.out.println("***Incorrect usage, try: java compiler.RegisterBenchmark [directory]");
+            System.exit(1);
+        }
+        try {
+            new RegisterBenchmark(
+                args.length == 0 ? StartupTraining.SAMPLES : args[0]).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
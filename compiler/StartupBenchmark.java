@@ -0,0 +1,107 @@
+package compiler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ *  StartupBenchmark measures time to first bytecode: the wall time from
+ *  starting a fresh JVM on <tt>java compiler.Compiler -diag off fib.x</tt>
+ *  until it exits with fib.x.cod written. It compares:
+ *  <ul><li>no class data sharing (-Xshare:off)
+ *  <li>the JDK's default archive, which covers only JDK classes
+ *  <li>the AppCDS archive written by -dumpcds, if there is one</ul>
+ *  usage: java compiler.StartupBenchmark [archive]
+*/
+public class StartupBenchmark {
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 10;
+    private static final String PROGRAM = "fib.x";
+
+    private final String archive;
+    private Path program;
+
+/**
+ *  @param archive is the AppCDS archive to measure
+*/
+    public StartupBenchmark(String archive) {
+        this.archive = archive;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        // compile a copy so the benchmark never writes into sample_files
+        Path dir = Files.createTempDirectory("startbench");
+        program = dir.resolve(PROGRAM);
+        Files.copy(Paths.get(StartupTraining.SAMPLES, PROGRAM), program);
+        try {
+            String classPath = System.getProperty("java.class.path");
+            time("no CDS", "-Xshare:off", classPath);
+            time("JDK CDS", "-Xshare:auto", classPath);
+            if (Files.exists(Paths.get(archive))) {
+                time("AppCDS", "-XX:SharedArchiveFile=" + archive,
+                     StartupTraining.jarFor(archive).toString());
+            } else {
+                System.out.println("no archive " + archive
+                    + "; run java compiler.Compiler -dumpcds first");
+            }
+        } finally {
+            Files.deleteIfExists(Paths.get(program + ".cod"));
+            Files.deleteIfExists(program);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    void time(String name, String share, String classPath)
+            throws IOException, InterruptedException {
+        List<String> command = Arrays.asList(StartupTraining.javaCommand(), share,
+            "-cp", classPath,
+            "compiler.Compiler", "-diag", "off", program.toString());
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            launch(command);
+        }
+        long[] runs = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            runs[i] = launch(command);
+        }
+        Arrays.sort(runs);
+        long total = 0;
+        for (long run : runs) {
+            total += run;
+        }
+        System.out.printf("%-8s time to first bytecode  mean: %.1f ms  median: %.1f ms  best: %.1f ms%n",
+            name, total / (double)runs.length / 1e6,
+            runs[runs.length / 2] / 1e6, runs[0] / 1e6);
+    }
+
+/**
+ *  @return the nanoseconds from starting the JVM until it exits
+*/
+    long launch(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        process.waitFor();
+        long elapsed = System.nanoTime() - start;
+        if (!Files.exists(Paths.get(program + ".cod"))) {
+            throw new IOException("no bytecodes written by " + command);
+        }
+        Files.delete(Paths.get(program + ".cod"));
+        return elapsed;
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 1) {
+            System.out.println("***Incorrect usage, try: java compiler.StartupBenchmark [archive]");
+            System.exit(1);
+        }
+        try {
+            new StartupBenchmark(
+                args.length == 0 ? StartupTraining.ARCHIVE : args[0]).run();
+        } catch (Exception e) {
+            System.out.println("********exception*******" + e.toString());
+            System.exit(1);
+        }
+    }
+}
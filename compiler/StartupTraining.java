@@ -0,0 +1,141 @@
+package compiler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.*;
+import java.util.stream.*;
+import codegen.Program;
+import diagnostics.Diagnostics;
+
+/**
+ *  StartupTraining builds the class data sharing (AppCDS) archive that
+ *  lets the compiler start without loading, parsing and verifying its
+ *  classes from scratch<br>
+ *  The training run compiles every program in sample_files through
+ *  every stage - with trace output both on and off so the printing
+ *  code is exercised too - and writes nothing; dumping the archive runs
+ *  the training in a child JVM started with -XX:ArchiveClassesAtExit,
+ *  so every class the pipeline needs is in the archive already parsed
+ *  and verified. The static initializers of TokenType and Codes still
+ *  run at startup; a dynamic archive only holds class metadata<br>
+ *  The JVM only archives classes loaded from jar files, so the class
+ *  directories on the class path are first packed into compiler.jar
+ *  next to the archive; the archive is only valid with that jar<br>
+ *  compile.sh starts the compiler from the jar and the archive when they
+ *  are newer than the compiled classes<br>
+ *  usage: java compiler.Compiler -dumpcds [archive]<br>
+ *  java compiler.Compiler -train [directory]
+*/
+public class StartupTraining {
+    public static final String ARCHIVE = "compiler.jsa";
+    public static final String JAR = "compiler.jar";
+    public static final String SAMPLES = "sample_files";
+
+/**
+ *  compile every .x program in samples; nothing is written
+ *  @return the number of programs compiled
+*/
+    public int train(String samples) throws IOException {
+        List<String> files = BatchCompiler.sourceFiles(new String[] {samples});
+        // trace output is built and dropped so PrintVisitor and the
+        // bytecode echo are trained as well
+        Diagnostics[] modes = {dropAll(Diagnostics.Mode.CONSOLE), dropAll(Diagnostics.Mode.OFF)};
+        for (String file : files) {
+            for (Diagnostics diagnostics : modes) {
+                try {
+                    Program program = new Compiler(file, diagnostics).translate();
+                    program.printCodes(new PrintWriter(new StringWriter()));
+                } catch (Exception e) {
+                    // sample_files has programs with syntax and constraint
+                    // errors on purpose; their error paths are trained too
+                }
+            }
+        }
+        return files.size();
+    }
+
+/**
+ *  @return a sink in the given mode that drops trace output and errors
+*/
+    static Diagnostics dropAll(Diagnostics.Mode mode) {
+        return new Diagnostics(mode) {
+            @Override
+            public void trace(String line) {}
+
+            @Override
+            public void trace(char[] buffer, int start, int end) {}
+
+            @Override
+            public void error(String message) {}
+        };
+    }
+
+/**
+ *  run the training in a child JVM that writes the archive when it exits
+ *  @param archive is the archive file to write
+ *  @return the exit status of the child JVM
+*/
+    public int dump(String archive, String samples) throws IOException, InterruptedException {
+        Path jar = jarFor(archive);
+        pack(jar);
+        List<String> command = new ArrayList<String>();
+        command.add(javaCommand());
+        command.add("-XX:ArchiveClassesAtExit=" + archive);
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add("compiler.Compiler");
+        command.add("-train");
+        command.add(samples);
+        int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (status == 0) {
+            System.out.println("wrote " + Paths.get(archive).toAbsolutePath()
+                + " for " + jar.toAbsolutePath());
+        }
+        return status;
+    }
+
+/**
+ *  @return the jar the archive is dumped for; it is next to the archive
+*/
+    static Path jarFor(String archive) {
+        Path parent = Paths.get(archive).toAbsolutePath().getParent();
+        return parent.resolve(JAR);
+    }
+
+/**
+ *  pack the classes of every directory on the class path into jar
+*/
+    void pack(Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            Set<String> added = new HashSet<String>();
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                Path root = Paths.get(entry);
+                if (!Files.isDirectory(root)) {
+                    continue;
+                }
+                List<Path> classes;
+                try (Stream<Path> walk = Files.walk(root)) {
+                    classes = walk.filter(f -> f.toString().endsWith(".class"))
+                                  .sorted()
+                                  .collect(Collectors.toList());
+                }
+                for (Path file : classes) {
+                    String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (added.add(name)) {
+                        out.putNextEntry(new JarEntry(name));
+                        Files.copy(file, out);
+                        out.closeEntry();
+                    }
+                }
+            }
+        }
+    }
+
+/**
+ *  @return the java launcher running this JVM
+*/
+    static String javaCommand() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+}
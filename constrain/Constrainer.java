@@ -15,9 +15,11 @@ import java.util.*;
  *  Note that when constraining expression trees we return the type tree
  *  corresponding to the result type of the expression; e.g. 
  *  the result of constraining the tree for 1+2*3 will be the int type
- *  tree
+ *  tree<br>
+ *  The context of each visit is the decl tree of the function being
+ *  constrained; null in the main program
 */
-public class Constrainer extends ASTVisitor {
+public class Constrainer extends TypedASTVisitor<AST, AST> {
 	public enum ConstrainerErrors {
 	    BadAssignmentType, CallingNonFunction, ActualFormalTypeMismatch, NumberActualsFormalsDiffer, TypeMismatchInExpr,
 	    BooleanExprExpected, BadConditional, ReturnNotInFunction, BadReturnExpr
@@ -29,29 +31,6 @@ public class Constrainer extends ASTVisitor {
     private Table symtab = new Table();
     private Parser parser;   // parser used with this constrainer
     
-/**
- *  The following comment refers to the functions stack
- *  declared below the comment.
- *  Whenever we start constraining a function declaration
- *  we push the function decl tree which indicates we're
- *  in a function (to ensure that we don't attempt to return
- *  from the main program - return's are only allowed from
- *  within functions); it also gives us access to the return
- *  type to ensure the type of the expr that is returned is
- *  the same as the type declared in the function header
-*/
-    private Stack<AST> functions = new Stack<AST>();
-
-/**
- *  readTree, writeTree, intTree, boolTree,falseTree, trueTree
- *  are AST's that will be constructed (intrinsic trees) for
- *  every program. They are constructed in the same fashion as
- *  source program trees to ensure consisten processing of 
- *  functions, etc.
-*/
-    public static AST readTree, writeTree, intTree, boolTree, utfTree, timeStampTree,
-               falseTree, trueTree, readId, writeId;
-               
     public Constrainer(AST t, Parser parser) {
         this.t = t;
         this.parser = parser;
@@ -59,7 +38,7 @@ public class Constrainer extends ASTVisitor {
     
     public void execute() {
         symtab.beginScope();
-        t.accept(this);
+        visit(t, null);
     }
 
 /**
@@ -87,13 +66,13 @@ public class Constrainer extends ASTVisitor {
 */
     private AST getType(AST t) {
         if(t.getClass() == IntTypeTree.class){
-            return intTree;
+            return Prelude.intTree;
         }else if (t.getClass() == BoolTypeTree.class){
-            return boolTree;
+            return Prelude.boolTree;
         } else if (t.getClass() == UstringTypeTree.class){
-            return utfTree;
+            return Prelude.utfTree;
         } else{
-            return timeStampTree;
+            return Prelude.timeStampTree;
         }
         
         
@@ -112,53 +91,23 @@ public class Constrainer extends ASTVisitor {
     }
     
 /**
- *  build the intrinsic trees; constrain them in the same fashion
- *  as any other AST
+ *  enter the names of the intrinsic functions read and write in the
+ *  outermost scope; the names are given the symbols of this compilation
+ *  so uses of read and write in the program find the Prelude trees
 */
-    private void buildIntrinsicTrees() {
+    private void enterPrelude() {
         Lexer lex = parser.getLex();
-        trueTree = new IdTree(lex.newIdToken("true",-1,-1));
-        falseTree = new IdTree(lex.newIdToken("false",-1,-1));
-        readId = new IdTree(lex.newIdToken("read",-1,-1));
-        writeId = new IdTree(lex.newIdToken("write",-1,-1));
-        boolTree = (new DeclTree()).addKid(new BoolTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<bool>>",-1,-1)));
-        decorate(boolTree.getKid(2),boolTree);  
-        intTree = (new DeclTree()).addKid(new IntTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<int>>",-1,-1)));
-        decorate(intTree.getKid(2),intTree);  
-        utfTree = (new DeclTree()).addKid(new UstringTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<utf16String>>",-1,-1)));
-        decorate(utfTree.getKid(2),utfTree);  
-        timeStampTree = (new DeclTree()).addKid(new TimeStampTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<timestamp>>",-1,-1)));
-        decorate(timeStampTree.getKid(2),timeStampTree);  
-        // to facilitate type checking; this ensures int decls and id decls
-        // have the same structure
-        
-        // read tree takes no parms and returns an int
-        readTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
-                       addKid(readId).addKid(new FormalsTree()).
-                       addKid(new BlockTree());
-        
-        // write tree takes one int parm and returns that value
-        writeTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
-                       addKid(writeId);
-        AST decl = (new DeclTree()).addKid(new IntTypeTree()).
-                       addKid(new IdTree(lex.newIdToken("dummyFormal",-1,-1)));
-        AST formals = (new FormalsTree()).addKid(decl);
-        writeTree.addKid(formals).addKid(new BlockTree());
-        writeTree.accept(this);
-        readTree.accept(this);
+        symtab.put(lex.newIdToken("read",-1,-1).getSymbol(), Prelude.readTree);
+        symtab.put(lex.newIdToken("write",-1,-1).getSymbol(), Prelude.writeTree);
     }
     
 /**
  *  Constrain the program tree - visit its kid
 */
-    public Object visitProgramTree(AST t) {
-        buildIntrinsicTrees();
+    public AST visitProgramTree(AST t, AST function) {
+        enterPrelude();
         this.t = t;
-        t.getKid(1).accept(this);
+        visit(t.getKid(1), function);
         return null;
     }
 
@@ -167,30 +116,31 @@ public class Constrainer extends ASTVisitor {
  *  <ol><li>open a new scope, <li>constrain the kids in this new scope, <li>close the
  *  scope removing any local declarations from this scope</ol>
 */
-    public Object visitBlockTree(AST t) {
+    public AST visitBlockTree(AST t, AST function) {
         symtab.beginScope();
-        visitKids(t);
+        visitKids(t, function);
         symtab.endScope();
         return null; }
         
 /**
  *  Constrain the FunctionDeclTree:
  *  <ol><li>Enter the function name in the current scope, <li>enter the formals
- *  in the function scope and <li>constrain the body of the function</ol>
+ *  in the function scope and <li>constrain the body of the function; t is
+ *  the context of the formals and body, so a return in the body can
+ *  check its type against the function's and a return in the main
+ *  program is caught</ol>
 */
-    public Object visitFunctionDeclTree(AST t) {
+    public AST visitFunctionDeclTree(AST t, AST function) {
         AST fname = t.getKid(2),
             returnType = t.getKid(1),
             formalsTree = t.getKid(3),
             bodyTree = t.getKid(4);
-        functions.push(t);
         enter(fname,t);  // enter function name in CURRENT scope
         decorate(returnType,getType(returnType));
         symtab.beginScope();  // new scope for formals and body
-        visitKids(formalsTree); // all formal names go in new scope
-        bodyTree.accept(this);
+        visitKids(formalsTree, t); // all formal names go in new scope
+        visit(bodyTree, t);
         symtab.endScope();
-        functions.pop();
         return null;
     }
         
@@ -199,11 +149,11 @@ public class Constrainer extends ASTVisitor {
  *  check that the number and types of the actuals match the
  *  number and type of the formals
 */
-    public Object visitCallTree(AST t) {
+    public AST visitCallTree(AST t, AST function) {
         AST fct,
             fname = t.getKid(1),
             fctType;
-        visitKids(t);
+        visitKids(t, function);
         fct = lookup(fname);
         if (fct.getClass() != FunctionDeclTree.class) {
             constraintError(ConstrainerErrors.CallingNonFunction);
@@ -247,7 +197,7 @@ public class Constrainer extends ASTVisitor {
  *  variable in the current scope so later variable references can
  *  retrieve the information in this tree</ol>
 */
-    public Object visitDeclTree(AST t) {
+    public AST visitDeclTree(AST t, AST function) {
         AST idTree = t.getKid(2);
         enter(idTree,t);
         AST typeTree = getType(t.getKid(1));
@@ -258,20 +208,20 @@ public class Constrainer extends ASTVisitor {
  *  Constrain the <i>If</i> tree:<br>
  *  check that the first kid is an expression that is a boolean type
 */
-    public Object visitIfTree(AST t) {
-        if ( t.getKid(1).accept(this) != boolTree) {
+    public AST visitIfTree(AST t, AST function) {
+        if (visit(t.getKid(1), function) != Prelude.boolTree) {
             constraintError(ConstrainerErrors.BadConditional);
         }
-        t.getKid(2).accept(this);
-        t.getKid(3).accept(this);
+        visit(t.getKid(2), function);
+        visit(t.getKid(3), function);
         return null;
     }
         
-    public Object visitWhileTree(AST t) {
-        if ( t.getKid(1).accept(this) != boolTree) {
+    public AST visitWhileTree(AST t, AST function) {
+        if (visit(t.getKid(1), function) != Prelude.boolTree) {
             constraintError(ConstrainerErrors.BadConditional);
         }
-        t.getKid(2).accept(this);
+        visit(t.getKid(2), function);
         return null;
     }
 
@@ -283,14 +233,13 @@ public class Constrainer extends ASTVisitor {
  *  Check that the returned expression type matches the type indicated
  *  in the function we're returning from
 */
-    public Object visitReturnTree(AST t) {
-        if (functions.empty()) {
+    public AST visitReturnTree(AST t, AST function) {
+        if (function == null) {
             constraintError(ConstrainerErrors.ReturnNotInFunction);
         }
-        AST currentFunction = (functions.peek());
-        decorate(t,currentFunction);
-        AST returnType = decoration(currentFunction.getKid(1));
-        if ( (t.getKid(1).accept(this)) != returnType) {
+        decorate(t,function);
+        AST returnType = decoration(function.getKid(1));
+        if (visit(t.getKid(1), function) != returnType) {
             constraintError(ConstrainerErrors.BadReturnExpr);
         }
         return null;
@@ -304,7 +253,7 @@ public class Constrainer extends ASTVisitor {
  *  match; when we constrain an expression we'll return a reference
  *  to the intrinsic type tree describing the type of the expression
 */
-    public Object visitAssignTree(AST t) {
+    public AST visitAssignTree(AST t, AST function) {
         AST idTree = t.getKid(1),
             idDecl = lookup(idTree),
             typeTree;
@@ -313,55 +262,55 @@ public class Constrainer extends ASTVisitor {
         
         // now check that the types of the expr and id are the same
         // visit the expr tree and get back its type
-        if ( (t.getKid(2).accept(this)) != typeTree) {
+        if (visit(t.getKid(2), function) != typeTree) {
             constraintError(ConstrainerErrors.BadAssignmentType);
         }
         return null;
     }
         
-    public Object visitIntTree(AST t) {
-        decorate(t,intTree);
-        return intTree;
+    public AST visitIntTree(AST t, AST function) {
+        decorate(t,Prelude.intTree);
+        return Prelude.intTree;
     }
 
-    public Object visitUtfStringLitTree(AST t) {
-        decorate(t,utfTree);
-        return utfTree;
+    public AST visitUtfStringLitTree(AST t, AST function) {
+        decorate(t,Prelude.utfTree);
+        return Prelude.utfTree;
     }
 
-    public Object visitTimeStampLitTree(AST t) {
-        decorate(t,timeStampTree);
-        return timeStampTree;
+    public AST visitTimeStampLitTree(AST t, AST function) {
+        decorate(t,Prelude.timeStampTree);
+        return Prelude.timeStampTree;
     }
 
 
    
-    public Object visitIdTree(AST t) {
+    public AST visitIdTree(AST t, AST function) {
         AST decl = lookup(t);
         decorate(t,decl);
         return decoration(decl.getKid(2));
     }
         
-    public Object visitRelOpTree(AST t) {
+    public AST visitRelOpTree(AST t, AST function) {
         AST leftOp = t.getKid(1),
             rightOp = t.getKid(2);
-        if ( (AST)(leftOp.accept(this)) != (AST)(rightOp.accept(this)) ) {
+        if (visit(leftOp, function) != visit(rightOp, function)) {
             constraintError(ConstrainerErrors.TypeMismatchInExpr);
         }
-        decorate(t,boolTree);
-        return boolTree;
+        decorate(t,Prelude.boolTree);
+        return Prelude.boolTree;
     }
  
 /**
  *  Constrain the expression tree with an adding op at the root:<br>
  *  e.g. t1 + t2<br>
  *  check that the types of t1 and t2 match, if it's a plus tree
- *  then the types must be a reference to the intTree
+ *  then the types must be a reference to the Prelude.intTree
  *  @return the type of the tree
 */
-    public Object visitAddOpTree(AST t) {
-        AST leftOpType = (AST)(t.getKid(1).accept(this)),
-            rightOpType = (AST)(t.getKid(2).accept(this));
+    public AST visitAddOpTree(AST t, AST function) {
+        AST leftOpType = visit(t.getKid(1), function),
+            rightOpType = visit(t.getKid(2), function);
         if (leftOpType != rightOpType) {
             constraintError(ConstrainerErrors.TypeMismatchInExpr);
         }
@@ -369,57 +318,50 @@ public class Constrainer extends ASTVisitor {
         return leftOpType;
     }
         
-    public Object visitMultOpTree(AST t) {
-        return visitAddOpTree(t);
+    public AST visitMultOpTree(AST t, AST function) {
+        return visitAddOpTree(t, function);
     }
 
-    public Object visitIntTypeTree(AST t) {return null;}
-    public Object visitBoolTypeTree(AST t) {return null;}
-    public Object visitFormalsTree(AST t) {return null;}
-    public Object visitActualArgsTree(AST t) {return null;}
-    public Object visitUstringTypeTree(AST t) {return null;}
-    public Object visitTimeStampTypeTree(AST t) {return null;}
+    public AST visitIntTypeTree(AST t, AST function) {return null;}
+    public AST visitBoolTypeTree(AST t, AST function) {return null;}
+    public AST visitFormalsTree(AST t, AST function) {return null;}
+    public AST visitActualArgsTree(AST t, AST function) {return null;}
+    public AST visitUstringTypeTree(AST t, AST function) {return null;}
+    public AST visitTimeStampTypeTree(AST t, AST function) {return null;}
     
     void constraintError(ConstrainerErrors err) {
-        PrintVisitor v1 = new PrintVisitor();
+        PrintVisitor v1 = new PrintVisitor(parser.getDiagnostics());
         v1.visitProgramTree(t);
-        System.out.println("****CONSTRAINER ERROR: " + err + "   ****");
-        System.exit(1);
-        return;
-    }
-
-    @Override
-    public Object visitSwitchBlockTree(AST t) {
-        // TODO Auto-generated method stub
-        return null;
+        parser.getDiagnostics().error("****CONSTRAINER ERROR: " + err + "   ****");
+        throw new ConstraintError(err);
     }
 
     @Override
-    public Object visitSwitchTree(AST t) {
+    public AST visitSwitchTree(AST t, AST function) {
         // TODO Auto-generated method stub
         return null;
     }
 
     @Override
-    public Object visitCaseBlockTree(AST t) {
+    public AST visitCaseBlockTree(AST t, AST function) {
         // TODO Auto-generated method stub
         return null;
     }
 
     @Override
-    public Object visitCaseStatementTree(AST t) {
+    public AST visitCaseStatementTree(AST t, AST function) {
         // TODO Auto-generated method stub
         return null;
     }
 
     @Override
-    public Object visitCaseListTree(AST t) {
+    public AST visitCaseListTree(AST t, AST function) {
         // TODO Auto-generated method stub
         return null;
     }
 
     @Override
-    public Object visitDefaultStatementTree(AST t) {
+    public AST visitDefaultStatementTree(AST t, AST function) {
         // TODO Auto-generated method stub
         return null;
     }
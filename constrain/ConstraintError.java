@@ -0,0 +1,25 @@
+package constrain;
+
+/**
+ *  ConstraintError is thrown by the Constrainer after it has reported a
+ *  constraint error; it ends the compilation of the program but, unlike
+ *  exiting the JVM, lets a driver compiling many programs carry on with
+ *  the others
+*/
+public class ConstraintError extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+    private Constrainer.ConstrainerErrors error;
+
+/**
+ *  @param error is the constraint that the program violates
+*/
+    public ConstraintError(Constrainer.ConstrainerErrors error) {
+        super("****CONSTRAINER ERROR: " + error + "   ****");
+        this.error = error;
+    }
+
+    public Constrainer.ConstrainerErrors getError() {
+        return error;
+    }
+}
@@ -0,0 +1,81 @@
+package constrain;
+
+import lexer.*;
+import ast.*;
+
+/**
+ *  The Prelude holds the intrinsic trees - the type trees for int, boolean,
+ *  utf16String and timestamp and the function trees for read and write;
+ *  they are built once, decorated and labelled as the constrainer and the
+ *  code generator expect, and are never changed afterwards, so every
+ *  compilation shares them<br>
+ *  The type of an expression is one of the type trees, so types are
+ *  compared by identity; e.g. an if condition must have type
+ *  <tt>Prelude.boolTree</tt><br>
+ *  The intrinsic nodes are numbered -1, -2 ...; see NodeIds<br>
+ *  The intrinsic names have their own symbols; each compilation enters
+ *  the names of read and write with the symbols of its own SymbolTable
+ *  (see Constrainer.enterPrelude)
+*/
+public final class Prelude {
+
+    public static final String READ_LABEL = "Read", WRITE_LABEL = "Write";
+
+    public static final AST trueTree, falseTree, readId, writeId,
+        boolTree, intTree, utfTree, timeStampTree, readTree, writeTree;
+
+    // the symbols of the intrinsic names; shared by every compilation
+    private static final SymbolTable symbols = new SymbolTable();
+
+    static {
+        trueTree = id("true");
+        falseTree = id("false");
+        readId = id("read");
+        writeId = id("write");
+        boolTree = (new DeclTree()).addKid(new BoolTypeTree()).
+                 addKid(id("<<bool>>"));
+        boolTree.getKid(2).setDecoration(boolTree);
+        intTree = (new DeclTree()).addKid(new IntTypeTree()).
+                 addKid(id("<<int>>"));
+        intTree.getKid(2).setDecoration(intTree);
+        utfTree = (new DeclTree()).addKid(new UstringTypeTree()).
+                 addKid(id("<<utf16String>>"));
+        utfTree.getKid(2).setDecoration(utfTree);
+        timeStampTree = (new DeclTree()).addKid(new TimeStampTypeTree()).
+                 addKid(id("<<timestamp>>"));
+        timeStampTree.getKid(2).setDecoration(timeStampTree);
+        // to facilitate type checking; this ensures int decls and id decls
+        // have the same structure
+
+        // read tree takes no parms and returns an int
+        readTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
+                       addKid(readId).addKid(new FormalsTree()).
+                       addKid(new BlockTree());
+
+        // write tree takes one int parm and returns that value
+        writeTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
+                       addKid(writeId);
+        AST decl = (new DeclTree()).addKid(new IntTypeTree()).
+                       addKid(id("dummyFormal"));
+        AST formals = (new FormalsTree()).addKid(decl);
+        writeTree.addKid(formals).addKid(new BlockTree());
+
+        // the decorations constraining the function trees would add
+        readTree.getKid(1).setDecoration(intTree);
+        writeTree.getKid(1).setDecoration(intTree);
+        decl.getKid(2).setDecoration(intTree);
+        readTree.setLabel(READ_LABEL);
+        writeTree.setLabel(WRITE_LABEL);
+        NodeIds ids = NodeIds.intrinsic();
+        for (AST t : new AST[] {trueTree, falseTree, boolTree, intTree, utfTree,
+                                timeStampTree, readTree, writeTree}) {
+            ids.numberAll(t);
+        }
+    }
+
+    private Prelude() {}
+
+    private static AST id(String name) {
+        return new IdTree(new Token(-1, -1, -1, symbols.symbol(name, Tokens.Identifier)));
+    }
+}
@@ -0,0 +1,202 @@
+package diagnostics;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ *  Diagnostics is the sink for the trace output of the compiler stages
+ *  (source echo, token/AST dumps, generated bytecodes) and for their
+ *  error messages; it is shared by the lexer, parser, constrainer and
+ *  code generator<br>
+ *  The sink runs in one of the following modes:
+ *  <ul><li>OFF - trace output is dropped; only errors are printed
+ *  <li>CONSOLE - trace output is printed to System.out as it is produced
+ *  <li>TRACE - trace output is collected in large chunks and written to
+ *  System.out by a background thread so the compile never waits on the
+ *  console</ul>
+ *  Errors are always printed; in TRACE mode pending trace output is
+ *  flushed first so the error appears after the lines that led to it.
+ *  At most one chunk waits for the writer thread: a compile that traces
+ *  faster than the console takes it waits for the chunk before, rather
+ *  than queueing the whole trace in memory. A write that fails is
+ *  reported by the next flush
+*/
+public class Diagnostics {
+
+    public static enum Mode { OFF, CONSOLE, TRACE }
+
+    // trace chunks are handed to the writer once they reach this size
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static volatile Diagnostics defaultSink = new Diagnostics(Mode.CONSOLE);
+
+    private final Mode mode;
+    private StringBuilder chunk;
+    private ExecutorService writer;
+    private Writer out;
+    // the write of the last chunk handed off; null once it's known done
+    private Future<?> pending;
+    // the first write that failed since the last flush
+    private Throwable failure;
+
+    public Diagnostics(Mode mode) {
+        this.mode = mode;
+        if (mode == Mode.TRACE) {
+            chunk = new StringBuilder(CHUNK_SIZE);
+            out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)),
+                CHUNK_SIZE);
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "diagnostics-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+/**
+ *  @param name is one of off, console or trace (any case)
+ *  @return the sink for the named mode
+ *  @exception IllegalArgumentException is thrown for an unknown mode name
+*/
+    public static Diagnostics forName(String name) {
+        return new Diagnostics(Mode.valueOf(name.toUpperCase()));
+    }
+
+/**
+ *  @return the sink used by stages that were not given one explicitly
+*/
+    public static Diagnostics getDefault() {
+        return defaultSink;
+    }
+
+    public static void setDefault(Diagnostics sink) {
+        defaultSink = sink;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+/**
+ *  @return true if trace output is kept; callers use this to avoid
+ *  building trace text that would be dropped
+*/
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+/**
+ *  record one line of trace output
+*/
+    public void trace(String line) {
+        switch (mode) {
+            case OFF:
+                return;
+            case CONSOLE:
+                System.out.println(line);
+                return;
+            default:
+                synchronized (this) {
+                    chunk.append(line).append('\n');
+                    if (chunk.length() >= CHUNK_SIZE) {
+                        handOff();
+                    }
+                }
+        }
+    }
+
+/**
+ *  record one line of trace output taken from a range of a char buffer;
+ *  no String is built unless the line is printed synchronously
+*/
+    public void trace(char[] buffer, int start, int end) {
+        switch (mode) {
+            case OFF:
+                return;
+            case CONSOLE:
+                System.out.println(new String(buffer, start, end - start));
+                return;
+            default:
+                synchronized (this) {
+                    chunk.append(buffer, start, end - start).append('\n');
+                    if (chunk.length() >= CHUNK_SIZE) {
+                        handOff();
+                    }
+                }
+        }
+    }
+
+/**
+ *  print an error message; errors are never suppressed
+*/
+    public void error(String message) {
+        flush();
+        System.out.println(message);
+    }
+
+/**
+ *  wait until all trace output recorded so far has been written
+*/
+    public void flush() {
+        if (mode != Mode.TRACE) {
+            return;
+        }
+        synchronized (this) {
+            handOff();
+            await(writer.submit(() -> {
+                out.flush();
+                return null;
+            }));
+            if (failure != null) {
+                System.err.println("********trace output lost: " + failure);
+                failure = null;
+            }
+        }
+    }
+
+/**
+ *  flush the trace output and stop the writer thread
+*/
+    public void close() {
+        if (mode != Mode.TRACE) {
+            return;
+        }
+        flush();
+        writer.shutdown();
+    }
+
+    // caller holds the lock; queue the current chunk for the writer thread
+    // once the chunk before it is written
+    private void handOff() {
+        if (chunk.length() == 0) {
+            return;
+        }
+        await(pending);
+        final String text = chunk.toString();
+        chunk.setLength(0);
+        pending = writer.submit(() -> {
+            out.write(text);
+            return null;
+        });
+    }
+
+    // caller holds the lock; wait for write, keeping the first failure
+    private void await(Future<?> write) {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            if (failure == null) {
+                failure = e.getCause();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (write == pending) {
+            pending = null;
+        }
+    }
+}
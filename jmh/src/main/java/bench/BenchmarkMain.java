@@ -0,0 +1,25 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ *  BenchmarkMain runs the benchmarks whose names match the include regex,
+ *  all of them by default, and writes the results as JSON so runs can be
+ *  compared for regressions<br>
+ *  usage: java -jar target/benchmarks.jar [include regex] [result file]
+*/
+public class BenchmarkMain {
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String args[]) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : "bench\\..*")
+            .result(args.length > 1 ? args[1] : RESULT_FILE)
+            .resultFormat(ResultFormatType.JSON)
+            .build();
+        new Runner(options).run();
+    }
+}
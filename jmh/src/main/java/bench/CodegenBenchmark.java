@@ -0,0 +1,37 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import codegen.*;
+import constrain.Constrainer;
+import parser.Parser;
+
+/**
+ *  CodegenBenchmark times Codegen.execute; it sets frame offsets in the
+ *  tree, so each invocation gets a tree parsed and constrained just for it
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodegenBenchmark {
+
+    @State(Scope.Thread)
+    public static class Constrained {
+        AST t;
+
+        @Setup(Level.Invocation)
+        public void constrain(Inputs inputs) throws Exception {
+            Parser parser = inputs.parser();
+            t = parser.execute();
+            new Constrainer(t, parser).execute();
+        }
+    }
+
+    @Benchmark
+    public Program execute(Constrained constrained) {
+        return new Codegen(constrained.t, Inputs.OFF).execute();
+    }
+}
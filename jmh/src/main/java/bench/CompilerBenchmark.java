@@ -0,0 +1,25 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import compiler.Compiler;
+
+/**
+ *  CompilerBenchmark times Compiler.compileProgram end to end, from
+ *  reading the source file to writing its .cod file, both in the
+ *  temporary directory of Inputs
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+    @Benchmark
+    public Compiler compileProgram(Inputs inputs) {
+        Compiler compiler = new Compiler(inputs.file, Inputs.OFF);
+        compiler.compileProgram();
+        return compiler;
+    }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import codegen.*;
+import constrain.Constrainer;
+import parser.Parser;
+
+/**
+ *  ConstrainCodegenBenchmark times the full constrain and codegen pass,
+ *  the two visitors that dispatch through TypedASTVisitor's NodeKind
+ *  switch; each invocation gets a tree parsed just for it
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstrainCodegenBenchmark {
+
+    @State(Scope.Thread)
+    public static class Parsed {
+        Parser parser;
+        AST t;
+
+        @Setup(Level.Invocation)
+        public void parse(Inputs inputs) throws Exception {
+            parser = inputs.parser();
+            t = parser.execute();
+        }
+    }
+
+    @Benchmark
+    public Program pass(Parsed parsed) {
+        new Constrainer(parsed.t, parsed.parser).execute();
+        return new Codegen(parsed.t, Inputs.OFF).execute();
+    }
+}
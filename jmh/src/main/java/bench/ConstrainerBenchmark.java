@@ -0,0 +1,37 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import constrain.Constrainer;
+import parser.Parser;
+
+/**
+ *  ConstrainerBenchmark times Constrainer.execute; it decorates the tree,
+ *  so each invocation gets a tree parsed just for it
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstrainerBenchmark {
+
+    @State(Scope.Thread)
+    public static class Parsed {
+        Parser parser;
+        AST t;
+
+        @Setup(Level.Invocation)
+        public void parse(Inputs inputs) throws Exception {
+            parser = inputs.parser();
+            t = parser.execute();
+        }
+    }
+
+    @Benchmark
+    public AST execute(Parsed parsed) {
+        new Constrainer(parsed.t, parsed.parser).execute();
+        return parsed.t;
+    }
+}
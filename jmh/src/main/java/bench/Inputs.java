@@ -0,0 +1,81 @@
+package bench;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import org.openjdk.jmh.annotations.*;
+import compiler.ProgramGenerator;
+import diagnostics.Diagnostics;
+import lexer.MappedSourceReader;
+import parser.Parser;
+
+/**
+ *  Inputs holds the program every benchmark compiles: one of the sample
+ *  programs, read from the directory named by the samples property, or a
+ *  program made by ProgramGenerator. The source is kept in memory and also
+ *  copied to a temporary file for the benchmarks that compile files, so
+ *  no .cod file is ever written next to a sample
+*/
+@State(Scope.Benchmark)
+public class Inputs {
+    public static final String SAMPLES = System.getProperty("samples", "../sample_files");
+
+    // trace output is dropped, as it is when compiling with -diag off
+    static final Diagnostics OFF = new Diagnostics(Diagnostics.Mode.OFF);
+
+    @Param({"fib.x", "factorial.x", "codegen.x", "scopes.x", "simple.x",
+        "synthetic-small", "synthetic-large"})
+    public String program;
+
+    char[] source;
+    int length;
+    Path dir;
+    String file;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        String text;
+        switch (program) {
+            case "synthetic-small":
+                text = new ProgramGenerator(ProgramGenerator.DEFAULT_SEED, 0, 16, 8, 20, 8).generate();
+                break;
+            case "synthetic-large":
+                text = new ProgramGenerator(ProgramGenerator.DEFAULT_SEED, 1 << 20, 200, 60, 1000, 16)
+                    .generate();
+                break;
+            default:
+                text = new String(Files.readAllBytes(Paths.get(SAMPLES, program)),
+                    StandardCharsets.ISO_8859_1);
+                break;
+        }
+        source = text.toCharArray();
+        length = source.length;
+        dir = Files.createTempDirectory("jmh");
+        file = dir.resolve(program.endsWith(".x") ? program : program + ".x").toString();
+        Files.write(Paths.get(file), text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(dir);
+    }
+
+/**
+ *  @return a reader over the in-memory source
+*/
+    MappedSourceReader reader() {
+        return new MappedSourceReader(source, length, OFF);
+    }
+
+/**
+ *  @return a Parser that has not yet parsed the program
+*/
+    Parser parser() {
+        return new Parser(reader(), OFF);
+    }
+}
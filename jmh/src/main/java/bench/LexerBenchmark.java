@@ -0,0 +1,40 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import lexer.Lexer;
+import lexer.Token;
+
+/**
+ *  LexerBenchmark scans the whole program with Lexer.nextToken; the
+ *  tokens counter gives the throughput in tokens rather than programs
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Tokens {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Benchmark
+    public Token nextToken(Inputs inputs, Tokens counter) {
+        Lexer lex = new Lexer(inputs.reader(), Inputs.OFF);
+        Token last = null;
+        for (Token token = lex.nextToken(); token != null; token = lex.nextToken()) {
+            last = token;
+            counter.tokens++;
+        }
+        return last;
+    }
+}
@@ -0,0 +1,34 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import visitor.OffsetVisitor;
+
+/**
+ *  OffsetVisitorBenchmark times laying out the parsed tree for drawing
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffsetVisitorBenchmark {
+
+    @State(Scope.Thread)
+    public static class Parsed {
+        AST t;
+
+        @Setup(Level.Trial)
+        public void parse(Inputs inputs) throws Exception {
+            t = inputs.parser().execute();
+        }
+    }
+
+    @Benchmark
+    public OffsetVisitor layout(Parsed parsed) {
+        OffsetVisitor visitor = new OffsetVisitor();
+        parsed.t.accept(visitor);
+        return visitor;
+    }
+}
@@ -0,0 +1,21 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+
+/**
+ *  ParserBenchmark times Parser.execute, which scans the program too
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Benchmark
+    public AST execute(Inputs inputs) throws Exception {
+        return inputs.parser().execute();
+    }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import codegen.*;
+import constrain.Constrainer;
+import parser.Parser;
+
+/**
+ *  PrintCodesBenchmark times Program.printCodes formatting the bytecodes,
+ *  written to a Writer that drops them so no file system time is counted
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrintCodesBenchmark {
+
+    @State(Scope.Thread)
+    public static class Generated {
+        Program program;
+        PrintWriter out = new PrintWriter(Writer.nullWriter());
+
+        @Setup(Level.Trial)
+        public void generate(Inputs inputs) throws Exception {
+            Parser parser = inputs.parser();
+            AST t = parser.execute();
+            new Constrainer(t, parser).execute();
+            program = new Codegen(t, Inputs.OFF).execute();
+        }
+    }
+
+    @Benchmark
+    public Program printCodes(Generated generated) {
+        generated.program.printCodes(generated.out);
+        return generated.program;
+    }
+}
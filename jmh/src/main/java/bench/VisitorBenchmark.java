@@ -0,0 +1,128 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import ast.AST;
+import visitor.*;
+
+/**
+ *  VisitorBenchmark times visitor dispatch: a walk that counts the nodes
+ *  of the parsed tree through accept, and the same walk through the
+ *  NodeKind switch of TypedASTVisitor. ConstrainCodegenBenchmark times
+ *  the full pass that uses the switch
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisitorBenchmark {
+
+    @State(Scope.Thread)
+    public static class Parsed {
+        AST t;
+
+        @Setup(Level.Trial)
+        public void parse(Inputs inputs) throws Exception {
+            t = inputs.parser().execute();
+        }
+    }
+
+    @Benchmark
+    public long accept(Parsed parsed) {
+        AcceptCounter counter = new AcceptCounter();
+        parsed.t.accept(counter);
+        return counter.count;
+    }
+
+    @Benchmark
+    public long kindSwitch(Parsed parsed) {
+        NodeCounter counter = new NodeCounter();
+        counter.visit(parsed.t, null);
+        return counter.count;
+    }
+
+/**
+ *  counts the nodes of a tree through accept; CountVisitor counts by
+ *  depth and stops at 100 levels, fewer than synthetic-large has
+*/
+    static class AcceptCounter extends ASTVisitor {
+        long count;
+
+        private Object count(AST t) {
+            count++;
+            visitKids(t);
+            return null;
+        }
+
+        public Object visitProgramTree(AST t) { return count(t); }
+        public Object visitBlockTree(AST t) { return count(t); }
+        public Object visitFunctionDeclTree(AST t) { return count(t); }
+        public Object visitCallTree(AST t) { return count(t); }
+        public Object visitDeclTree(AST t) { return count(t); }
+        public Object visitIntTypeTree(AST t) { return count(t); }
+        public Object visitBoolTypeTree(AST t) { return count(t); }
+        public Object visitFormalsTree(AST t) { return count(t); }
+        public Object visitActualArgsTree(AST t) { return count(t); }
+        public Object visitIfTree(AST t) { return count(t); }
+        public Object visitWhileTree(AST t) { return count(t); }
+        public Object visitSwitchBlockTree(AST t) { return count(t); }
+        public Object visitCaseBlockTree(AST t) { return count(t); }
+        public Object visitCaseStatementTree(AST t) { return count(t); }
+        public Object visitCaseListTree(AST t) { return count(t); }
+        public Object visitDefaultStatementTree(AST t) { return count(t); }
+        public Object visitSwitchTree(AST t) { return count(t); }
+        public Object visitReturnTree(AST t) { return count(t); }
+        public Object visitAssignTree(AST t) { return count(t); }
+        public Object visitIntTree(AST t) { return count(t); }
+        public Object visitUtfStringLitTree(AST t) { return count(t); }
+        public Object visitTimeStampLitTree(AST t) { return count(t); }
+        public Object visitIdTree(AST t) { return count(t); }
+        public Object visitRelOpTree(AST t) { return count(t); }
+        public Object visitAddOpTree(AST t) { return count(t); }
+        public Object visitMultOpTree(AST t) { return count(t); }
+        public Object visitUstringTypeTree(AST t) { return count(t); }
+        public Object visitTimeStampTypeTree(AST t) { return count(t); }
+    }
+
+/**
+ *  counts the nodes of a tree through the NodeKind switch
+*/
+    static class NodeCounter extends TypedASTVisitor<Void, Void> {
+        long count;
+
+        private Void count(AST t) {
+            count++;
+            visitKids(t, null);
+            return null;
+        }
+
+        public Void visitProgramTree(AST t, Void context) { return count(t); }
+        public Void visitBlockTree(AST t, Void context) { return count(t); }
+        public Void visitFunctionDeclTree(AST t, Void context) { return count(t); }
+        public Void visitCallTree(AST t, Void context) { return count(t); }
+        public Void visitDeclTree(AST t, Void context) { return count(t); }
+        public Void visitIntTypeTree(AST t, Void context) { return count(t); }
+        public Void visitBoolTypeTree(AST t, Void context) { return count(t); }
+        public Void visitUstringTypeTree(AST t, Void context) { return count(t); }
+        public Void visitTimeStampTypeTree(AST t, Void context) { return count(t); }
+        public Void visitFormalsTree(AST t, Void context) { return count(t); }
+        public Void visitActualArgsTree(AST t, Void context) { return count(t); }
+        public Void visitIfTree(AST t, Void context) { return count(t); }
+        public Void visitWhileTree(AST t, Void context) { return count(t); }
+        public Void visitReturnTree(AST t, Void context) { return count(t); }
+        public Void visitAssignTree(AST t, Void context) { return count(t); }
+        public Void visitSwitchTree(AST t, Void context) { return count(t); }
+        public Void visitCaseListTree(AST t, Void context) { return count(t); }
+        public Void visitCaseStatementTree(AST t, Void context) { return count(t); }
+        public Void visitDefaultStatementTree(AST t, Void context) { return count(t); }
+        public Void visitCaseBlockTree(AST t, Void context) { return count(t); }
+        public Void visitIntTree(AST t, Void context) { return count(t); }
+        public Void visitIdTree(AST t, Void context) { return count(t); }
+        public Void visitRelOpTree(AST t, Void context) { return count(t); }
+        public Void visitAddOpTree(AST t, Void context) { return count(t); }
+        public Void visitMultOpTree(AST t, Void context) { return count(t); }
+        public Void visitUtfStringLitTree(AST t, Void context) { return count(t); }
+        public Void visitTimeStampLitTree(AST t, Void context) { return count(t); }
+    }
+}
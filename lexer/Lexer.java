@@ -1,6 +1,6 @@
 package lexer;
 
-import java.io.IOException;
+import diagnostics.Diagnostics;
 
 
 /**
@@ -10,15 +10,42 @@ import java.io.IOException;
  * to the string) that describes the token along with an
  * indication of its location in the source program to be used
  * for error reporting; we are tracking line numbers; white spaces
- * are space, tab, newlines
+ * are space, tab, newlines<br>
+ * The text of a token is never copied while it is scanned; a token is
+ * the range [startOffset, endOffset) of the source buffer and a String
+ * is only built when the Symbol table sees that text for the first time<br>
+ * Each Lexer owns the SymbolTable of its compilation; it is released
+ * when the compilation finishes
  */
 public class Lexer {
+  /**
+   * SYMBOL_PROBE decides reserved words and operators by probing the
+   * Symbol table with the scanned text; TABLE runs the DFA generated in
+   * TokenTable so they are found with array lookups; PERFECT_HASH matches
+   * operators with the DFA but checks each scanned id against the perfect
+   * hash in ReservedWords instead of stepping the DFA per character;
+   * TABLE is the default as KeywordBenchmark and LexerBenchmark time it
+   * fastest
+   */
+  public enum ScanMode { SYMBOL_PROBE, TABLE, PERFECT_HASH }
+
+  private ScanMode mode = ScanMode.TABLE;
+  // Symbols for the reserved words and operators indexed by Tokens ordinal
+  private Symbol[] reserved = new Symbol[Tokens.values().length];
+  private SymbolTable symbols;
   private boolean atEOF = false;
   // next character to process
   private char ch;
-  private SourceReader source;
-  private String fullString, subString, lastLine;
+  private MappedSourceReader source;
+  private char[] buffer;
+  private Diagnostics diagnostics;
+  // buffer range of the line holding the last token found
+  private int lastLineStart, lastLineEnd;
   private int startPosition, endPosition, lineFound, oldLineRead;
+  // buffer offset of the first character of the token being scanned
+  private int startOffset;
+  // value and buffer offset of the last 2 digit timestamp field scanned
+  private int fieldValue, fieldOffset;
 
   private final int MAX_YEARS = 9999;
   private final int MINIMUM_ZERO = 0;
@@ -32,21 +59,69 @@ public class Lexer {
 
   /**
    * Lexer constructor
-   * 
+   *
    * @param sourceFile is the name of the File to read the program source from
    */
   public Lexer(String sourceFile) throws Exception {
-    // init token table
-    new TokenType();
-    source = new SourceReader(sourceFile);
+    this(sourceFile, Diagnostics.getDefault());
+  }
+
+  /**
+   * Lexer constructor
+   *
+   * @param sourceFile  is the name of the File to read the program source from
+   * @param diagnostics receives the source echo and lexical error messages
+   */
+  public Lexer(String sourceFile, Diagnostics diagnostics) throws Exception {
+    this(new MappedSourceReader(sourceFile, diagnostics), diagnostics);
+  }
+
+  /**
+   * Lexer constructor
+   *
+   * @param source      is the reader holding the program source
+   * @param diagnostics receives lexical error messages
+   */
+  public Lexer(MappedSourceReader source, Diagnostics diagnostics) {
+    this(source, diagnostics, new SymbolTable());
+  }
+
+  /**
+   * Lexer constructor
+   *
+   * @param source      is the reader holding the program source
+   * @param diagnostics receives lexical error messages
+   * @param symbols     interns the ids and literals of this compilation
+   */
+  public Lexer(MappedSourceReader source, Diagnostics diagnostics, SymbolTable symbols) {
+    this.symbols = symbols;
+    for (java.util.Map.Entry<Tokens, Symbol> token : TokenType.tokens.entrySet()) {
+      reserved[token.getKey().ordinal()] = token.getValue();
+    }
+    this.diagnostics = diagnostics;
+    this.source = source;
+    buffer = source.getBuffer();
     ch = source.read();
-    lastLine = source.getNextLine();
+    lastLineStart = source.getLineStart();
+    lastLineEnd = source.getLineEnd();
+  }
+
+  public void setScanMode(ScanMode mode) {
+    this.mode = mode;
+  }
+
+  public ScanMode getScanMode() {
+    return mode;
+  }
+
+  public SymbolTable getSymbolTable() {
+    return symbols;
   }
 
   /**
    * newIdTokens are either ids or reserved words; new id's will be inserted
    * in the symbol table with an indication that they are id's
-   * 
+   *
    * @param id            is the String just scanned - it's either an id or
    *                      reserved word
    * @param startPosition is the column in the source file where the token begins
@@ -58,7 +133,7 @@ public class Lexer {
         startPosition,
         endPosition,
         lineFound,
-        Symbol.symbol(id, Tokens.Identifier));
+        symbols.symbol(id, Tokens.Identifier));
   }
 
   /**
@@ -67,7 +142,7 @@ public class Lexer {
    * this ensures that any machine numeric dependencies are deferred
    * until we actually run the program; i.e. the numeric constraints of the
    * hardware used to compile the source program are not used
-   * 
+   *
    * @param number        is the int String just scanned
    * @param startPosition is the column in the source file where the int begins
    * @param endPosition   is the column in the source file where the int ends
@@ -78,66 +153,81 @@ public class Lexer {
         startPosition,
         endPosition,
         lineFound,
-        Symbol.symbol(number, Tokens.INTeger));
+        symbols.symbol(number, Tokens.INTeger));
   }
 
-  public Token newTimeStampToken(int startPosition, int endPosition) {
+  /**
+   * build the token for the source text that starts at startOffset and
+   * spans the columns startPosition..endPosition
+   *
+   * @param kind is the token kind used if the text is new to the symbol table
+   * @return the Token just found
+   */
+  private Token newRangeToken(Tokens kind) {
+    int endOffset = startOffset + endPosition - startPosition + 1;
     return new Token(
         startPosition,
         endPosition,
         lineFound,
-        Symbol.symbol(fullString, Tokens.TimeStampLit));
+        symbols.symbol(buffer, startOffset, endOffset, kind),
+        startOffset,
+        endOffset);
   }
 
-  public Token newULiteralToken(int startPosition, int endPosition) {
+  /**
+   * build the token for a reserved word recognized by the DFA
+   *
+   * @param kind is the token kind the DFA accepted
+   * @return the Token just found
+   */
+  private Token newReservedToken(Tokens kind) {
     return new Token(
         startPosition,
         endPosition,
         lineFound,
-        Symbol.symbol(fullString, Tokens.Utf16StringLit));
+        reserved[kind.ordinal()],
+        startOffset,
+        startOffset + endPosition - startPosition + 1);
   }
 
   /**
    * build the token for operators (+ -) or separators (parens, braces)
    * filter out comments which begin with two slashes
-   * 
+   *
    * @param s             is the String representing the token
    * @param startPosition is the column in the source file where the token begins
    * @param endPosition   is the column in the source file where the token ends
    * @return the Token just found
    */
   public Token makeToken(String s, int startPosition, int endPosition) {
+    return makeToken(symbols.symbol(s, Tokens.BogusToken), s, startPosition, endPosition);
+  }
+
+  private Token makeToken(Symbol sym, String s, int startPosition, int endPosition) {
     // filter comments
-    if (s.equals("//")) {
-      try {
-        int oldLine = source.getLineno();
-
-        do {
-          ch = source.read();
-        } while (oldLine == source.getLineno());
-      } catch (Exception e) {
-        atEOF = true;
-      }
+    if (sym != null && sym.getKind() == Tokens.Comment) {
+      int oldLine = source.getLineno();
+
+      do {
+        ch = source.read();
+      } while (oldLine == source.getLineno());
 
       return nextToken();
     }
 
-    // ensure it's a valid token
-    Symbol sym = Symbol.symbol(s, Tokens.BogusToken);
-
     this.lineFound = this.source.getLineno();
     if (this.lineFound > oldLineRead) {
-      lastLine = this.source.getNextLine();
-      oldLineRead = this.lineFound;
+      markLastLine();
     }
 
     if (sym == null) {
-      System.out.println("******** illegal character: " + s);
+      diagnostics.error("******** illegal character: " + s);
       atEOF = true;
       return nextToken();
     }
 
-    return new Token(startPosition, endPosition, lineFound, sym);
+    return new Token(startPosition, endPosition, lineFound, sym,
+        startOffset, startOffset + endPosition - startPosition + 1);
   }
 
   /**
@@ -156,198 +246,221 @@ public class Lexer {
       return null;
     }
 
-    try {
-      // scan past whitespace
-      while (Character.isWhitespace(ch)) {
-        ch = source.read();
-      }
-    } catch (Exception e) {
+    // scan past whitespace
+    while (Character.isWhitespace(ch)) {
+      ch = source.read();
+    }
+
+    if (ch == MappedSourceReader.EOF) {
       atEOF = true;
       return nextToken();
     }
 
     lineFound = source.getLineno();
     if (lineFound > oldLineRead) {
-      lastLine = source.getNextLine();
-      oldLineRead = lineFound;
+      markLastLine();
     }
 
     startPosition = this.source.getPosition();
     endPosition = startPosition - 1;
+    startOffset = this.source.getOffset();
+
+    if (Character.isJavaIdentifierStart(ch) && mode == ScanMode.PERFECT_HASH) {
+      // find the end of the id then see if it's a reserved word before
+      // anything is interned
+      do {
+        endPosition++;
+        ch = source.read();
+      } while (Character.isJavaIdentifierPart(ch));
+
+      Tokens kind = ReservedWords.lookup(buffer, startOffset,
+          startOffset + endPosition - startPosition + 1);
+      if (kind != null) {
+        return newReservedToken(kind);
+      }
+      return newRangeToken(Tokens.Identifier);
+    }
+
+    if (Character.isJavaIdentifierStart(ch) && mode == ScanMode.TABLE) {
+      // run the DFA over the id; it ends in an accepting state only
+      // for reserved words
+      int state = TokenTable.START;
+      do {
+        state = TokenTable.step(state, ch);
+        endPosition++;
+        ch = source.read();
+      } while (Character.isJavaIdentifierPart(ch));
+
+      Tokens kind = TokenTable.accept[state];
+      if (kind != null) {
+        return newReservedToken(kind);
+      }
+      return newRangeToken(Tokens.Identifier);
+    }
 
     if (Character.isJavaIdentifierStart(ch)) {
       // return tokens for ids and reserved words
-      String id = "";
-
-      try {
-        do {
-          endPosition++;
-          id += ch;
-          ch = source.read();
-        } while (Character.isJavaIdentifierPart(ch));
-      } catch (Exception e) {
-        atEOF = true;
-      }
+      do {
+        endPosition++;
+        ch = source.read();
+      } while (Character.isJavaIdentifierPart(ch));
 
-      return newIdToken(id, startPosition, endPosition);
+      return newRangeToken(Tokens.Identifier);
     }
 
     if (Character.isDigit(ch)) {
       // return number tokens
-      String number = "";
-      try {
-        do {
-          endPosition++;
-          number += ch;
-          ch = source.read();
-        } while (Character.isDigit(ch));
-        // copy number into fullString
-        fullString = new String(number);
-        if (checkDelimiter('~')
-            && endPosition - startPosition == 3
-            && Integer.parseInt(fullString) <= MAX_YEARS
-            && checkMoreThanZero()) {
-          advanceOnePosition();
-          // check the substring of months
-          if (!checkDigits()) {
-            return illegalCharacter();
-          }
-          if (!checkLimits(MAX_MONTHS, MINIMUM_ONE)) {
-            return illegalSubString();
-          }
-          if (!checkDelimiter('~')) {
-            return illegalCharacter();
-          }
-          advanceOnePosition();
-          // check substring of days
-          if (!checkDigits()) {
-            return illegalCharacter();
-          }
-          if (!checkLimits(MAX_DAYS, MINIMUM_ONE)) {
-            return illegalSubString();
-          }
-          if (!checkDelimiter('~')) {
-            return illegalCharacter();
-          }
-          advanceOnePosition();
-          // check subbstring of hours
-          if (!checkDigits()) {
-            return illegalCharacter();
-          }
-          if (!checkLimits(MAX_HOURS, MINIMUM_ZERO)) {
-            return illegalSubString();
-          }
-          if (!checkDelimiter(':')) {
-            return illegalCharacter();
-          }
-          advanceOnePosition();
-          // check substring of minutes
-          if (!checkDigits()) {
-            return illegalCharacter();
-          }
-          if (!checkLimits(MAX_MINUTES, MINIMUM_ONE)) {
-            return illegalSubString();
-          }
-          if (!checkDelimiter(':')) {
-            return illegalCharacter();
-          }
-          advanceOnePosition();
-          // check substring of seconds
-          if (!checkDigits()) {
-            return illegalCharacter();
-          }
-          if (!checkLimits(MAX_SECONDS, MINIMUM_ZERO)) {
-            return illegalSubString();
-          }
-          if (!checkDelimiter(' ')) {
-            return illegalCharacter();
-          }
-          return newTimeStampToken(startPosition, endPosition);
-
+      do {
+        endPosition++;
+        ch = source.read();
+      } while (Character.isDigit(ch));
+      if (checkDelimiter('~')
+          && endPosition - startPosition == 3
+          && digitValue(startOffset, 4) <= MAX_YEARS
+          && digitValue(startOffset, 4) >= MINIMUM_ZERO) {
+        advanceOnePosition();
+        // check the substring of months
+        if (!checkDigits()) {
+          return illegalCharacter();
         }
-      } catch (Exception e) {
-        System.out.println(e.getMessage());
-        atEOF = true;
-      }
-      return newNumberToken(number, startPosition, endPosition);
-    }
-    
-    //could be only utf16String
-    if (ch == '\\') {
-
-      fullString = "";
-      fullString += ch;
-      endPosition++;
-      try {
-        if (!checkULiterals()) {
+        if (!checkLimits(MAX_MONTHS, MINIMUM_ONE)) {
+          return illegalSubString();
+        }
+        if (!checkDelimiter('~')) {
           return illegalCharacter();
         }
-        endPosition++;
-        ch = source.read();
-        fullString += ch;
-        if (ch != '\\') {
+        advanceOnePosition();
+        // check substring of days
+        if (!checkDigits()) {
           return illegalCharacter();
         }
-        if (!checkULiterals()) {
+        if (!checkLimits(MAX_DAYS, MINIMUM_ONE)) {
+          return illegalSubString();
+        }
+        if (!checkDelimiter('~')) {
           return illegalCharacter();
         }
-        ch = source.read();
-        if(!Character.isWhitespace(ch)){
+        advanceOnePosition();
+        // check subbstring of hours
+        if (!checkDigits()) {
           return illegalCharacter();
         }
-        return newULiteralToken(startPosition, endPosition);
-
-      } catch (Exception e) {
-        System.out.println(e.getMessage());
-        atEOF = true;
+        if (!checkLimits(MAX_HOURS, MINIMUM_ZERO)) {
+          return illegalSubString();
+        }
+        if (!checkDelimiter(':')) {
+          return illegalCharacter();
+        }
+        advanceOnePosition();
+        // check substring of minutes
+        if (!checkDigits()) {
+          return illegalCharacter();
+        }
+        if (!checkLimits(MAX_MINUTES, MINIMUM_ONE)) {
+          return illegalSubString();
+        }
+        if (!checkDelimiter(':')) {
+          return illegalCharacter();
+        }
+        advanceOnePosition();
+        // check substring of seconds
+        if (!checkDigits()) {
+          return illegalCharacter();
+        }
+        if (!checkLimits(MAX_SECONDS, MINIMUM_ZERO)) {
+          return illegalSubString();
+        }
+        if (!checkDelimiter(' ')) {
+          return illegalCharacter();
+        }
+        return newRangeToken(Tokens.TimeStampLit);
       }
-
+      return newRangeToken(Tokens.INTeger);
     }
 
-    // At this point the only tokens to check for are one or two
-    // characters; we must also check for comments that begin with
-    // 2 slashes
-    String charOld = "" + ch;
-    String op = charOld;
-    Symbol sym;
-    try {
+    //could be only utf16String
+    if (ch == '\\') {
       endPosition++;
-      ch = source.read();
-      op += ch;
-
-      // check if valid 2 char operator; if it's not in the symbol
-      // table then don't insert it since we really have a one char
-      // token
-      sym = Symbol.symbol(op, Tokens.BogusToken);
-      if (sym == null) {
-        // it must be a one char token
-        return makeToken(charOld, startPosition, endPosition);
+      if (!checkULiterals()) {
+        return illegalCharacter();
       }
-
       endPosition++;
       ch = source.read();
+      if (ch != '\\') {
+        return illegalCharacter();
+      }
+      if (!checkULiterals()) {
+        return illegalCharacter();
+      }
+      ch = source.read();
+      if(!Character.isWhitespace(ch)){
+        return illegalCharacter();
+      }
+      return newRangeToken(Tokens.Utf16StringLit);
+    }
 
-      return makeToken(op, startPosition, endPosition);
-    } catch (Exception e) {
-      /* no-op */ }
+    // At this point the only tokens to check for are one or two
+    // characters; we must also check for comments that begin with
+    // 2 slashes
+    if (mode != ScanMode.SYMBOL_PROBE) {
+      return nextOperatorFromTable();
+    }
+    endPosition++;
+    ch = source.read();
 
-    atEOF = true;
-    if (startPosition == endPosition) {
-      op = charOld;
+    // check if valid 2 char operator; if it's not in the symbol
+    // table then don't insert it since we really have a one char
+    // token; a space or EOF ends the line so can't be part of one
+    Symbol sym = null;
+    if (!Character.isWhitespace(ch) && ch != MappedSourceReader.EOF) {
+      sym = symbols.symbol(buffer, startOffset, startOffset + 2, Tokens.BogusToken);
+    }
+    if (sym == null) {
+      // it must be a one char token
+      sym = symbols.symbol(buffer, startOffset, startOffset + 1, Tokens.BogusToken);
+      return makeToken(sym, String.valueOf(buffer[startOffset]), startPosition, endPosition);
     }
 
-    return
+    endPosition++;
+    ch = source.read();
+
+    return makeToken(sym, null, startPosition, endPosition);
+  }
+
+  /**
+   * match a one or two character operator with the DFA; the longer
+   * match wins just as in the Symbol probing path
+   *
+   * @return the operator Token just found
+   */
+  private Token nextOperatorFromTable() {
+    int state = TokenTable.step(TokenTable.START, ch);
+    endPosition++;
+    ch = source.read();
+
+    if (state != TokenTable.DEAD) {
+      int longer = TokenTable.step(state, ch);
+      Tokens kind = TokenTable.accept[longer];
+      if (kind != null) {
+        endPosition++;
+        ch = source.read();
+        return makeToken(reserved[kind.ordinal()], null, startPosition, endPosition);
+      }
+    }
 
-    makeToken(op, startPosition, endPosition);
+    Tokens kind = TokenTable.accept[state];
+    if (kind == null) {
+      return makeToken(null, String.valueOf(buffer[startOffset]), startPosition, endPosition);
+    }
+    return makeToken(reserved[kind.ordinal()], null, startPosition, endPosition);
   }
 
   private Token illegalCharacter() {
     lineFound = this.source.getLineno();
     if (this.lineFound > oldLineRead) {
-      lastLine = this.source.getNextLine();
-      oldLineRead = lineFound;
+      markLastLine();
     }
-    System.out.println("******** illegal character: " + ch);
+    diagnostics.error("******** illegal character: " + ch);
     atEOF = true;
     return nextToken();
   }
@@ -355,17 +468,26 @@ public class Lexer {
   private Token illegalSubString() {
     lineFound = this.source.getLineno();
     if (this.lineFound > oldLineRead) {
-      lastLine = this.source.getNextLine();
-      oldLineRead = lineFound;
+      markLastLine();
     }
-    System.out.println("******** illegal substring: " + subString.substring(subString.length() - LENGTH_STANDARD));
+    diagnostics.error("******** illegal substring: " + new String(buffer, fieldOffset, LENGTH_STANDARD));
     atEOF = true;
     return nextToken();
   }
 
+  // remember the line of the current token; its String is built on request
+  private void markLastLine() {
+    lastLineStart = source.getLineStart();
+    lastLineEnd = source.getLineEnd();
+    oldLineRead = lineFound;
+  }
+
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
   public String getLastLine() {
-    String lastLineCopy = new String(lastLine);
-    return lastLineCopy;
+    return new String(buffer, lastLineStart, lastLineEnd - lastLineStart);
   }
 
   public int getOldLineRead() {
@@ -378,37 +500,35 @@ public class Lexer {
     return lineFoundCopy;
   }
 
-  private boolean advanceOnePosition() throws IOException {
-    subString = "";
+  private boolean advanceOnePosition() {
     endPosition++;
-    fullString += ch;
     ch = source.read();
     return true;
   }
 
-  private boolean checkDigits() throws IOException {
+  private boolean checkDigits() {
+    fieldOffset = source.getOffset();
+    fieldValue = 0;
     for (int i = 0; i < LENGTH_STANDARD; i++) {
-      subString += ch;
-      fullString += ch;
       if (!Character.isDigit(ch)) {
         return false;
       }
+      fieldValue = fieldValue * 10 + Character.digit(ch, 10);
       ch = source.read();
       endPosition++;
     }
     return true;
   }
 
-  private boolean checkLimits(int max, int min) throws IOException {
+  private boolean checkLimits(int max, int min) {
 
-    return (Integer.parseInt(subString) >= min
-        && Integer.parseInt(subString) <= max);
+    return (fieldValue >= min
+        && fieldValue <= max);
   }
 
-  private boolean checkULiterals() throws IOException {
+  private boolean checkULiterals() {
     endPosition++;
     ch = source.read();
-    fullString += ch;
     if (ch == 'u') {
       return checkHexadecimal();
     } else {
@@ -417,12 +537,11 @@ public class Lexer {
 
   }
 
-  private boolean checkHexadecimal() throws IOException {
+  private boolean checkHexadecimal() {
 
     for (int i = 0; i < 4; i++) {
       endPosition++;
       ch = source.read();
-      fullString += ch;
       if (Character.digit(ch, 16) == -1) {
         return false;
       }
@@ -434,9 +553,15 @@ public class Lexer {
     return ch == delimiter;
   }
 
-  private boolean checkMoreThanZero() {
-    return Integer.parseInt(fullString) >= MINIMUM_ZERO;
+  /**
+   * @return the value of the length decimal digits at buffer[offset]
+   */
+  private int digitValue(int offset, int length) {
+    int value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      value = value * 10 + Character.digit(buffer[i], 10);
+    }
+    return value;
   }
 
-
-}
\ No newline at end of file
+}
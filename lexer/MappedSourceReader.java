@@ -0,0 +1,217 @@
+package lexer;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import diagnostics.Diagnostics;
+
+/**
+ *  This class is used to manage the source program input; unlike
+ *  SourceReader, the whole file is memory-mapped and decoded into a
+ *  single char array up front so characters and line/column positions
+ *  are served by index; no String is built per line and end of file
+ *  is reported with the EOF sentinel rather than an exception<br>
+ *  Each read request will return the next usable character; it
+ *  maintains the source column position of the character
+*/
+public class MappedSourceReader {
+  /**
+   *  returned by read() once the source is exhausted
+   */
+  public static final char EOF = '\uffff';
+
+  private final char[] buffer;
+  // number of valid characters in buffer
+  private final int limit;
+  // line number of source program
+  private int lineno = 0;
+  // position of last character processed
+  private int position;
+  // if true then last character read was newline so start the next line
+  private boolean isPriorEndLine = true;
+  private boolean atEOF = false;
+  // buffer offsets of the current line; lineEnd excludes the terminator
+  private int lineStart = 0, lineEnd = 0, nextLineStart = 0;
+  // String for the current line, built on demand by getNextLine()
+  private String nextLine;
+  // receives the echo of each source line
+  private final Diagnostics diagnostics;
+
+  /**
+   *  Construct a new MappedSourceReader
+   *  @param sourceFile the String describing the user's source file
+   *  @exception IOException is thrown if there is an I/O problem
+   */
+  public MappedSourceReader( String sourceFile ) throws IOException {
+    this( sourceFile, Diagnostics.getDefault() );
+  }
+
+  /**
+   *  Construct a new MappedSourceReader
+   *  @param sourceFile the String describing the user's source file
+   *  @param diagnostics the sink that receives the source line echo
+   *  @exception IOException is thrown if there is an I/O problem
+   */
+  public MappedSourceReader( String sourceFile, Diagnostics diagnostics ) throws IOException {
+    this.diagnostics = diagnostics;
+    try( FileChannel channel = new FileInputStream( sourceFile ).getChannel() ) {
+      MappedByteBuffer bytes =
+        channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      // one bulk decode; FileReader used the platform charset as well
+      CharBuffer chars = Charset.defaultCharset().decode( bytes );
+      buffer = chars.array();
+      limit = chars.limit();
+    }
+  }
+
+  /**
+   *  Construct a new MappedSourceReader over source text already in memory
+   *  @param source the characters of the source program
+   *  @param length the number of valid characters in source
+   *  @param diagnostics the sink that receives the source line echo
+   */
+  public MappedSourceReader( char[] source, int length, Diagnostics diagnostics ) {
+    this.diagnostics = diagnostics;
+    buffer = source;
+    limit = length;
+  }
+
+  public void close() {
+    /* no-op - the source is fully decoded; kept for SourceReader parity */
+  }
+
+  /**
+   *  read next char; track line #, character position in line<br>
+   *  return space for newline
+   *  @return the character just read in or EOF at end of file
+   */
+  public char read() {
+    if( isPriorEndLine ) {
+      lineno++;
+      position = -1;
+      nextLine = null;
+      startLine();
+
+      if( !atEOF ) {
+        diagnostics.trace( buffer, lineStart, lineEnd );
+      }
+
+      isPriorEndLine = false;
+    }
+
+    if( atEOF ) {
+      return EOF;
+    }
+
+    if( lineEnd == lineStart ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    position++;
+    if( lineStart + position >= lineEnd ) {
+      isPriorEndLine = true;
+      return ' ';
+    }
+
+    return buffer[ lineStart + position ];
+  }
+
+  /**
+   *  find the bounds of the line beginning at nextLineStart; lines end
+   *  with \n, \r or \r\n just as BufferedReader.readLine() splits them
+   */
+  private void startLine() {
+    if( nextLineStart >= limit ) {
+      atEOF = true;
+      return;
+    }
+
+    lineStart = nextLineStart;
+    int i = lineStart;
+    while( i < limit && buffer[i] != '\n' && buffer[i] != '\r' ) {
+      i++;
+    }
+    lineEnd = i;
+
+    if( i < limit && buffer[i] == '\r' ) {
+      i++;
+    }
+    if( i < limit && buffer[i] == '\n' ) {
+      i++;
+    }
+    nextLineStart = i;
+  }
+
+  /**
+   *  @return the position of the character just read in
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   *  @return the line number of the character just read in
+   */
+  public int getLineno() {
+    return lineno;
+  }
+
+  /**
+   *  @return the text of the current line or null at end of file
+   */
+  public String getNextLine(){
+    if( atEOF ) {
+      return null;
+    }
+    if( nextLine == null ) {
+      nextLine = new String( buffer, lineStart, lineEnd - lineStart );
+    }
+    return nextLine;
+  }
+
+  /**
+   *  @return the buffer offset of the character just read in
+   */
+  public int getOffset() {
+    return lineStart + position;
+  }
+
+  /**
+   *  @return the buffer offset where the current line begins
+   */
+  public int getLineStart() {
+    return lineStart;
+  }
+
+  /**
+   *  @return the buffer offset just past the last character of the current line
+   */
+  public int getLineEnd() {
+    return lineEnd;
+  }
+
+  /**
+   *  @return the source buffer; tokens are described by ranges of it
+   */
+  char[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   *  @param offset is an index into the source buffer
+   *  @return the character at offset
+   */
+  public char charAt( int offset ) {
+    return buffer[ offset ];
+  }
+
+  /**
+   *  @return true once read() has returned EOF
+   */
+  public boolean isEOF() {
+    return atEOF;
+  }
+}
@@ -0,0 +1,92 @@
+package lexer;
+ 
+/**
+ *  This file is automatically generated<br>
+ *  it contains a minimal perfect hash over the reserved words;
+ *  a range of the source buffer is a reserved word only if it
+ *  matches the one word stored in the slot it hashes to
+*/
+public class ReservedWords {
+   public static final int SIZE = 17, BUCKETS = 9;
+   public static final int MIN_LENGTH = 2, MAX_LENGTH = 11;
+   // seed for the second hash of the words in each bucket
+   public static final int[] displacement = {
+     8, 1, 2, 35, 1, 4, 0, 0, 1,
+   };
+   public static final char[][] words = {
+     "int".toCharArray(),
+     "switch".toCharArray(),
+     "else".toCharArray(),
+     "case".toCharArray(),
+     "if".toCharArray(),
+     "timestamp".toCharArray(),
+     "begin".toCharArray(),
+     "program".toCharArray(),
+     "default".toCharArray(),
+     "boolean".toCharArray(),
+     "then".toCharArray(),
+     "utf16String".toCharArray(),
+     "while".toCharArray(),
+     "end".toCharArray(),
+     "function".toCharArray(),
+     "in".toCharArray(),
+     "return".toCharArray(),
+   };
+   public static final Tokens[] kinds = {
+     Tokens.Int,
+     Tokens.Switch,
+     Tokens.Else,
+     Tokens.Case,
+     Tokens.If,
+     Tokens.TimeStampType,
+     Tokens.Begin,
+     Tokens.Program,
+     Tokens.Default,
+     Tokens.BOOLean,
+     Tokens.Then,
+     Tokens.Utf16String,
+     Tokens.While,
+     Tokens.End,
+     Tokens.Function,
+     Tokens.In,
+     Tokens.Return,
+   };
+ 
+   static int hash( char[] buffer, int start, int end ) {
+     int h = 0x811C9DC5;
+     for( int i = start; i < end; i++ ) {
+       h = (h ^ buffer[i]) * 0x01000193;
+     }
+     return h & 0x7fffffff;
+   }
+ 
+   static int mix( int hash, int seed ) {
+     int x = hash ^ (seed * 0x9E3779B9);
+     x = (x ^ (x >>> 16)) * 0x85EBCA6B;
+     x = x ^ (x >>> 13);
+     return x & 0x7fffffff;
+   }
+ 
+   /**
+    *  @return the token kind of the reserved word buffer[start..end)
+    *  or null if the range is not a reserved word
+    */
+   public static Tokens lookup( char[] buffer, int start, int end ) {
+     int length = end - start;
+     if( length < MIN_LENGTH || length > MAX_LENGTH ) {
+       return null;
+     }
+     int hash = hash( buffer, start, end );
+     int slot = mix( hash, displacement[ hash % BUCKETS ] ) % SIZE;
+     char[] word = words[slot];
+     if( word.length != length ) {
+       return null;
+     }
+     for( int i = 0; i < length; i++ ) {
+       if( word[i] != buffer[ start + i ] ) {
+         return null;
+       }
+     }
+     return kinds[slot];
+   }
+}
@@ -1,6 +1,7 @@
 package lexer;
 
 import java.io.*;
+import diagnostics.Diagnostics;
 
 /**
  *  This class is used to manage the source program input stream;
@@ -52,7 +53,7 @@ public class SourceReader {
 
       if( nextLine != null ) {
         // System.out.println( "READLINE:   " + nextLine );
-        System.out.println( nextLine );
+        Diagnostics.getDefault().trace( nextLine );
       }
 
       isPriorEndLine = false;
@@ -3,19 +3,25 @@ package lexer;
 /**
  *  The Symbol class is used to store all user strings along with
  *  an indication of the kind of strings they are; e.g. the id "abc" will
- *  store the "abc" in name and Sym.Tokens.Identifier in kind
+ *  store the "abc" in name and Sym.Tokens.Identifier in kind<br>
+ *  Symbols are interned by a SymbolTable, so within one compilation the
+ *  same string always gives the same Symbol
 */
 public class Symbol {
-  private String name;
+  private final String name;
   // token kind of symbol
-  private Tokens kind;
+  private final Tokens kind;
+  // name.hashCode(), kept so probes by char range need not build a String
+  private final int hash;
 
-  // symbols contains all strings in the source program
-  private static java.util.HashMap<String,Symbol> symbols = new java.util.HashMap<String,Symbol>();
+  Symbol( String n, Tokens kind ) {
+    this( n, kind, n.hashCode() );
+  }
 
-  private Symbol( String n, Tokens kind ) {
+  Symbol( String n, Tokens kind, int hash ) {
     name = n;
     this.kind = kind;
+    this.hash = hash;
   }
 
   @Override
@@ -31,22 +37,34 @@ public class Symbol {
     return this.kind.toString();
   }
 
+  int hash() {
+    return hash;
+  }
+
   /**
-   * Return the unique symbol associated with a string.
-   * Repeated calls to <tt>symbol("abc")</tt> will return the same Symbol.
+   * the String.hashCode() of buffer[start..end)
    */
-  public static Symbol symbol( String newTokenString, Tokens kind ) {
-    Symbol s = symbols.get( newTokenString );
-    if( s == null ) {
-      if( kind == Tokens.BogusToken ) {
-        // bogus string so don't enter into symbols
-        return null;
-      }
-      // System.out.println( "new symbol: " + u + " Kind: " + kind );
-      s = new Symbol( newTokenString, kind );
-      symbols.put( newTokenString, s );
+  static int hash( char[] buffer, int start, int end ) {
+    int hash = 0;
+    for( int i = start; i < end; i++ ) {
+      hash = 31 * hash + buffer[i];
     }
+    return hash;
+  }
 
-    return s;
+  boolean matches( String text ) {
+    return name.equals( text );
+  }
+
+  boolean matches( char[] buffer, int start, int end ) {
+    if( name.length() != end - start ) {
+      return false;
+    }
+    for( int i = start; i < end; i++ ) {
+      if( name.charAt( i - start ) != buffer[i] ) {
+        return false;
+      }
+    }
+    return true;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package lexer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  SymbolTable interns the strings of one compilation; each Lexer owns
+ *  one, so compilations running in parallel never share mutable state and
+ *  everything a compilation interned is dropped with its table<br>
+ *  A lookup first checks the keyword layer, the reserved words and
+ *  operators from TokenType, which is built once, never changes and is
+ *  shared by all tables; only the ids and literals of the program are
+ *  entered in the table itself<br>
+ *  The table is split into stripes, each an open addressing table with
+ *  its own lock, so it may be shared by threads working on the same
+ *  compilation; it holds at most <i>limit</i> symbols and must not be
+ *  used after release()
+*/
+public class SymbolTable {
+  public static final int DEFAULT_LIMIT = 1 << 20;
+
+  // number of stripes; a power of 2
+  private static final int STRIPES = 16;
+  private static final int INITIAL_STRIPE_SIZE = 64;
+
+  // the shared keyword layer; an open addressing table, read only once built
+  private static final Symbol[] keywords = buildKeywords();
+
+  private final Stripe[] stripes = new Stripe[ STRIPES ];
+  private final int limit;
+  private final AtomicInteger count = new AtomicInteger();
+  private volatile boolean released = false;
+
+  public SymbolTable() {
+    this( DEFAULT_LIMIT );
+  }
+
+  /**
+   * @param limit is the most symbols the compilation may intern
+   */
+  public SymbolTable( int limit ) {
+    this.limit = limit;
+    for( int i = 0; i < STRIPES; i++ ) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * Return the unique symbol associated with a string.
+   * Repeated calls to <tt>symbol("abc", kind)</tt> will return the same Symbol.
+   *
+   * @param kind is the kind given to a new symbol; a BogusToken lookup
+   * only finds existing symbols and returns null for new strings
+   * @exception IllegalStateException if the table was released or is full
+   */
+  public Symbol symbol( String text, Tokens kind ) {
+    int hash = text.hashCode();
+    Symbol s = keyword( text, hash );
+    if( s != null ) {
+      return s;
+    }
+    return stripe( hash ).symbol( text, null, 0, 0, hash, kind );
+  }
+
+  /**
+   * Return the unique symbol whose string is buffer[start..end); the
+   * String is only built the first time the text is seen
+   */
+  public Symbol symbol( char[] buffer, int start, int end, Tokens kind ) {
+    int hash = Symbol.hash( buffer, start, end );
+    Symbol s = keyword( buffer, start, end, hash );
+    if( s != null ) {
+      return s;
+    }
+    return stripe( hash ).symbol( null, buffer, start, end, hash, kind );
+  }
+
+  /**
+   * @return the number of symbols interned by this compilation; the
+   * shared keywords are not counted
+   */
+  public int size() {
+    return count.get();
+  }
+
+  public boolean isReleased() {
+    return released;
+  }
+
+  /**
+   * drop every symbol interned by this compilation; called when the
+   * compilation finishes. Symbols already handed out stay valid
+   */
+  public void release() {
+    released = true;
+    for( Stripe stripe : stripes ) {
+      stripe.clear();
+    }
+    count.set( 0 );
+  }
+
+  private Stripe stripe( int hash ) {
+    return stripes[ (hash ^ (hash >>> 16)) & (STRIPES - 1) ];
+  }
+
+  private static Symbol keyword( String text, int hash ) {
+    int mask = keywords.length - 1;
+    Symbol s;
+    for( int slot = hash & mask; (s = keywords[slot]) != null; slot = (slot + 1) & mask ) {
+      if( s.hash() == hash && s.matches( text )) {
+        return s;
+      }
+    }
+    return null;
+  }
+
+  private static Symbol keyword( char[] buffer, int start, int end, int hash ) {
+    int mask = keywords.length - 1;
+    Symbol s;
+    for( int slot = hash & mask; (s = keywords[slot]) != null; slot = (slot + 1) & mask ) {
+      if( s.hash() == hash && s.matches( buffer, start, end )) {
+        return s;
+      }
+    }
+    return null;
+  }
+
+  private static Symbol[] buildKeywords() {
+    int size = 1;
+    while( size < TokenType.tokens.size() * 4 ) {
+      size *= 2;
+    }
+    Symbol[] table = new Symbol[ size ];
+    for( Symbol s : TokenType.tokens.values() ) {
+      int slot = s.hash() & (size - 1);
+      while( table[slot] != null ) {
+        slot = (slot + 1) & (size - 1);
+      }
+      table[slot] = s;
+    }
+    return table;
+  }
+
+  /**
+   *  one stripe of the table; the bits of the hash that picked the stripe
+   *  are the same for all its symbols so the slot uses the bits above them
+   */
+  private class Stripe {
+    private Symbol[] symbols = new Symbol[ INITIAL_STRIPE_SIZE ];
+    private int symbolCount = 0;
+
+    // the text is either the String text or buffer[start..end)
+    synchronized Symbol symbol( String text, char[] buffer, int start, int end,
+                                int hash, Tokens kind ) {
+      if( released ) {
+        throw new IllegalStateException( "symbol table used after release" );
+      }
+      int mask = symbols.length - 1;
+      int slot = slot( hash ) & mask;
+      Symbol s;
+      while( (s = symbols[slot]) != null ) {
+        if( s.hash() == hash &&
+            (text != null ? s.matches( text ) : s.matches( buffer, start, end ))) {
+          return s;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if( kind == Tokens.BogusToken ) {
+        // bogus string so don't enter into symbols
+        return null;
+      }
+      if( count.incrementAndGet() > limit ) {
+        count.decrementAndGet();
+        throw new IllegalStateException(
+          "symbol table limit of " + limit + " symbols exceeded" );
+      }
+      if( text == null ) {
+        text = new String( buffer, start, end - start );
+      }
+      s = new Symbol( text, kind, hash );
+      symbols[slot] = s;
+      symbolCount++;
+      // keep the stripe at most half full so probe chains stay short
+      if( symbolCount * 2 > symbols.length ) {
+        grow();
+      }
+      return s;
+    }
+
+    synchronized void clear() {
+      symbols = new Symbol[ INITIAL_STRIPE_SIZE ];
+      symbolCount = 0;
+    }
+
+    private int slot( int hash ) {
+      return (hash ^ (hash >>> 16)) >>> 4;
+    }
+
+    private void grow() {
+      Symbol[] old = symbols;
+      symbols = new Symbol[ old.length * 2 ];
+      int mask = symbols.length - 1;
+      for( Symbol entry : old ) {
+        if( entry != null ) {
+          int i = slot( entry.hash() ) & mask;
+          while( symbols[i] != null ) {
+            i = (i + 1) & mask;
+          }
+          symbols[i] = entry;
+        }
+      }
+    }
+  }
+}
@@ -5,10 +5,13 @@ package lexer;
  *  1. The Symbol that describes the characters in the token
  *  2. The starting column in the source file of the token and
  *  3. The ending column in the source file of the token
+ *  4. The range [startOffset, endOffset) of the source buffer
+ *     holding the text of the token (-1 when not scanned from source)
  *  </pre>
 */
 public class Token {
   private int leftPosition,rightPosition, lineFound;
+  private int startOffset = -1, endOffset = -1;
   private Symbol symbol;
 
   /**
@@ -23,6 +26,18 @@ public class Token {
     this.lineFound = lineFound;
   }
 
+  /**
+   *  Create a new Token scanned from the source buffer
+   *  @param startOffset is the buffer offset of the first character of the Token
+   *  @param endOffset is the buffer offset just past the last character
+   */
+  public Token( int leftPosition, int rightPosition, int lineFound , Symbol sym,
+                int startOffset, int endOffset ) {
+    this( leftPosition, rightPosition, lineFound, sym );
+    this.startOffset = startOffset;
+    this.endOffset = endOffset;
+  }
+
   public Symbol getSymbol() {
     return symbol;
   }
@@ -50,6 +65,14 @@ public class Token {
     return rightPosition;
   }
 
+  public int getStartOffset() {
+    return startOffset;
+  }
+
+  public int getEndOffset() {
+    return endOffset;
+  }
+
   public int getLineNumber(){
     return lineFound;
   }
@@ -3,53 +3,58 @@ package lexer;
 /**
  *  This file is automatically generated<br>
  *  it contains the table of mappings from token
- *  constants to their Symbols
+ *  constants to their Symbols; the table is built once and is
+ *  read only so it is shared by every compilation
 */
 public class TokenType {
-   public static java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();
-   public TokenType() {
-     tokens.put(Tokens.Program, Symbol.symbol("program",Tokens.Program));
-     tokens.put(Tokens.Int, Symbol.symbol("int",Tokens.Int));
-     tokens.put(Tokens.BOOLean, Symbol.symbol("boolean",Tokens.BOOLean));
-     tokens.put(Tokens.If, Symbol.symbol("if",Tokens.If));
-     tokens.put(Tokens.Then, Symbol.symbol("then",Tokens.Then));
-     tokens.put(Tokens.Else, Symbol.symbol("else",Tokens.Else));
-     tokens.put(Tokens.While, Symbol.symbol("while",Tokens.While));
-     tokens.put(Tokens.Switch, Symbol.symbol("switch",Tokens.Switch));
-     tokens.put(Tokens.Case, Symbol.symbol("case",Tokens.Case));
-     tokens.put(Tokens.Default, Symbol.symbol("default",Tokens.Default));
-     tokens.put(Tokens.Function, Symbol.symbol("function",Tokens.Function));
-     tokens.put(Tokens.Return, Symbol.symbol("return",Tokens.Return));
-     tokens.put(Tokens.Identifier, Symbol.symbol("<id>",Tokens.Identifier));
-     tokens.put(Tokens.INTeger, Symbol.symbol("<int>",Tokens.INTeger));
-     tokens.put(Tokens.LeftBrace, Symbol.symbol("{",Tokens.LeftBrace));
-     tokens.put(Tokens.RightBrace, Symbol.symbol("}",Tokens.RightBrace));
-     tokens.put(Tokens.LeftParen, Symbol.symbol("(",Tokens.LeftParen));
-     tokens.put(Tokens.RightParen, Symbol.symbol(")",Tokens.RightParen));
-     tokens.put(Tokens.Comma, Symbol.symbol(",",Tokens.Comma));
-     tokens.put(Tokens.Assign, Symbol.symbol("=",Tokens.Assign));
-     tokens.put(Tokens.Equal, Symbol.symbol("==",Tokens.Equal));
-     tokens.put(Tokens.NotEqual, Symbol.symbol("!=",Tokens.NotEqual));
-     tokens.put(Tokens.Less, Symbol.symbol("<",Tokens.Less));
-     tokens.put(Tokens.LessEqual, Symbol.symbol("<=",Tokens.LessEqual));
-     tokens.put(Tokens.Plus, Symbol.symbol("+",Tokens.Plus));
-     tokens.put(Tokens.Minus, Symbol.symbol("-",Tokens.Minus));
-     tokens.put(Tokens.Or, Symbol.symbol("|",Tokens.Or));
-     tokens.put(Tokens.And, Symbol.symbol("&",Tokens.And));
-     tokens.put(Tokens.Multiply, Symbol.symbol("*",Tokens.Multiply));
-     tokens.put(Tokens.Divide, Symbol.symbol("/",Tokens.Divide));
-     tokens.put(Tokens.Comment, Symbol.symbol("//",Tokens.Comment));
-     tokens.put(Tokens.Greater, Symbol.symbol(">",Tokens.Greater));
-     tokens.put(Tokens.GreaterEqual, Symbol.symbol(">=",Tokens.GreaterEqual));
-     tokens.put(Tokens.HashDelimiter, Symbol.symbol("#",Tokens.HashDelimiter));
-     tokens.put(Tokens.LeftBracket, Symbol.symbol("[",Tokens.LeftBracket));
-     tokens.put(Tokens.RightBracket, Symbol.symbol("]",Tokens.RightBracket));
-     tokens.put(Tokens.Utf16String, Symbol.symbol("utf16String",Tokens.Utf16String));
-     tokens.put(Tokens.Utf16StringLit, Symbol.symbol("<utf16String>",Tokens.Utf16StringLit));
-     tokens.put(Tokens.TimeStampType, Symbol.symbol("timestamp",Tokens.TimeStampType));
-     tokens.put(Tokens.TimeStampLit, Symbol.symbol("<timestamp>",Tokens.TimeStampLit));
-     tokens.put(Tokens.Begin, Symbol.symbol("begin",Tokens.Begin));
-     tokens.put(Tokens.End, Symbol.symbol("end",Tokens.End));
-     tokens.put(Tokens.In, Symbol.symbol("in",Tokens.In));
+   public static final java.util.Map<Tokens,Symbol> tokens;
+   static {
+     java.util.EnumMap<Tokens,Symbol> table = new java.util.EnumMap<Tokens,Symbol>(Tokens.class);
+     table.put(Tokens.Program, new Symbol("program",Tokens.Program));
+     table.put(Tokens.Int, new Symbol("int",Tokens.Int));
+     table.put(Tokens.BOOLean, new Symbol("boolean",Tokens.BOOLean));
+     table.put(Tokens.If, new Symbol("if",Tokens.If));
+     table.put(Tokens.Then, new Symbol("then",Tokens.Then));
+     table.put(Tokens.Else, new Symbol("else",Tokens.Else));
+     table.put(Tokens.While, new Symbol("while",Tokens.While));
+     table.put(Tokens.Switch, new Symbol("switch",Tokens.Switch));
+     table.put(Tokens.Case, new Symbol("case",Tokens.Case));
+     table.put(Tokens.Default, new Symbol("default",Tokens.Default));
+     table.put(Tokens.Function, new Symbol("function",Tokens.Function));
+     table.put(Tokens.Return, new Symbol("return",Tokens.Return));
+     table.put(Tokens.Identifier, new Symbol("<id>",Tokens.Identifier));
+     table.put(Tokens.INTeger, new Symbol("<int>",Tokens.INTeger));
+     table.put(Tokens.LeftBrace, new Symbol("{",Tokens.LeftBrace));
+     table.put(Tokens.RightBrace, new Symbol("}",Tokens.RightBrace));
+     table.put(Tokens.LeftParen, new Symbol("(",Tokens.LeftParen));
+     table.put(Tokens.RightParen, new Symbol(")",Tokens.RightParen));
+     table.put(Tokens.Comma, new Symbol(",",Tokens.Comma));
+     table.put(Tokens.Assign, new Symbol("=",Tokens.Assign));
+     table.put(Tokens.Equal, new Symbol("==",Tokens.Equal));
+     table.put(Tokens.NotEqual, new Symbol("!=",Tokens.NotEqual));
+     table.put(Tokens.Less, new Symbol("<",Tokens.Less));
+     table.put(Tokens.LessEqual, new Symbol("<=",Tokens.LessEqual));
+     table.put(Tokens.Plus, new Symbol("+",Tokens.Plus));
+     table.put(Tokens.Minus, new Symbol("-",Tokens.Minus));
+     table.put(Tokens.Or, new Symbol("|",Tokens.Or));
+     table.put(Tokens.And, new Symbol("&",Tokens.And));
+     table.put(Tokens.Multiply, new Symbol("*",Tokens.Multiply));
+     table.put(Tokens.Divide, new Symbol("/",Tokens.Divide));
+     table.put(Tokens.Comment, new Symbol("//",Tokens.Comment));
+     table.put(Tokens.Greater, new Symbol(">",Tokens.Greater));
+     table.put(Tokens.GreaterEqual, new Symbol(">=",Tokens.GreaterEqual));
+     table.put(Tokens.HashDelimiter, new Symbol("#",Tokens.HashDelimiter));
+     table.put(Tokens.LeftBracket, new Symbol("[",Tokens.LeftBracket));
+     table.put(Tokens.RightBracket, new Symbol("]",Tokens.RightBracket));
+     table.put(Tokens.Utf16String, new Symbol("utf16String",Tokens.Utf16String));
+     table.put(Tokens.Utf16StringLit, new Symbol("<utf16String>",Tokens.Utf16StringLit));
+     table.put(Tokens.TimeStampType, new Symbol("timestamp",Tokens.TimeStampType));
+     table.put(Tokens.TimeStampLit, new Symbol("<timestamp>",Tokens.TimeStampLit));
+     table.put(Tokens.Begin, new Symbol("begin",Tokens.Begin));
+     table.put(Tokens.End, new Symbol("end",Tokens.End));
+     table.put(Tokens.In, new Symbol("in",Tokens.In));
+     tokens = java.util.Collections.unmodifiableMap(table);
    }
+ 
+   private TokenType() {}
 }
@@ -5,8 +5,11 @@ import java.io.*;
 
 /**
  *  TokenSetup class is used to read the tokens from file <i>tokens</i>
- *  and automatically build the 2 classes/files <i>TokenType.java</i>
- *  and <i>Sym.java</i><br>
+ *  and automatically build the 4 classes/files <i>TokenType.java</i>,
+ *  <i>Tokens.java</i>, <i>TokenTable.java</i> and <i>ReservedWords.java</i>;
+ *  TokenTable holds the DFA the lexer uses to recognize reserved words and
+ *  operators and ReservedWords a minimal perfect hash over the reserved
+ *  words<br>
  *  Therefore, if there is any change to the tokens then we only need to
  *  modify the file <i>tokens</i> and run this program again before using the
  *  compiler
@@ -17,7 +20,10 @@ public class TokenSetup {
   private int tokenCount = 0;
   private BufferedReader in;
   // files used for new classes
-  private PrintWriter table, symbols;
+  private PrintWriter table, symbols, dfa, reserved;
+  // token types and printstrings in the order they were read
+  private ArrayList<String> types = new ArrayList<String>(),
+                            values = new ArrayList<String>();
 
   public static void main( String args[] ) {
       new TokenSetup().initTokenClasses();
@@ -31,6 +37,8 @@ public class TokenSetup {
       in = new BufferedReader( new FileReader( "lexer" + sep + "setup" + sep + "tokens" ));
       table = new PrintWriter( new FileOutputStream( "lexer" + sep + "TokenType.java" ));
       symbols = new PrintWriter( new FileOutputStream( "lexer" + sep + "Tokens.java" ));
+      dfa = new PrintWriter( new FileOutputStream( "lexer" + sep + "TokenTable.java" ));
+      reserved = new PrintWriter( new FileOutputStream( "lexer" + sep + "ReservedWords.java" ));
     } catch( Exception e ) {
       System.out.println( e );
     }
@@ -69,11 +77,13 @@ public class TokenSetup {
     table.println ("/**" );
     table.println (" *  This file is automatically generated<br>" );
     table.println (" *  it contains the table of mappings from token" );
-    table.println (" *  constants to their Symbols" );
+    table.println (" *  constants to their Symbols; the table is built once and is" );
+    table.println (" *  read only so it is shared by every compilation" );
     table.println ("*/" );
     table.println ("public class TokenType {" );
-    table.println ("   public static java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();" );
-    table.println ("   public TokenType() {" );
+    table.println ("   public static final java.util.Map<Tokens,Symbol> tokens;" );
+    table.println ("   static {" );
+    table.println ("     java.util.EnumMap<Tokens,Symbol> table = new java.util.EnumMap<Tokens,Symbol>(Tokens.class);" );
     symbols.println ("package lexer;" );
     symbols.println (" " );
     symbols.println ("/**" );
@@ -89,9 +99,11 @@ public class TokenSetup {
       } catch( IOException e ) { break; }
 
       String symType = "Tokens." + type;
+      types.add( type );
+      values.add( value );
 
       table.println(
-        "     tokens.put(" + symType  + ", Symbol.symbol(\"" +
+        "     table.put(" + symType  + ", new Symbol(\"" +
         value + "\"," + symType + "));"
       );
 
@@ -102,7 +114,10 @@ public class TokenSetup {
       }
     }
 
+    table.println( "     tokens = java.util.Collections.unmodifiableMap(table);" );
     table.println( "   }" );
+    table.println( " " );
+    table.println( "   private TokenType() {}" );
     table.println( "}" );
     table.close();
     symbols.println( "\n}" );
@@ -111,6 +126,273 @@ public class TokenSetup {
     try {
       in.close();
     } catch( Exception e ) { /* no-op */ }
+
+    initTokenTable();
+    initReservedWords();
+  }
+
+  /**
+   *  reserved words and operators are the printstrings the lexer matches
+   *  literally; the placeholders for ids and literals (e.g. &LT;id&GT;,
+   *  &LT;int&GT;) are scanned by hand in the lexer
+   */
+  static boolean isLiteralToken( String value ) {
+    return !( value.length() > 2 && value.startsWith( "<" ) && value.endsWith( ">" ));
+  }
+
+  /**
+   *  build the DFA over the literal tokens and write <i>TokenTable.java</i><br>
+   *  The DFA is a trie: state 0 is the dead state, state 1 the start
+   *  state; every character used by a literal token gets its own char
+   *  class and all other characters share class 0 which always leads to
+   *  the dead state
+   */
+  public void initTokenTable() {
+    int[] charClass = new int[128];
+    int classCount = 1;
+    for( String value : values ) {
+      if( !isLiteralToken( value )) {
+        continue;
+      }
+      for( char c : value.toCharArray() ) {
+        if( c >= 128 ) {
+          System.out.println( "***token " + value + " is not ASCII***" );
+          System.exit( 1 );
+        }
+        if( charClass[c] == 0 ) {
+          charClass[c] = classCount++;
+        }
+      }
+    }
+
+    // transitions of each state indexed by char class; accepting token type
+    ArrayList<int[]> next = new ArrayList<int[]>();
+    ArrayList<String> accept = new ArrayList<String>();
+    next.add( new int[classCount] );   // dead state
+    accept.add( null );
+    next.add( new int[classCount] );   // start state
+    accept.add( null );
+    for( int i = 0; i < values.size(); i++ ) {
+      String value = values.get( i );
+      if( !isLiteralToken( value )) {
+        continue;
+      }
+      int state = 1;
+      for( char c : value.toCharArray() ) {
+        int cls = charClass[c];
+        if( next.get( state )[cls] == 0 ) {
+          next.add( new int[classCount] );
+          accept.add( null );
+          next.get( state )[cls] = next.size() - 1;
+        }
+        state = next.get( state )[cls];
+      }
+      accept.set( state, types.get( i ));
+    }
+
+    dfa.println( "package lexer;" );
+    dfa.println( " " );
+    dfa.println( "/**" );
+    dfa.println( " *  This file is automatically generated<br>" );
+    dfa.println( " *  it contains the DFA over char classes that recognizes" );
+    dfa.println( " *  the reserved words and operators; state 0 is the dead state" );
+    dfa.println( " *  and state 1 the start state" );
+    dfa.println( "*/" );
+    dfa.println( "public class TokenTable {" );
+    dfa.println( "   public static final int DEAD = 0, START = 1;" );
+    dfa.println( "   public static final int CLASSES = " + classCount + ";" );
+    dfa.print( "   // char class of each ASCII character; other characters are class 0" );
+    dfa.print( "\n   public static final byte[] charClass = {" );
+    for( int c = 0; c < 128; c++ ) {
+      dfa.print( (c % 16 == 0 ? "\n     " : " ") + charClass[c] + "," );
+    }
+    dfa.println( "\n   };" );
+    dfa.print( "   // next state = next[state * CLASSES + charClass]" );
+    dfa.print( "\n   public static final short[] next = {" );
+    for( int[] row : next ) {
+      dfa.print( "\n    " );
+      for( int target : row ) {
+        dfa.print( " " + target + "," );
+      }
+    }
+    dfa.println( "\n   };" );
+    dfa.print( "   // token recognized when the DFA stops in each state" );
+    dfa.print( "\n   public static final Tokens[] accept = {" );
+    for( String type : accept ) {
+      dfa.print( "\n     " + (type == null ? "null" : "Tokens." + type) + "," );
+    }
+    dfa.println( "\n   };" );
+    dfa.println( " " );
+    dfa.println( "   /**" );
+    dfa.println( "    *  @return the state reached from state on character c" );
+    dfa.println( "    */" );
+    dfa.println( "   public static int step( int state, char c ) {" );
+    dfa.println( "     return c < 128 ? next[ state * CLASSES + charClass[c] ] : DEAD;" );
+    dfa.println( "   }" );
+    dfa.println( "}" );
+    dfa.close();
+  }
+
+  /**
+   *  the hashes used by the perfect hash; ReservedWords.java gets
+   *  identical copies. hash is FNV-1a over the word; mix scrambles that
+   *  hash with a seed so the word is only scanned once per lookup
+   */
+  static int hash( String word ) {
+    int h = 0x811C9DC5;
+    for( int i = 0; i < word.length(); i++ ) {
+      h = (h ^ word.charAt( i )) * 0x01000193;
+    }
+    return h & 0x7fffffff;
+  }
+
+  static int mix( int hash, int seed ) {
+    int x = hash ^ (seed * 0x9E3779B9);
+    x = (x ^ (x >>> 16)) * 0x85EBCA6B;
+    x = x ^ (x >>> 13);
+    return x & 0x7fffffff;
+  }
+
+  /**
+   *  build a minimal perfect hash over the reserved words (the literal
+   *  tokens that start like an id) and write <i>ReservedWords.java</i><br>
+   *  This is hash and displace: the words are split into buckets by
+   *  hash(word); then, largest bucket first, we search for the seed d
+   *  that sends every word of the bucket to a free slot with
+   *  mix(hash(word), d) % n. The n words fill exactly n slots
+   */
+  public void initReservedWords() {
+    ArrayList<String> words = new ArrayList<String>(),
+                      kinds = new ArrayList<String>();
+    for( int i = 0; i < values.size(); i++ ) {
+      String value = values.get( i );
+      if( isLiteralToken( value ) && Character.isJavaIdentifierStart( value.charAt( 0 ))) {
+        words.add( value );
+        kinds.add( types.get( i ));
+      }
+    }
+
+    int n = words.size();
+    int bucketCount = Math.max( 1, (n + 1) / 2 );
+    ArrayList<ArrayList<Integer>> buckets = new ArrayList<ArrayList<Integer>>();
+    for( int b = 0; b < bucketCount; b++ ) {
+      buckets.add( new ArrayList<Integer>() );
+    }
+    for( int w = 0; w < n; w++ ) {
+      buckets.get( hash( words.get( w )) % bucketCount ).add( w );
+    }
+    Integer[] order = new Integer[bucketCount];
+    for( int b = 0; b < bucketCount; b++ ) {
+      order[b] = b;
+    }
+    Arrays.sort( order, (a, b) -> buckets.get( b ).size() - buckets.get( a ).size() );
+
+    int[] displacement = new int[bucketCount];
+    int[] slotWord = new int[n];
+    Arrays.fill( slotWord, -1 );
+    int minLength = Integer.MAX_VALUE, maxLength = 0;
+    for( String word : words ) {
+      minLength = Math.min( minLength, word.length() );
+      maxLength = Math.max( maxLength, word.length() );
+    }
+
+    for( int b : order ) {
+      ArrayList<Integer> bucket = buckets.get( b );
+      if( bucket.isEmpty() ) {
+        continue;
+      }
+      for( int d = 1; ; d++ ) {
+        if( d == 1 << 24 ) {
+          System.out.println( "***no perfect hash found for the reserved words***" );
+          System.exit( 1 );
+        }
+        HashSet<Integer> taken = new HashSet<Integer>();
+        boolean fits = true;
+        for( int w : bucket ) {
+          int slot = mix( hash( words.get( w )), d ) % n;
+          if( slotWord[slot] != -1 || !taken.add( slot )) {
+            fits = false;
+            break;
+          }
+        }
+        if( fits ) {
+          for( int w : bucket ) {
+            slotWord[ mix( hash( words.get( w )), d ) % n ] = w;
+          }
+          displacement[b] = d;
+          break;
+        }
+      }
+    }
+
+    reserved.println( "package lexer;" );
+    reserved.println( " " );
+    reserved.println( "/**" );
+    reserved.println( " *  This file is automatically generated<br>" );
+    reserved.println( " *  it contains a minimal perfect hash over the reserved words;" );
+    reserved.println( " *  a range of the source buffer is a reserved word only if it" );
+    reserved.println( " *  matches the one word stored in the slot it hashes to" );
+    reserved.println( "*/" );
+    reserved.println( "public class ReservedWords {" );
+    reserved.println( "   public static final int SIZE = " + n + ", BUCKETS = " + bucketCount + ";" );
+    reserved.println( "   public static final int MIN_LENGTH = " + minLength +
+                      ", MAX_LENGTH = " + maxLength + ";" );
+    reserved.print( "   // seed for the second hash of the words in each bucket" );
+    reserved.print( "\n   public static final int[] displacement = {" );
+    for( int b = 0; b < bucketCount; b++ ) {
+      reserved.print( (b % 10 == 0 ? "\n    " : "") + " " + displacement[b] + "," );
+    }
+    reserved.println( "\n   };" );
+    reserved.print( "   public static final char[][] words = {" );
+    for( int slot = 0; slot < n; slot++ ) {
+      reserved.print( "\n     \"" + words.get( slotWord[slot] ) + "\".toCharArray()," );
+    }
+    reserved.println( "\n   };" );
+    reserved.print( "   public static final Tokens[] kinds = {" );
+    for( int slot = 0; slot < n; slot++ ) {
+      reserved.print( "\n     Tokens." + kinds.get( slotWord[slot] ) + "," );
+    }
+    reserved.println( "\n   };" );
+    reserved.println( " " );
+    reserved.println( "   static int hash( char[] buffer, int start, int end ) {" );
+    reserved.println( "     int h = 0x811C9DC5;" );
+    reserved.println( "     for( int i = start; i < end; i++ ) {" );
+    reserved.println( "       h = (h ^ buffer[i]) * 0x01000193;" );
+    reserved.println( "     }" );
+    reserved.println( "     return h & 0x7fffffff;" );
+    reserved.println( "   }" );
+    reserved.println( " " );
+    reserved.println( "   static int mix( int hash, int seed ) {" );
+    reserved.println( "     int x = hash ^ (seed * 0x9E3779B9);" );
+    reserved.println( "     x = (x ^ (x >>> 16)) * 0x85EBCA6B;" );
+    reserved.println( "     x = x ^ (x >>> 13);" );
+    reserved.println( "     return x & 0x7fffffff;" );
+    reserved.println( "   }" );
+    reserved.println( " " );
+    reserved.println( "   /**" );
+    reserved.println( "    *  @return the token kind of the reserved word buffer[start..end)" );
+    reserved.println( "    *  or null if the range is not a reserved word" );
+    reserved.println( "    */" );
+    reserved.println( "   public static Tokens lookup( char[] buffer, int start, int end ) {" );
+    reserved.println( "     int length = end - start;" );
+    reserved.println( "     if( length < MIN_LENGTH || length > MAX_LENGTH ) {" );
+    reserved.println( "       return null;" );
+    reserved.println( "     }" );
+    reserved.println( "     int hash = hash( buffer, start, end );" );
+    reserved.println( "     int slot = mix( hash, displacement[ hash % BUCKETS ] ) % SIZE;" );
+    reserved.println( "     char[] word = words[slot];" );
+    reserved.println( "     if( word.length != length ) {" );
+    reserved.println( "       return null;" );
+    reserved.println( "     }" );
+    reserved.println( "     for( int i = 0; i < length; i++ ) {" );
+    reserved.println( "       if( word[i] != buffer[ start + i ] ) {" );
+    reserved.println( "         return null;" );
+    reserved.println( "       }" );
+    reserved.println( "     }" );
+    reserved.println( "     return kinds[slot];" );
+    reserved.println( "   }" );
+    reserved.println( "}" );
+    reserved.close();
   }
 }
 
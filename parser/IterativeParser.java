@@ -0,0 +1,467 @@
+package parser;
+
+import java.util.*;
+import lexer.*;
+import ast.*;
+import diagnostics.Diagnostics;
+
+/**
+ * IterativeParser parses the same grammar as Parser and builds the same
+ * AST, numbered in the same order, without recursion: how deeply blocks,
+ * statements and parentheses nest is bounded by the heap rather than the
+ * thread stack<br>
+ * Expressions are parsed by precedence climbing over explicit operand and
+ * operator stacks; each open parenthesis or call pushes a frame of its
+ * own. The operators bind as the grammar's levels do - * / &amp; over
+ * + - | over the relations - and are left associative, and an expression
+ * holds at most one relation outside parentheses<br>
+ * Blocks, declarations and statements are parsed by a stack of frames,
+ * one per construct being built; a frame that needs a block or statement
+ * pushes the frame for it and is resumed with the tree it returns
+ */
+public class IterativeParser extends Parser {
+
+    // the binding power of each kind of operator tree
+    private static final int RELATION = 1, ADDING = 2, MULTIPLYING = 3;
+    // the states of a StatementFrame waiting for a kid
+    private static final int IF_THEN = 1, IF_ELSE = 2, WHILE_BODY = 3, CASES = 4, NESTED = 5;
+
+    /**
+     * Construct a new IterativeParser
+     *
+     * @param sourceProgram - source file name
+     * @param diagnostics - sink shared by the lexer, parser and later stages
+     * @exception Exception - thrown for any problems at startup (e.g. I/O)
+     */
+    public IterativeParser(String sourceProgram, Diagnostics diagnostics) throws Exception {
+        super(sourceProgram, diagnostics);
+    }
+
+    /**
+     * Construct a new IterativeParser for source that is already in memory
+     *
+     * @param source - reader holding the program source
+     * @param diagnostics - sink shared by the lexer, parser and later stages
+     */
+    public IterativeParser(MappedSourceReader source, Diagnostics diagnostics) {
+        super(source, diagnostics);
+    }
+
+    @Override
+    public AST rBlock() throws SyntaxError {
+        return run(new BlockFrame());
+    }
+
+    @Override
+    public AST rDecl() throws SyntaxError {
+        return run(new DeclFrame());
+    }
+
+    @Override
+    public AST rFunHead() throws SyntaxError {
+        return run(new FormalsFrame());
+    }
+
+    @Override
+    public AST rStatement() throws SyntaxError {
+        return run(new StatementFrame());
+    }
+
+    @Override
+    public AST rCaseBlock() throws SyntaxError {
+        return run(new CaseBlockFrame());
+    }
+
+    @Override
+    public AST rCaseStatement() throws SyntaxError {
+        return run(new CaseStatementFrame());
+    }
+
+    @Override
+    public AST rDefaultStatement() throws SyntaxError {
+        return run(new DefaultStatementFrame());
+    }
+
+    /**
+     * run frames until first is done
+     *
+     * @return the tree first built
+     * @exception SyntaxError - thrown for any syntax error
+     */
+    private AST run(Frame first) throws SyntaxError {
+        ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+        frames.push(first);
+        AST kid = null;
+        while (true) {
+            Frame frame = frames.peek();
+            Frame next = frame.resume(kid);
+            if (next != null) {
+                frames.push(next);
+                kid = null;
+                continue;
+            }
+            frames.pop();
+            kid = frame.tree;
+            if (frames.isEmpty()) {
+                return kid;
+            }
+        }
+    }
+
+    /**
+     * A construct being parsed; resume is called with null when the frame
+     * is pushed and then with the tree of each frame it asked for
+     */
+    private abstract static class Frame {
+        // the tree built, set once the frame is done
+        AST tree;
+        int state;
+
+        /**
+         * @return the frame whose tree this one needs next, or null once
+         * tree is built
+         */
+        abstract Frame resume(AST kid) throws SyntaxError;
+    }
+
+    // block -> '{' d* s* '}' ==> block
+    private class BlockFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            if (state == 0) {
+                expect(Tokens.LeftBrace);
+                tree = ids.number(new BlockTree());
+                state = 1;
+            } else {
+                tree.addKid(kid);
+            }
+            if (state == 1) {
+                if (startingDecl()) {
+                    return new DeclFrame();
+                }
+                state = 2;
+            }
+            if (startingStatement()) {
+                return new StatementFrame();
+            }
+            expect(Tokens.RightBrace);
+            return null;
+        }
+    }
+
+    // d -> type name ==> decl -> type name funcHead block ==> functionDecl
+    private class DeclFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            switch (state) {
+                case 0:
+                    AST t = rType();
+                    AST t1 = rName();
+                    if (!isNextTok(Tokens.LeftParen)) {
+                        tree = ids.number(new DeclTree()).addKid(t).addKid(t1);
+                        return null;
+                    }
+                    tree = ids.number(new FunctionDeclTree()).addKid(t).addKid(t1);
+                    state = 1;
+                    return new FormalsFrame();
+                case 1:
+                    tree.addKid(kid);
+                    state = 2;
+                    return new BlockFrame();
+                default:
+                    tree.addKid(kid);
+                    return null;
+            }
+        }
+    }
+
+    // funHead -> '(' (decl list ',')? ')' ==> formals
+    private class FormalsFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            if (state == 0) {
+                tree = ids.number(new FormalsTree());
+                expect(Tokens.LeftParen);
+                state = 1;
+                if (!isNextTok(Tokens.RightParen)) {
+                    return new DeclFrame();
+                }
+            } else {
+                tree.addKid(kid);
+                if (isNextTok(Tokens.Comma)) {
+                    scan();
+                    return new DeclFrame();
+                }
+            }
+            expect(Tokens.RightParen);
+            return null;
+        }
+    }
+
+    // s -> if, while, switch, return, block or assign; see Parser.rStatement
+    private class StatementFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            switch (state) {
+                case 0:
+                    return start();
+                case IF_THEN:
+                    tree.addKid(kid);
+                    if (isNextTok(Tokens.Else)) {
+                        scan();
+                        state = IF_ELSE;
+                        return new BlockFrame();
+                    }
+                    return null;
+                case NESTED:
+                    tree = kid;
+                    return null;
+                default:
+                    // IF_ELSE, WHILE_BODY and CASES end with their last kid
+                    tree.addKid(kid);
+                    return null;
+            }
+        }
+
+        private Frame start() throws SyntaxError {
+            if (isNextTok(Tokens.If)) {
+                scan();
+                tree = ids.number(new IfTree());
+                tree.addKid(rExpr());
+                expect(Tokens.Then);
+                state = IF_THEN;
+                return new BlockFrame();
+            }
+            if (isNextTok(Tokens.While)) {
+                scan();
+                tree = ids.number(new WhileTree());
+                tree.addKid(rExpr());
+                state = WHILE_BODY;
+                return new BlockFrame();
+            }
+            if (isNextTok(Tokens.Switch)) {
+                scan();
+                tree = ids.number(new SwitchTree());
+                expect(Tokens.LeftParen);
+                if (isNextTok(Tokens.Identifier)) {
+                    tree.addKid(ids.number(new IdTree(currentToken)));
+                    scan();
+                }
+                expect(Tokens.RightParen);
+                state = CASES;
+                return new CaseBlockFrame();
+            }
+            if (isNextTok(Tokens.Return)) {
+                scan();
+                tree = ids.number(new ReturnTree());
+                tree.addKid(rExpr());
+                return null;
+            }
+            if (isNextTok(Tokens.LeftBrace)) {
+                state = NESTED;
+                return new BlockFrame();
+            }
+            tree = rName();
+            tree = ids.number(new AssignTree()).addKid(tree);
+            expect(Tokens.Assign);
+            tree.addKid(rExpr());
+            return null;
+        }
+    }
+
+    // caseBlock -> '{' caseStatement* ('default' defaultStatement)?
+    private class CaseBlockFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            if (state == 0) {
+                tree = ids.number(new CaseBlockTree());
+                expect(Tokens.LeftBrace);
+                state = 1;
+            } else {
+                tree.addKid(kid);
+                if (state == 2) {
+                    return null;
+                }
+            }
+            if (startingCase()) {
+                return new CaseStatementFrame();
+            }
+            if (isNextTok(Tokens.Default)) {
+                scan();
+                state = 2;
+                return new DefaultStatementFrame();
+            }
+            return null;
+        }
+    }
+
+    // caseStatement -> 'case' caseList '#' s
+    private class CaseStatementFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            if (state == 0) {
+                expect(Tokens.Case);
+                tree = ids.number(new CaseStatementTree());
+                tree.addKid(rCaseList());
+                expect(Tokens.HashDelimiter);
+                state = 1;
+                return new StatementFrame();
+            }
+            tree.addKid(kid);
+            return null;
+        }
+    }
+
+    // defaultStatement -> '#' s
+    private class DefaultStatementFrame extends Frame {
+        Frame resume(AST kid) throws SyntaxError {
+            if (state == 0) {
+                expect(Tokens.HashDelimiter);
+                tree = ids.number(new DefaultStatementTree());
+                state = 1;
+                return new StatementFrame();
+            }
+            tree.addKid(kid);
+            return null;
+        }
+    }
+
+    /**
+     * An expression being parsed: the whole expression, the inside of a
+     * pair of parentheses or one argument of a call
+     */
+    private static class Group {
+        // the CallTree whose arguments are parsed; null for parentheses
+        final AST call;
+        // where the group's operators start on the operator stack
+        int operatorBase;
+        boolean relation;
+
+        Group(AST call, int operatorBase) {
+            this.call = call;
+            this.operatorBase = operatorBase;
+        }
+    }
+
+    /**
+     * <pre>
+     * e -> se (relation se)?
+     * se -> t (('+' | '-' | '|') t)*
+     * t -> f (('*' | '/' | '&amp;') f)*
+     * f -> '(' e ')' | name | &lt;int&gt; | &lt;utf16String&gt; | &lt;timestamp&gt;
+     *   -> name '(' (e list ',')? ')' ==> call
+     * </pre>
+     * The operators are checked for in the order Parser's rTerm,
+     * rSimpleExpr and rExpr check for them, so the same tokens end an
+     * expression and the same syntax errors are thrown
+     *
+     * @return the tree corresponding to the expression
+     * @exception SyntaxError - thrown for any syntax error
+     */
+    @Override
+    public AST rExpr() throws SyntaxError {
+        ArrayList<AST> operands = new ArrayList<AST>();
+        ArrayList<AST> operators = new ArrayList<AST>();
+        ArrayDeque<Group> groups = new ArrayDeque<Group>();
+        Group group = new Group(null, 0);
+        while (true) {
+            // an operand
+            if (isNextTok(Tokens.LeftParen)) {
+                scan();
+                groups.push(group);
+                group = new Group(null, operators.size());
+                continue;
+            }
+            AST t = factor();
+            if (t.getKind() == NodeKind.CALL) {
+                if (!isNextTok(Tokens.RightParen)) {
+                    groups.push(group);
+                    group = new Group(t, operators.size());
+                    continue;
+                }
+                scan();
+            }
+            operands.add(t);
+            // then an operator, or the end of groups until one continues
+            while (true) {
+                AST operator = getMultOperTree();
+                if (operator == null) {
+                    operator = getAddOperTree();
+                }
+                if (operator == null && !group.relation) {
+                    operator = getRelationTree();
+                    group.relation = operator != null;
+                }
+                if (operator != null) {
+                    reduce(operands, operators, group, power(operator));
+                    operators.add(operator);
+                    break;
+                }
+                reduce(operands, operators, group, RELATION);
+                if (groups.isEmpty()) {
+                    return operands.remove(operands.size() - 1);
+                }
+                if (group.call == null) {
+                    expect(Tokens.RightParen);
+                    group = groups.pop();
+                    continue;
+                }
+                group.call.addKid(operands.remove(operands.size() - 1));
+                if (isNextTok(Tokens.Comma)) {
+                    scan();
+                    group.relation = false;
+                    break;
+                }
+                expect(Tokens.RightParen);
+                operands.add(group.call);
+                group = groups.pop();
+            }
+        }
+    }
+
+    /**
+     * a factor that isn't parenthesized; for a call, the name and '(' are
+     * read and the CallTree returned has no arguments yet
+     */
+    private AST factor() throws SyntaxError {
+        AST t;
+        if (isNextTok(Tokens.INTeger)) {
+            t = ids.number(new IntTree(currentToken));
+            scan();
+            return t;
+        }
+        if (isNextTok(Tokens.Utf16StringLit)) {
+            t = ids.number(new UtfStringLitTree(currentToken));
+            scan();
+            return t;
+        }
+        if (isNextTok(Tokens.TimeStampLit)) {
+            t = ids.number(new TimeStampLitTree(currentToken));
+            scan();
+            return t;
+        }
+        t = rName();
+        if (!isNextTok(Tokens.LeftParen)) {
+            return t;
+        }
+        scan();
+        return ids.number(new CallTree()).addKid(t);
+    }
+
+    /**
+     * make trees of the group's operators that bind at least as tightly as
+     * power, each taking the two operands below it
+     */
+    private static void reduce(ArrayList<AST> operands, ArrayList<AST> operators,
+            Group group, int power) {
+        while (operators.size() > group.operatorBase
+                && power(operators.get(operators.size() - 1)) >= power) {
+            AST operator = operators.remove(operators.size() - 1);
+            AST right = operands.remove(operands.size() - 1);
+            AST left = operands.remove(operands.size() - 1);
+            operands.add(operator.addKid(left).addKid(right));
+        }
+    }
+
+    private static int power(AST operator) {
+        switch (operator.getKind()) {
+            case MULT_OP: return MULTIPLYING;
+            case ADD_OP: return ADDING;
+            default: return RELATION;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package parser;
 import java.util.*;
 import lexer.*;
 import ast.*;
+import diagnostics.Diagnostics;
 
 /**
  * The Parser class performs recursive-descent parsing; as a by-product it will
@@ -54,8 +55,12 @@ import ast.*;
  */
 public class Parser {
 
-    private Token currentToken;
+    Token currentToken;
     private Lexer lex;
+    private Diagnostics diagnostics;
+    private int tokenCount = 0;
+    // numbers the nodes of the tree as they are built
+    final NodeIds ids = new NodeIds();
     private EnumSet<Tokens> relationalOps
             = EnumSet.of(Tokens.Equal, Tokens.NotEqual, Tokens.Less, Tokens.LessEqual, Tokens.GreaterEqual, Tokens.Greater);
     private EnumSet<Tokens> addingOps
@@ -70,19 +75,62 @@ public class Parser {
      * @exception Exception - thrown for any problems at startup (e.g. I/O)
      */
     public Parser(String sourceProgram) throws Exception {
+        this(sourceProgram, Diagnostics.getDefault());
+    }
+
+    /**
+     * Construct a new Parser;
+     *
+     * @param sourceProgram - source file name
+     * @param diagnostics - sink shared by the lexer, parser and later stages
+     * @exception Exception - thrown for any problems at startup (e.g. I/O)
+     */
+    public Parser(String sourceProgram, Diagnostics diagnostics) throws Exception {
+        this.diagnostics = diagnostics;
         try {
-            lex = new Lexer(sourceProgram);
+            lex = new Lexer(sourceProgram, diagnostics);
             scan();
         } catch (Exception e) {
-            System.out.println("********exception*******" + e.toString());
+            diagnostics.error("********exception*******" + e.toString());
             throw e;
         };
     }
 
+    /**
+     * Construct a new Parser for source that is already in memory
+     *
+     * @param source - reader holding the program source
+     * @param diagnostics - sink shared by the lexer, parser and later stages
+     */
+    public Parser(MappedSourceReader source, Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        lex = new Lexer(source, diagnostics);
+        scan();
+    }
+
     public Lexer getLex() {
         return lex;
     }
 
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @return the numbering of the nodes of the tree being built; the
+     * nodes are numbered 0 .. getNodeIds().count() - 1
+     */
+    public NodeIds getNodeIds() {
+        return ids;
+    }
+
+    /**
+     * @return the number of tokens scanned so far
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
     /**
      * Execute the parse command
      *
@@ -93,7 +141,7 @@ public class Parser {
         try {
             return rProgram();
         } catch (SyntaxError e) {
-            e.print();
+            e.print(diagnostics);
             throw e;
         }
     }
@@ -110,7 +158,7 @@ public class Parser {
     public AST rProgram() throws SyntaxError {
         // note that rProgram actually returns a ProgramTree; we use the 
         // principle of substitutability to indicate it returns an AST
-        AST t = new ProgramTree();
+        AST t = ids.number(new ProgramTree());
         expect(Tokens.Program);
         t.addKid(rBlock());
         return t;
@@ -128,7 +176,7 @@ public class Parser {
      */
     public AST rBlock() throws SyntaxError {
         expect(Tokens.LeftBrace);
-        AST t = new BlockTree();
+        AST t = ids.number(new BlockTree());
         while (startingDecl()) {  // get decls
                 t.addKid(rDecl());
         }
@@ -168,12 +216,12 @@ public class Parser {
         t = rType();
         t1 = rName();
         if (isNextTok(Tokens.LeftParen)) { // function
-            t = (new FunctionDeclTree()).addKid(t).addKid(t1);
+            t = ids.number(new FunctionDeclTree()).addKid(t).addKid(t1);
             t.addKid(rFunHead());
             t.addKid(rBlock());
             return t;
         }
-        t = (new DeclTree()).addKid(t).addKid(t1);
+        t = ids.number(new DeclTree()).addKid(t).addKid(t1);
         return t;
     }
 
@@ -189,17 +237,17 @@ public class Parser {
     public AST rType() throws SyntaxError {
         AST t;
         if (isNextTok(Tokens.Int)) {
-            t = new IntTypeTree();
+            t = ids.number(new IntTypeTree());
             scan();
         } else if (isNextTok(Tokens.Utf16String)){
-            t = new UstringTypeTree();
+            t = ids.number(new UstringTypeTree());
             scan();
         }else if(isNextTok(Tokens.TimeStampType)){
-            t = new TimeStampTypeTree();
+            t = ids.number(new TimeStampTypeTree());
             scan();
         }else{
             expect(Tokens.BOOLean);
-            t = new BoolTypeTree();
+            t = ids.number(new BoolTypeTree());
         }
         return t;
     }
@@ -215,7 +263,7 @@ public class Parser {
      * @exception SyntaxError - thrown for any syntax error
      */
     public AST rFunHead() throws SyntaxError {
-        AST t = new FormalsTree();
+        AST t = ids.number(new FormalsTree());
         expect(Tokens.LeftParen);
         if (!isNextTok(Tokens.RightParen)) {
             do {
@@ -245,7 +293,7 @@ public class Parser {
         AST t;
         if (isNextTok(Tokens.If)) {
             scan();
-            t = new IfTree();
+            t = ids.number(new IfTree());
             t.addKid(rExpr());
             expect(Tokens.Then);
             t.addKid(rBlock());
@@ -259,17 +307,17 @@ public class Parser {
         }
         if (isNextTok(Tokens.While)) {
             scan();
-            t = new WhileTree();
+            t = ids.number(new WhileTree());
             t.addKid(rExpr());
             t.addKid(rBlock());
             return t;
         }
         if (isNextTok(Tokens.Switch)) {
             scan();
-            t = new SwitchTree();
+            t = ids.number(new SwitchTree());
             expect(Tokens.LeftParen);
             if (isNextTok(Tokens.Identifier)) {
-                t.addKid(new IdTree(currentToken));
+                t.addKid(ids.number(new IdTree(currentToken)));
                 scan();
             }
             expect(Tokens.RightParen);
@@ -278,7 +326,7 @@ public class Parser {
         }
         if (isNextTok(Tokens.Return)) {
             scan();
-            t = new ReturnTree();
+            t = ids.number(new ReturnTree());
             t.addKid(rExpr());
             return t;
         }
@@ -286,7 +334,7 @@ public class Parser {
             return rBlock();
         }
         t = rName();
-        t = (new AssignTree()).addKid(t);
+        t = ids.number(new AssignTree()).addKid(t);
         expect(Tokens.Assign);
         t.addKid(rExpr());
         return t;
@@ -295,7 +343,7 @@ public class Parser {
 
     public AST rCaseBlock() throws SyntaxError{
         AST t;
-        t = new CaseBlockTree();
+        t = ids.number(new CaseBlockTree());
         expect(Tokens.LeftBrace);
         while (startingCase()) {  
             t.addKid(rCaseStatement());
@@ -307,7 +355,7 @@ public class Parser {
         return t;
     }
 
-    private boolean startingCase() {
+    boolean startingCase() {
         if (isNextTok(Tokens.Case)) {
             return true;
         }
@@ -317,7 +365,7 @@ public class Parser {
     public AST rCaseStatement() throws SyntaxError{
         AST t;
         expect(Tokens.Case);
-        t = new CaseStatementTree();
+        t = ids.number(new CaseStatementTree());
         t.addKid(rCaseList());
         expect(Tokens.HashDelimiter);
         t.addKid(rStatement());
@@ -327,7 +375,7 @@ public class Parser {
     public AST rDefaultStatement() throws SyntaxError{
         AST t;
         expect(Tokens.HashDelimiter);
-        t = new DefaultStatementTree();
+        t = ids.number(new DefaultStatementTree());
         t.addKid(rStatement());
         return t;
     }
@@ -335,7 +383,7 @@ public class Parser {
 
     public AST rCaseList() throws SyntaxError{
         AST t;
-        t = new CaseListTree();
+        t = ids.number(new CaseListTree());
         expect(Tokens.LeftBracket);
         if (!isNextTok(Tokens.RightParen)) {
             do {
@@ -432,17 +480,17 @@ public class Parser {
             return t;
         }
         if (isNextTok(Tokens.INTeger)) {  //  -> <int>
-            t = new IntTree(currentToken);
+            t = ids.number(new IntTree(currentToken));
             scan();
             return t;
         }
         if (isNextTok(Tokens.Utf16StringLit)){
-            t = new UtfStringLitTree(currentToken);
+            t = ids.number(new UtfStringLitTree(currentToken));
             scan();
             return t;
         }
         if(isNextTok(Tokens.TimeStampLit)){
-            t = new TimeStampLitTree(currentToken);
+            t = ids.number(new TimeStampLitTree(currentToken));
             scan();
             return t;
         }
@@ -451,7 +499,7 @@ public class Parser {
             return t;
         }
         scan();     // -> name '(' (e list ',')? ) ==> call
-        t = (new CallTree()).addKid(t);
+        t = ids.number(new CallTree()).addKid(t);
         if (!isNextTok(Tokens.RightParen)) {
             do {
                 t.addKid(rExpr());
@@ -478,7 +526,7 @@ public class Parser {
     public AST rName() throws SyntaxError {
         AST t;
         if (isNextTok(Tokens.Identifier)) {
-            t = new IdTree(currentToken);
+            t = ids.number(new IdTree(currentToken));
             scan();
             return t;
         }
@@ -488,7 +536,7 @@ public class Parser {
     AST getRelationTree() {  // build tree with current token's relation
         Tokens kind = currentToken.getKind();
         if (relationalOps.contains(kind)) {
-            AST t = new RelOpTree(currentToken);
+            AST t = ids.number(new RelOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -496,10 +544,10 @@ public class Parser {
         }
     }
 
-    private AST getAddOperTree() {
+    AST getAddOperTree() {
         Tokens kind = currentToken.getKind();
         if (addingOps.contains(kind)) {
-            AST t = new AddOpTree(currentToken);
+            AST t = ids.number(new AddOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -507,10 +555,10 @@ public class Parser {
         }
     }
 
-    private AST getMultOperTree() {
+    AST getMultOperTree() {
         Tokens kind = currentToken.getKind();
         if (multiplyingOps.contains(kind)) {
-            AST t = new MultOpTree(currentToken);
+            AST t = ids.number(new MultOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -518,14 +566,14 @@ public class Parser {
         }
     }
 
-    private boolean isNextTok(Tokens kind) {
+    boolean isNextTok(Tokens kind) {
         if ((currentToken == null) || (currentToken.getKind() != kind)) {
             return false;
         }
         return true;
     }
 
-    private void expect(Tokens kind) throws SyntaxError {
+    void expect(Tokens kind) throws SyntaxError {
         if (isNextTok(kind)) {
             scan();
             return;
@@ -533,42 +581,12 @@ public class Parser {
         throw new SyntaxError(currentToken, kind);
     }
 
-    private void scan() {
+    void scan() {
         currentToken = lex.nextToken();
         if (currentToken != null) {
+            tokenCount++;
             // currentToken.print();   // debug printout
         }
         return;
     }
 }
-
-class SyntaxError extends Exception {
-
-    /**
-     *
-     */
-    private static final long serialVersionUID = 1L;
-    /**
-     *
-     */
-    private Token tokenFound;
-    private Tokens kindExpected;
-
-    /**
-     * record the syntax error just encountered
-     *
-     * @param tokenFound is the token just found by the parser
-     * @param kindExpected is the token we expected to find based on the current
-     * context
-     */
-    public SyntaxError(Token tokenFound, Tokens kindExpected) {
-        this.tokenFound = tokenFound;
-        this.kindExpected = kindExpected;
-    }
-
-    void print() {
-        System.out.println("Expected: "
-                + kindExpected);
-        return;
-    }
-}
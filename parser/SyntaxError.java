@@ -0,0 +1,35 @@
+package parser;
+
+import lexer.*;
+import diagnostics.Diagnostics;
+
+class SyntaxError extends Exception {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     *
+     */
+    private Token tokenFound;
+    private Tokens kindExpected;
+
+    /**
+     * record the syntax error just encountered
+     *
+     * @param tokenFound is the token just found by the parser
+     * @param kindExpected is the token we expected to find based on the current
+     * context
+     */
+    public SyntaxError(Token tokenFound, Tokens kindExpected) {
+        this.tokenFound = tokenFound;
+        this.kindExpected = kindExpected;
+    }
+
+    void print(Diagnostics diagnostics) {
+        diagnostics.error("Expected: "
+                + kindExpected);
+        return;
+    }
+}
@@ -0,0 +1,7 @@
+ program { int x
+   utf16String greeting  timestamp start
+   greeting = \u0068\u0069 
+   start = 2024~01~15~10:30:00 
+   x = read()
+   x = write(x * x + 1)
+ }
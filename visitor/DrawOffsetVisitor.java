@@ -20,31 +20,45 @@ public class DrawOffsetVisitor extends ASTVisitor {
   private int widthWindow;
   private int heightWindow;
 
-  private HashMap<Integer, ArrayList<Integer>> hashMapOffset;
+  // offsets[n] is the horizontal offset of node n
+  private int[] offsets;
   private int depth = 0;
   private int maxDepth;
   private int maxOffset;
   private BufferedImage bimg;
   private Graphics2D g2;
 
-  public DrawOffsetVisitor(HashMap<Integer, ArrayList<Integer>> hashMap) {
-
-    hashMapOffset = new HashMap<>(hashMap);
-
-    maxDepth = hashMapOffset.entrySet()
-        .stream()
-        .max(Comparator.comparingInt((entry) -> entry.getValue().get(1)))
-        .get()
-        .getValue()
-        .get(1);
+  /**
+   *  @param layout has visited the tree that will be drawn
+   */
+  public DrawOffsetVisitor(OffsetVisitor layout) {
+    int limit = layout.getNodeLimit();
+    offsets = new int[limit];
+    for (int node = 0; node < limit; node++) {
+      if (layout.getDepth(node) >= 0) {
+        offsets[node] = layout.getOffset(node);
+        maxOffset = Math.max(maxOffset, offsets[node]);
+        maxDepth = Math.max(maxDepth, layout.getDepth(node));
+      }
+    }
+    createImage();
+  }
 
-    maxOffset = hashMapOffset.entrySet()
-        .stream()
-        .max(Comparator.comparingInt((entry) -> entry.getValue().get(0)))
-        .get()
-        .getValue()
-        .get(0);
+  /**
+   *  @param hashMap maps each node number to its [offset, depth]; see
+   *  OffsetVisitor.getHashMap
+   */
+  public DrawOffsetVisitor(HashMap<Integer, ArrayList<Integer>> hashMap) {
+    offsets = new int[Collections.max(hashMap.keySet()) + 1];
+    for (Map.Entry<Integer, ArrayList<Integer>> entry : hashMap.entrySet()) {
+      offsets[entry.getKey()] = entry.getValue().get(0);
+      maxOffset = Math.max(maxOffset, entry.getValue().get(0));
+      maxDepth = Math.max(maxDepth, entry.getValue().get(1));
+    }
+    createImage();
+  }
 
+  private void createImage() {
     widthWindow = (((maxOffset / 2)+1) * (NODE_WIDTH + HORIZONTAL_GAP))+ NODE_WIDTH;
     heightWindow = (maxDepth+1) * (NODE_HEIGHT + VERTICAL_GAP)+ PADDING;
 
@@ -57,7 +71,7 @@ public class DrawOffsetVisitor extends ASTVisitor {
     int verticalStep = NODE_HEIGHT + VERTICAL_GAP;
 
     
-    int x = (hashMapOffset.get(treeNode.getNodeNum()).get(0) * horizontalStep/SCALE_FACTOR);
+    int x = (offsets[treeNode.getNodeNum()] * horizontalStep/SCALE_FACTOR);
     int y = depth * verticalStep;
 
     g2.setColor(Color.black);
@@ -71,9 +85,9 @@ public class DrawOffsetVisitor extends ASTVisitor {
     int endy;
     g2.setColor(Color.black);
 
-    if(!treeNode.getKids().isEmpty()){
+    if(treeNode.kidCount() > 0){
       for (int i = 0; i < treeNode.kidCount(); i++) {
-        endx = ((hashMapOffset.get(treeNode.getKid(i+1).getNodeNum()).get(0) * horizontalStep)/SCALE_FACTOR) + PADDING;
+        endx = ((offsets[treeNode.getKid(i+1).getNodeNum()] * horizontalStep)/SCALE_FACTOR) + PADDING;
         endy = (depth + 1) * verticalStep;
         g2.drawLine(startx, starty, endx, endy);
       }
@@ -4,20 +4,51 @@ import java.util.*;
 import ast.AST;
 
 
+/**
+ *  OffsetVisitor lays out a tree for drawing: it gives each node a
+ *  horizontal offset and its depth. The layout is kept in arrays indexed
+ *  by node number, which the tree builder numbers densely from 0; see
+ *  NodeIds
+*/
 public class OffsetVisitor extends ASTVisitor {
 
     private int nextAvailableOffset[] = new int[100];
     private int depth = 0;
     private int maxDepth = depth;
     private int maxOffset = 0;
-    private HashMap<Integer,ArrayList<Integer>> hashMapOffset = new HashMap<>();
+    // offsets[n] and depths[n] are the layout of node n; depths[n] is -1
+    // if node n isn't laid out
+    private int[] offsets = new int[64];
+    private int[] depths = new int[64];
+
+    public OffsetVisitor() {
+        Arrays.fill(depths, -1);
+    }
+
+    private void place(AST treeNode, int offset, int depth) {
+        int node = treeNode.getNodeNum();
+        if (node >= offsets.length) {
+            int laidOut = depths.length;
+            int length = Math.max(node + 1, laidOut * 2);
+            offsets = Arrays.copyOf(offsets, length);
+            depths = Arrays.copyOf(depths, length);
+            Arrays.fill(depths, laidOut, length, -1);
+        }
+        offsets[node] = offset;
+        depths[node] = depth;
+    }
+
+    private int offsetOf(AST treeNode) {
+        return offsets[treeNode.getNodeNum()];
+    }
 
     private void offset(AST treeNode) {
-        if(treeNode.getKids().isEmpty()){
-            ArrayList<Integer> valuesXandY = new ArrayList<>();
-            valuesXandY.add(0, nextAvailableOffset[depth]);
-            valuesXandY.add(1, depth);
-            hashMapOffset.put(treeNode.getNodeNum(),valuesXandY);
+        if (depth == nextAvailableOffset.length) {
+            // generated programs nest deeper than any written by hand
+            nextAvailableOffset = Arrays.copyOf(nextAvailableOffset, depth * 2);
+        }
+        if(treeNode.kidCount() == 0){
+            place(treeNode, nextAvailableOffset[depth], depth);
             nextAvailableOffset[depth] = nextAvailableOffset[depth]+2;
             if (depth > maxDepth) {
                 maxDepth = depth;
@@ -30,60 +61,82 @@ public class OffsetVisitor extends ASTVisitor {
         depth++;
         visitKids(treeNode);
         depth--;
-        if(!treeNode.getKids().isEmpty()){
-            int offset = ( hashMapOffset.get(treeNode.getKid(1).getNodeNum()).get(0) );
-            offset = offset + hashMapOffset.get(treeNode.getKid(treeNode.getKids().size()).getNodeNum()).get(0);
-            offset = offset/2;
-            if(offset > nextAvailableOffset[depth]){
-                ArrayList<Integer> valuesXandY = new ArrayList<>();
-                valuesXandY.add(0, offset);
-                valuesXandY.add(1, depth);
-                hashMapOffset.put(treeNode.getNodeNum(), valuesXandY);
-                if (offset > maxOffset) {
-                    maxOffset = offset;
-                  }
-                nextAvailableOffset[depth] = offset + 2; 
-            }else{
-                ArrayList<Integer> valuesXandY = new ArrayList<>();
-                valuesXandY.add(0, nextAvailableOffset[depth]);
-                valuesXandY.add(1, depth);
-                hashMapOffset.put(treeNode.getNodeNum(), valuesXandY);
-                if (nextAvailableOffset[depth] > maxOffset) {
-                    maxOffset = nextAvailableOffset[depth];
-                  }
-                int shift =  nextAvailableOffset[depth] - offset;
-                nextAvailableOffset[depth] = nextAvailableOffset[depth] + 2;
-                adjustChildrenOffset(treeNode, shift);
-            }
+        int offset = offsetOf(treeNode.getKid(1));
+        offset = offset + offsetOf(treeNode.getKid(treeNode.kidCount()));
+        offset = offset/2;
+        if(offset > nextAvailableOffset[depth]){
+            place(treeNode, offset, depth);
+            if (offset > maxOffset) {
+                maxOffset = offset;
+              }
+            nextAvailableOffset[depth] = offset + 2; 
+        }else{
+            place(treeNode, nextAvailableOffset[depth], depth);
+            if (nextAvailableOffset[depth] > maxOffset) {
+                maxOffset = nextAvailableOffset[depth];
+              }
+            int shift =  nextAvailableOffset[depth] - offset;
+            nextAvailableOffset[depth] = nextAvailableOffset[depth] + 2;
+            adjustChildrenOffset(treeNode, shift);
         }
-        
-        
     }
 
     private void adjustChildrenOffset(AST treeNode, int shift){
-        ArrayList<AST> children = treeNode.getKids();
-        for(AST node : children){
+        for(AST node : treeNode.getKids()){
             
             adjustChildrenOffset(node, shift);
-            int newValue = shift + hashMapOffset.get(node.getNodeNum()).get(0) ;
-            hashMapOffset.get(node.getNodeNum()).set(0, newValue);
+            int newValue = shift + offsetOf(node);
+            offsets[node.getNodeNum()] = newValue;
             if (newValue > maxOffset) {
                 maxOffset = newValue;
             }
-            int shiftDepth = hashMapOffset.get(node.getNodeNum()).get(1);
+            int shiftDepth = depths[node.getNodeNum()];
             nextAvailableOffset[shiftDepth] = newValue + 2;
         }
         return;
     };
 
+/**
+ *  @return the offset of node n
+*/
+    public int getOffset(int n) {
+        return offsets[n];
+    }
+
+/**
+ *  @return the depth of node n; -1 if it isn't laid out
+*/
+    public int getDepth(int n) {
+        return n < depths.length ? depths[n] : -1;
+    }
+
+/**
+ *  @return one more than the largest node number laid out
+*/
+    public int getNodeLimit() {
+        int limit = depths.length;
+        while (limit > 0 && depths[limit - 1] == -1) {
+            limit--;
+        }
+        return limit;
+    }
+
     public void printHashMap(){
-        hashMapOffset.entrySet()
+        getHashMap().entrySet()
     			 .stream()
     			 .forEach(e-> System.out.println(e));
     }
 
+/**
+ *  @return the layout as a map from node number to [offset, depth]
+*/
     public HashMap<Integer,ArrayList<Integer>> getHashMap(){
-        HashMap<Integer,ArrayList<Integer>> tmpHashMap = new HashMap<>(hashMapOffset);
+        HashMap<Integer,ArrayList<Integer>> tmpHashMap = new HashMap<>();
+        for (int node = 0; node < depths.length; node++) {
+            if (depths[node] >= 0) {
+                tmpHashMap.put(node, new ArrayList<>(List.of(offsets[node], depths[node])));
+            }
+        }
         return tmpHashMap;
     }
 
@@ -1,6 +1,7 @@
 package visitor;
 
 import ast.*;
+import diagnostics.Diagnostics;
 
 /**
  *  PrintVisitor is used to visit an AST and print it using
@@ -17,13 +18,23 @@ import ast.*;
 */
 public class PrintVisitor extends ASTVisitor {
     private int indent = 0;
+    private Diagnostics diagnostics;
 
-    private void printSpaces(int num) {
-        String s = "";
+    public PrintVisitor() {
+        this(Diagnostics.getDefault());
+    }
+
+/**
+ *  @param diagnostics is the sink the printed tree is written to
+*/
+    public PrintVisitor(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    private void printSpaces(StringBuilder line, int num) {
         for (int i = 0; i < num; i++) {
-            s += ' ';
+            line.append(' ');
         }
-        System.out.print(s);
     }
 
 /**
@@ -34,17 +45,19 @@ public class PrintVisitor extends ASTVisitor {
  *  indented appropriately
 */
     public void print(String s,AST t) {
+        if (!diagnostics.isEnabled()) {
+            return;
+        }
         // assume less than 1000 nodes; no problem for csc 413
         int num = t.getNodeNum();
         AST decoration = t.getDecoration();
-        int decNum = (decoration == null)? -1 : decoration.getNodeNum();
-        String spaces = "";
-        if (num < 100) spaces += " ";
-        if (num < 10) spaces += " ";
-        System.out.print(num + ":" + spaces);
-        printSpaces(indent);
-        if (decNum != -1) {
-            s += "           Dec: " + decNum;
+        StringBuilder line = new StringBuilder();
+        line.append(num).append(':');
+        if (num < 100) line.append(' ');
+        if (num < 10) line.append(' ');
+        printSpaces(line, indent);
+        if (decoration != null) {
+            s += "           Dec: " + decoration.getNodeNum();
         }
         String lab = t.getLabel();
         if ( lab.length() > 0 ) {
@@ -56,7 +69,7 @@ public class PrintVisitor extends ASTVisitor {
                 s += "  Addr: " + offset;
             }
         }
-        System.out.println(s);
+        diagnostics.trace(line.append(s).toString());
         indent += 2;
         visitKids(t);
         indent -= 2;
@@ -0,0 +1,93 @@
+package visitor;
+
+import ast.AST;
+
+/**
+ *  TypedASTVisitor is the base of the TypedVisitors: visit(t, context)
+ *  switches on the NodeKind of t to call the visit method for its kind
+ *  directly, instead of calling t.accept, which calls a different accept
+ *  for each class of node. The JIT sees a single call of visit for all
+ *  nodes and a switch it can compile to a jump table<br>
+ *  A TypedASTVisitor is an ASTVisitor too: t.accept(v) visits t with a
+ *  null context, so code that uses the Object-returning API still works
+*/
+public abstract class TypedASTVisitor<R, C> extends ASTVisitor implements TypedVisitor<R, C> {
+
+/**
+ *  visit t
+ *  @param context is passed to the visit method for the kind of t
+ *  @return what the visit method returns
+*/
+    public final R visit(AST t, C context) {
+        switch (t.getKind()) {
+            case PROGRAM: return visitProgramTree(t, context);
+            case BLOCK: return visitBlockTree(t, context);
+            case FUNCTION_DECL: return visitFunctionDeclTree(t, context);
+            case CALL: return visitCallTree(t, context);
+            case DECL: return visitDeclTree(t, context);
+            case INT_TYPE: return visitIntTypeTree(t, context);
+            case BOOL_TYPE: return visitBoolTypeTree(t, context);
+            case USTRING_TYPE: return visitUstringTypeTree(t, context);
+            case TIME_STAMP_TYPE: return visitTimeStampTypeTree(t, context);
+            case FORMALS: return visitFormalsTree(t, context);
+            case ACTUAL_ARGS: return visitActualArgsTree(t, context);
+            case IF: return visitIfTree(t, context);
+            case WHILE: return visitWhileTree(t, context);
+            case RETURN: return visitReturnTree(t, context);
+            case ASSIGN: return visitAssignTree(t, context);
+            case SWITCH: return visitSwitchTree(t, context);
+            case CASE_LIST: return visitCaseListTree(t, context);
+            case CASE_STATEMENT: return visitCaseStatementTree(t, context);
+            case DEFAULT_STATEMENT: return visitDefaultStatementTree(t, context);
+            case CASE_BLOCK: return visitCaseBlockTree(t, context);
+            case INT: return visitIntTree(t, context);
+            case ID: return visitIdTree(t, context);
+            case REL_OP: return visitRelOpTree(t, context);
+            case ADD_OP: return visitAddOpTree(t, context);
+            case MULT_OP: return visitMultOpTree(t, context);
+            case UTF_STRING_LIT: return visitUtfStringLitTree(t, context);
+            case TIME_STAMP_LIT: return visitTimeStampLitTree(t, context);
+            default: throw new IllegalArgumentException("no visit for " + t.getKind());
+        }
+    }
+
+/**
+ *  visit each kid of t in turn with the same context
+*/
+    public final void visitKids(AST t, C context) {
+        for (AST kid : t.getKids()) {
+            visit(kid, context);
+        }
+    }
+
+    // the ASTVisitor API; each visits with a null context
+
+    public Object visitProgramTree(AST t) { return visitProgramTree(t, null); }
+    public Object visitBlockTree(AST t) { return visitBlockTree(t, null); }
+    public Object visitFunctionDeclTree(AST t) { return visitFunctionDeclTree(t, null); }
+    public Object visitCallTree(AST t) { return visitCallTree(t, null); }
+    public Object visitDeclTree(AST t) { return visitDeclTree(t, null); }
+    public Object visitIntTypeTree(AST t) { return visitIntTypeTree(t, null); }
+    public Object visitBoolTypeTree(AST t) { return visitBoolTypeTree(t, null); }
+    public Object visitUstringTypeTree(AST t) { return visitUstringTypeTree(t, null); }
+    public Object visitTimeStampTypeTree(AST t) { return visitTimeStampTypeTree(t, null); }
+    public Object visitFormalsTree(AST t) { return visitFormalsTree(t, null); }
+    public Object visitActualArgsTree(AST t) { return visitActualArgsTree(t, null); }
+    public Object visitIfTree(AST t) { return visitIfTree(t, null); }
+    public Object visitWhileTree(AST t) { return visitWhileTree(t, null); }
+    public Object visitReturnTree(AST t) { return visitReturnTree(t, null); }
+    public Object visitAssignTree(AST t) { return visitAssignTree(t, null); }
+    public Object visitSwitchTree(AST t) { return visitSwitchTree(t, null); }
+    public Object visitCaseListTree(AST t) { return visitCaseListTree(t, null); }
+    public Object visitCaseStatementTree(AST t) { return visitCaseStatementTree(t, null); }
+    public Object visitDefaultStatementTree(AST t) { return visitDefaultStatementTree(t, null); }
+    public Object visitCaseBlockTree(AST t) { return visitCaseBlockTree(t, null); }
+    public Object visitIntTree(AST t) { return visitIntTree(t, null); }
+    public Object visitIdTree(AST t) { return visitIdTree(t, null); }
+    public Object visitRelOpTree(AST t) { return visitRelOpTree(t, null); }
+    public Object visitAddOpTree(AST t) { return visitAddOpTree(t, null); }
+    public Object visitMultOpTree(AST t) { return visitMultOpTree(t, null); }
+    public Object visitUtfStringLitTree(AST t) { return visitUtfStringLitTree(t, null); }
+    public Object visitTimeStampLitTree(AST t) { return visitTimeStampLitTree(t, null); }
+    public Object visitSwitchBlockTree(AST t) { return null; }
+}
@@ -0,0 +1,41 @@
+package visitor;
+
+import ast.AST;
+
+/**
+ *  TypedVisitor is the visitor with a typed result and a context: each
+ *  visit returns an R - no cast is needed to use it - and is given a C
+ *  that the visitor of the parent passes down; e.g. the Constrainer
+ *  returns the type tree of an expression and passes down the function
+ *  being constrained<br>
+ *  TypedASTVisitor dispatches on the NodeKind of a node to these methods
+*/
+public interface TypedVisitor<R, C> {
+    R visitProgramTree(AST t, C context);
+    R visitBlockTree(AST t, C context);
+    R visitFunctionDeclTree(AST t, C context);
+    R visitCallTree(AST t, C context);
+    R visitDeclTree(AST t, C context);
+    R visitIntTypeTree(AST t, C context);
+    R visitBoolTypeTree(AST t, C context);
+    R visitUstringTypeTree(AST t, C context);
+    R visitTimeStampTypeTree(AST t, C context);
+    R visitFormalsTree(AST t, C context);
+    R visitActualArgsTree(AST t, C context);
+    R visitIfTree(AST t, C context);
+    R visitWhileTree(AST t, C context);
+    R visitReturnTree(AST t, C context);
+    R visitAssignTree(AST t, C context);
+    R visitSwitchTree(AST t, C context);
+    R visitCaseListTree(AST t, C context);
+    R visitCaseStatementTree(AST t, C context);
+    R visitDefaultStatementTree(AST t, C context);
+    R visitCaseBlockTree(AST t, C context);
+    R visitIntTree(AST t, C context);
+    R visitIdTree(AST t, C context);
+    R visitRelOpTree(AST t, C context);
+    R visitAddOpTree(AST t, C context);
+    R visitMultOpTree(AST t, C context);
+    R visitUtfStringLitTree(AST t, C context);
+    R visitTimeStampLitTree(AST t, C context);
+}
@@ -0,0 +1,72 @@
+package vm;
+
+/**
+ *  Executable is a bytecode program packed for the VirtualMachine; each
+ *  instruction is 2 ints in code - the opcode and its operand - and
+ *  every label and operator has been resolved when the program was
+ *  loaded:
+ *  <ul><li>GOTO, FALSEBRANCH and CALL carry the index of their target
+ *  instruction
+ *  <li>BOP carries the operator number (ADD ... OR)
+ *  <li>LIT, LOAD, STORE, POP and ARGS carry their number
+ *  <li>LABEL pseudo-instructions are gone</ul>
+ *  The opcodes follow the order of Codes.ByteCodes
+*/
+public final class Executable {
+    public static final int HALT = 0, POP = 1, FALSEBRANCH = 2, GOTO = 3,
+        STORE = 4, LOAD = 5, LIT = 6, ARGS = 7, CALL = 8, RETURN = 9,
+        BOP = 10, READ = 11, WRITE = 12;
+
+    // the operators of BOP
+    public static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3,
+        EQUAL = 4, NOT_EQUAL = 5, LESS = 6, LESS_EQUAL = 7, GREATER = 8,
+        GREATER_EQUAL = 9, AND = 10, OR = 11;
+
+    static final String[] OPERATORS = {
+        "+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">=", "&", "|"
+    };
+
+    // code[2*i] is the opcode of instruction i and code[2*i+1] its operand
+    final int[] code;
+    // the bytecode each instruction was loaded from; for error messages
+    final String[] text;
+
+    Executable(int[] code, String[] text) {
+        this.code = code;
+        this.text = text;
+    }
+
+/**
+ *  @return the number of instructions
+*/
+    public int size() {
+        return text.length;
+    }
+
+    public int opcode(int instruction) {
+        return code[2 * instruction];
+    }
+
+    public int operand(int instruction) {
+        return code[2 * instruction + 1];
+    }
+
+/**
+ *  @return the bytecode instruction was loaded from
+*/
+    public String text(int instruction) {
+        return text[instruction];
+    }
+
+/**
+ *  @return the operator number of op; -1 if it isn't a BOP operator
+*/
+    static int operator(String op) {
+        for (int i = 0; i < OPERATORS.length; i++) {
+            if (OPERATORS[i].equals(op)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
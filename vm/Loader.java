@@ -0,0 +1,147 @@
+package vm;
+
+import java.io.*;
+import java.nio.file.*;
+import codegen.*;
+
+/**
+ *  Loader packs bytecodes into an Executable; it takes either the
+ *  Program built by the code generator or a .cod file. Labels are
+ *  resolved to instruction indexes by Program.link() and BOP operators
+ *  to operator numbers here, so the VirtualMachine never looks at a
+ *  String
+*/
+public class Loader {
+
+/**
+ *  @param program is the generated program
+ *  @return the packed program
+ *  @exception VMException is thrown for an undefined label, an unknown
+ *  operator or a literal that isn't an int
+*/
+    public static Executable load(Program program) throws VMException {
+        LinkedProgram linked;
+        try {
+            linked = program.link();
+        } catch (IllegalStateException e) {
+            throw new VMException(e.getMessage());
+        }
+        return load(linked);
+    }
+
+/**
+ *  @param codFile is a file of bytecodes as written by Program.printCodes,
+ *  or by Program.writeBinary if its name ends in .codb
+ *  @return the packed program
+*/
+    public static Executable load(String codFile) throws IOException, VMException {
+        if (codFile.endsWith(BinaryFormat.EXTENSION)) {
+            return load(MappedProgram.open(codFile).toProgram());
+        }
+        Program program = new Program();
+        int lineno = 0;
+        for (String line : Files.readAllLines(Paths.get(codFile))) {
+            lineno++;
+            if (!line.trim().isEmpty()) {
+                program.storeop(parse(line.trim(), lineno));
+            }
+        }
+        return load(program);
+    }
+
+/**
+ *  build the Code for one line of a .cod file
+*/
+    static Code parse(String line, int lineno) throws VMException {
+        String[] fields = line.split("\\s+", 3);
+        Codes.ByteCodes bytecode;
+        try {
+            bytecode = Codes.ByteCodes.valueOf(fields[0]);
+        } catch (IllegalArgumentException e) {
+            throw new VMException("line " + lineno + ": unknown bytecode " + line);
+        }
+        try {
+            switch (bytecode) {
+                case HALT: case READ: case WRITE:
+                    return new Code(bytecode);
+                case RETURN:
+                    return fields.length == 1 ? new Code(bytecode)
+                                              : new LabelOpcode(bytecode, fields[1]);
+                case LABEL: case GOTO: case FALSEBRANCH: case CALL: case BOP:
+                    return new LabelOpcode(bytecode, fields[1]);
+                case POP: case ARGS:
+                    return new NumOpcode(bytecode, Integer.parseInt(fields[1]));
+                case LIT:
+                    if (fields.length == 2) {
+                        try {
+                            return new NumOpcode(bytecode, Integer.parseInt(fields[1]));
+                        } catch (NumberFormatException e) {
+                            return new LabelOpcode(bytecode, fields[1]);
+                        }
+                    }
+                    return new VarOpcode(bytecode, Integer.parseInt(fields[1]), fields[2]);
+                default:  // LOAD, STORE
+                    return new VarOpcode(bytecode, Integer.parseInt(fields[1]),
+                                         fields.length == 3 ? fields[2] : "");
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new VMException("line " + lineno + ": bad operand in " + line);
+        }
+    }
+
+/**
+ *  @param linked is a program whose labels are resolved
+ *  @return the packed program
+*/
+    public static Executable load(LinkedProgram linked) throws VMException {
+        int size = linked.size();
+        int[] packed = new int[2 * size];
+        String[] text = new String[size];
+        for (int i = 0; i < size; i++) {
+            Codes.ByteCodes bytecode = linked.bytecode(i);
+            text[i] = linked.toString(i);
+            packed[2 * i] = opcode(bytecode);
+            packed[2 * i + 1] = operand(linked, i);
+        }
+        return new Executable(packed, text);
+    }
+
+    static int opcode(Codes.ByteCodes bytecode) {
+        switch (bytecode) {
+            case HALT: return Executable.HALT;
+            case POP: return Executable.POP;
+            case FALSEBRANCH: return Executable.FALSEBRANCH;
+            case GOTO: return Executable.GOTO;
+            case STORE: return Executable.STORE;
+            case LOAD: return Executable.LOAD;
+            case LIT: return Executable.LIT;
+            case ARGS: return Executable.ARGS;
+            case CALL: return Executable.CALL;
+            case RETURN: return Executable.RETURN;
+            case BOP: return Executable.BOP;
+            case READ: return Executable.READ;
+            default: return Executable.WRITE;
+        }
+    }
+
+    static int operand(LinkedProgram linked, int i) throws VMException {
+        switch (linked.bytecode(i)) {
+            case BOP:
+                int operator = Executable.operator(linked.name(i));
+                if (operator < 0) {
+                    throw new VMException("unknown operator in " + linked.toString(i));
+                }
+                return operator;
+            case LIT:
+                if (linked.isStringLiteral(i)) {
+                    // utf16String and timestamp literals have no int value
+                    throw new VMException("only int literals can be run: " + linked.toString(i));
+                }
+                return linked.operand(i);
+            case RETURN:
+                return 0;
+            default:
+                return linked.operand(i);
+        }
+    }
+}
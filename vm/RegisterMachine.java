@@ -0,0 +1,206 @@
+package vm;
+
+import java.io.*;
+import codegen.RegisterProgram;
+
+/**
+ *  RegisterMachine runs the three-address code of a RegisterProgram; see
+ *  RegisterProgram for the instructions<br>
+ *  The frames of the running functions lie one after another in a single
+ *  int array of registers; a CALL copies the args to the first registers
+ *  of the new frame, and RETURN puts the value in the register named by
+ *  the CALL. The registers, frame pointers and return addresses are
+ *  allocated once, so running a program allocates nothing
+*/
+public class RegisterMachine {
+    public static final int DEFAULT_REGISTERS = 1 << 20;
+    public static final int DEFAULT_MAX_CALL_DEPTH = 1 << 16;
+
+    private final int[] registers;
+    // frames[d] is the frame pointer of the caller of call depth d
+    private final int[] frames;
+    // returns[d] is the CALL instruction of call depth d
+    private final int[] returns;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private long executed;
+
+    public RegisterMachine(InputStream in, PrintStream out) {
+        this(in, out, DEFAULT_REGISTERS, DEFAULT_MAX_CALL_DEPTH);
+    }
+
+/**
+ *  @param in is read by READ
+ *  @param out is printed to by WRITE
+ *  @param registers is the most registers all frames together hold
+ *  @param maxCallDepth is the deepest calls may nest
+*/
+    public RegisterMachine(InputStream in, PrintStream out, int registers, int maxCallDepth) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+        this.registers = new int[registers];
+        frames = new int[maxCallDepth + 1];
+        returns = new int[maxCallDepth + 1];
+    }
+
+/**
+ *  run the program until it halts
+ *  @exception VMException is thrown if the program fails
+*/
+    public void execute(RegisterProgram program) throws VMException {
+        final int[] code = program.getCode();
+        final int[] calls = program.getCalls();
+        final int[] r = registers;
+        int pc = 0, fp = 0, depth = 0;
+        long steps = 0;
+        try {
+            while (true) {
+                int i = 4 * pc;
+                int a = fp + code[i + 1];
+                steps++;
+                switch (code[i]) {
+                    case RegisterProgram.ADD:
+                        r[a] = r[fp + code[i + 2]] + r[fp + code[i + 3]];
+                        pc++;
+                        break;
+                    case RegisterProgram.SUBTRACT:
+                        r[a] = r[fp + code[i + 2]] - r[fp + code[i + 3]];
+                        pc++;
+                        break;
+                    case RegisterProgram.MULTIPLY:
+                        r[a] = r[fp + code[i + 2]] * r[fp + code[i + 3]];
+                        pc++;
+                        break;
+                    case RegisterProgram.DIVIDE:
+                        r[a] = r[fp + code[i + 2]] / r[fp + code[i + 3]];
+                        pc++;
+                        break;
+                    case RegisterProgram.ADD + RegisterProgram.IMMEDIATE:
+                        r[a] = r[fp + code[i + 2]] + code[i + 3];
+                        pc++;
+                        break;
+                    case RegisterProgram.SUBTRACT + RegisterProgram.IMMEDIATE:
+                        r[a] = r[fp + code[i + 2]] - code[i + 3];
+                        pc++;
+                        break;
+                    case RegisterProgram.MULTIPLY + RegisterProgram.IMMEDIATE:
+                        r[a] = r[fp + code[i + 2]] * code[i + 3];
+                        pc++;
+                        break;
+                    case RegisterProgram.DIVIDE + RegisterProgram.IMMEDIATE:
+                        r[a] = r[fp + code[i + 2]] / code[i + 3];
+                        pc++;
+                        break;
+                    case RegisterProgram.MOVE:
+                        r[a] = r[fp + code[i + 2]];
+                        pc++;
+                        break;
+                    case RegisterProgram.CONST:
+                        r[a] = code[i + 2];
+                        pc++;
+                        break;
+                    case RegisterProgram.JUMP:
+                        pc = code[i + 1];
+                        break;
+                    case RegisterProgram.JUMPF:
+                        pc = r[a] == 0 ? code[i + 2] : pc + 1;
+                        break;
+                    case RegisterProgram.CALL: {
+                        int c = code[i + 3], n = calls[c];
+                        int callee = fp + calls[c + 1];
+                        for (int k = 0; k < n; k++) {
+                            r[callee + k] = r[fp + calls[c + 2 + k]];
+                        }
+                        depth++;
+                        frames[depth] = fp;
+                        returns[depth] = pc;
+                        fp = callee;
+                        pc = code[i + 2];
+                        break;
+                    }
+                    case RegisterProgram.RETURN: {
+                        int value = r[a];
+                        int call = returns[depth];
+                        fp = frames[depth--];
+                        r[fp + code[4 * call + 1]] = value;
+                        pc = call + 1;
+                        break;
+                    }
+                    case RegisterProgram.READ:
+                        r[a] = read();
+                        pc++;
+                        break;
+                    case RegisterProgram.WRITE:
+                        out.println(r[a]);
+                        pc++;
+                        break;
+                    case RegisterProgram.HALT:
+                        return;
+                    case RegisterProgram.EQUAL: case RegisterProgram.NOT_EQUAL:
+                    case RegisterProgram.LESS: case RegisterProgram.LESS_EQUAL:
+                    case RegisterProgram.GREATER: case RegisterProgram.GREATER_EQUAL:
+                    case RegisterProgram.AND: case RegisterProgram.OR:
+                        r[a] = compare(code[i], r[fp + code[i + 2]], r[fp + code[i + 3]]);
+                        pc++;
+                        break;
+                    case RegisterProgram.EQUAL + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.NOT_EQUAL + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.LESS + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.LESS_EQUAL + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.GREATER + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.GREATER_EQUAL + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.AND + RegisterProgram.IMMEDIATE:
+                    case RegisterProgram.OR + RegisterProgram.IMMEDIATE:
+                        r[a] = compare(code[i] - RegisterProgram.IMMEDIATE,
+                                       r[fp + code[i + 2]], code[i + 3]);
+                        pc++;
+                        break;
+                    default:
+                        throw new VMException("bad opcode " + code[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new VMException(
+                (depth >= frames.length - 1 ? "calls nested too deeply" : "out of registers")
+                + " at " + program.toString(pc));
+        } catch (ArithmeticException e) {
+            throw new VMException("division by zero at " + program.toString(pc));
+        } finally {
+            executed = steps;
+        }
+    }
+
+    static int compare(int operator, int left, int right) {
+        switch (operator) {
+            case RegisterProgram.EQUAL: return left == right ? 1 : 0;
+            case RegisterProgram.NOT_EQUAL: return left != right ? 1 : 0;
+            case RegisterProgram.LESS: return left < right ? 1 : 0;
+            case RegisterProgram.LESS_EQUAL: return left <= right ? 1 : 0;
+            case RegisterProgram.GREATER: return left > right ? 1 : 0;
+            case RegisterProgram.GREATER_EQUAL: return left >= right ? 1 : 0;
+            case RegisterProgram.AND: return (left != 0 && right != 0) ? 1 : 0;
+            default: return (left != 0 || right != 0) ? 1 : 0;
+        }
+    }
+
+/**
+ *  @return the number of instructions the last program ran
+*/
+    public long getExecuted() {
+        return executed;
+    }
+
+    int read() throws VMException {
+        try {
+            String line = in.readLine();
+            if (line == null) {
+                throw new VMException("READ: no more input");
+            }
+            return Integer.parseInt(line.trim());
+        } catch (IOException e) {
+            throw new VMException("READ: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new VMException("READ: not an int: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package vm;
+
+/**
+ *  VMException reports a program that can't be loaded (e.g. an undefined
+ *  label) or that fails while it runs (e.g. division by zero)
+*/
+public class VMException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public VMException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,197 @@
+package vm;
+
+import java.io.*;
+
+/**
+ *  VirtualMachine runs an Executable with the semantics of
+ *  Codes.ByteCodes:
+ *  <pre>
+ *  HALT            stop
+ *  POP n           pop n values
+ *  FALSEBRANCH l   pop a value; branch to l if it is 0 (false)
+ *  GOTO l          branch to l
+ *  STORE n         pop a value into the variable at frame offset n
+ *  LOAD n          push the variable at frame offset n
+ *  LIT n           push n
+ *  ARGS n          the top n values are the args of the next CALL; they
+ *                  start its frame
+ *  CALL f          save the return address and branch to f
+ *  RETURN          pop the return value, drop the frame, push the
+ *                  value and branch to the return address
+ *  BOP op          pop 2 values and push left op right; relational ops,
+ *                  &amp; and | give 1 for true and 0 for false
+ *  READ            read an int and push it
+ *  WRITE           print the top value, leaving it on the stack
+ *  </pre>
+ *  The operand stack, the frame pointers and the return addresses are
+ *  int arrays allocated once, so running a program allocates nothing<br>
+ *  usage: java vm.VirtualMachine &LT;file.cod&GT;
+*/
+public class VirtualMachine {
+    public static final int DEFAULT_STACK_SIZE = 1 << 20;
+    public static final int DEFAULT_MAX_CALL_DEPTH = 1 << 16;
+
+    private final int[] stack;
+    // frames[d] is the stack index of the frame of call depth d
+    private final int[] frames;
+    private final int[] returns;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private long executed;
+
+    public VirtualMachine(InputStream in, PrintStream out) {
+        this(in, out, DEFAULT_STACK_SIZE, DEFAULT_MAX_CALL_DEPTH);
+    }
+
+/**
+ *  @param in is read by READ
+ *  @param out is printed to by WRITE
+ *  @param stackSize is the most values the operand stack holds
+ *  @param maxCallDepth is the deepest calls may nest
+*/
+    public VirtualMachine(InputStream in, PrintStream out, int stackSize, int maxCallDepth) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+        stack = new int[stackSize];
+        frames = new int[maxCallDepth + 1];
+        returns = new int[maxCallDepth + 1];
+    }
+
+/**
+ *  run the program until it halts
+ *  @return the value on top of the stack when it halted; 0 if empty
+ *  @exception VMException is thrown if the program fails
+*/
+    public int execute(Executable program) throws VMException {
+        final int[] code = program.code;
+        final int[] stack = this.stack;
+        int pc = 0, sp = 0, fp = 0, depth = 0;
+        int at = 0;
+        long steps = 0;
+        try {
+            while (true) {
+                at = pc;
+                steps++;
+                int operand = code[2 * pc + 1];
+                switch (code[2 * pc]) {
+                    case Executable.HALT:
+                        return sp == 0 ? 0 : stack[sp - 1];
+                    case Executable.POP:
+                        sp -= operand;
+                        pc++;
+                        break;
+                    case Executable.FALSEBRANCH:
+                        pc = stack[--sp] == 0 ? operand : pc + 1;
+                        break;
+                    case Executable.GOTO:
+                        pc = operand;
+                        break;
+                    case Executable.STORE:
+                        stack[fp + operand] = stack[--sp];
+                        pc++;
+                        break;
+                    case Executable.LOAD:
+                        stack[sp++] = stack[fp + operand];
+                        pc++;
+                        break;
+                    case Executable.LIT:
+                        stack[sp++] = operand;
+                        pc++;
+                        break;
+                    case Executable.ARGS:
+                        frames[depth + 1] = sp - operand;
+                        pc++;
+                        break;
+                    case Executable.CALL:
+                        returns[++depth] = pc + 1;
+                        fp = frames[depth];
+                        pc = operand;
+                        break;
+                    case Executable.RETURN: {
+                        int value = stack[sp - 1];
+                        sp = fp;
+                        stack[sp++] = value;
+                        pc = returns[depth];
+                        fp = frames[--depth];
+                        break;
+                    }
+                    case Executable.BOP: {
+                        int right = stack[--sp], left = stack[sp - 1];
+                        stack[sp - 1] = operate(operand, left, right);
+                        pc++;
+                        break;
+                    }
+                    case Executable.READ:
+                        stack[sp++] = read();
+                        pc++;
+                        break;
+                    case Executable.WRITE:
+                        out.println(stack[sp - 1]);
+                        pc++;
+                        break;
+                    default:
+                        throw new VMException("bad opcode " + code[2 * pc]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new VMException(
+                (depth >= frames.length - 1 ? "calls nested too deeply" : "stack overflow")
+                + " at " + program.text(at));
+        } catch (ArithmeticException e) {
+            throw new VMException("division by zero at " + program.text(at));
+        } finally {
+            executed = steps;
+        }
+    }
+
+/**
+ *  @return the number of instructions the last program ran
+*/
+    public long getExecuted() {
+        return executed;
+    }
+
+    static int operate(int operator, int left, int right) {
+        switch (operator) {
+            case Executable.ADD: return left + right;
+            case Executable.SUBTRACT: return left - right;
+            case Executable.MULTIPLY: return left * right;
+            case Executable.DIVIDE: return left / right;
+            case Executable.EQUAL: return left == right ? 1 : 0;
+            case Executable.NOT_EQUAL: return left != right ? 1 : 0;
+            case Executable.LESS: return left < right ? 1 : 0;
+            case Executable.LESS_EQUAL: return left <= right ? 1 : 0;
+            case Executable.GREATER: return left > right ? 1 : 0;
+            case Executable.GREATER_EQUAL: return left >= right ? 1 : 0;
+            case Executable.AND: return (left != 0 && right != 0) ? 1 : 0;
+            default: return (left != 0 || right != 0) ? 1 : 0;
+        }
+    }
+
+    int read() throws VMException {
+        try {
+            String line = in.readLine();
+            if (line == null) {
+                throw new VMException("READ: no more input");
+            }
+            return Integer.parseInt(line.trim());
+        } catch (IOException e) {
+            throw new VMException("READ: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new VMException("READ: not an int: " + e.getMessage());
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 1) {
+            System.out.println("***Incorrect usage, try: java vm.VirtualMachine <file.cod>");
+            System.exit(1);
+        }
+        try {
+            new VirtualMachine(System.in, System.out).execute(Loader.load(args[0]));
+        } catch (Exception e) {
+            System.out.println("****VM ERROR: " + e.getMessage() + "   ****");
+            System.exit(1);
+        }
+    }
+}